@@ -0,0 +1,62 @@
+package systeme.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systeme.lindenmeyer.SystemeLindenmeyer;
+import systeme.lindenmeyer.TamponSymboles;
+
+/**
+ * La dérivation en mémoire des générations de chaque type de système, pour des nombres d'itérations croissants.
+ * Le compteur {@link Debit#symboles} donne le nombre de symboles produits par seconde.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class BancDerivation {
+    /**
+     * Le type du système dérivé.
+     * La taille de la génération dérivée.
+     */
+    @Param({"deterministe", "contextuel", "stochastique", "parametrique"})
+    public String type;
+    @Param({"petite", "moyenne", "grande"})
+    public String taille;
+
+    /**
+     * Le système dérivé.
+     * Le nombre d'itérations de la génération dérivée.
+     */
+    private SystemeLindenmeyer systeme;
+    private int nbIterations;
+
+    /**
+     * Construit le système à dériver.
+     */
+    @Setup
+    public void prepare() {
+        systeme = Systemes.cree(type);
+        nbIterations = Systemes.nbIterations(type, taille);
+    }
+
+    @Benchmark
+    public TamponSymboles derivation(Debit debit) {
+        TamponSymboles generation = systeme.deriveChaine(nbIterations);
+        debit.symboles += generation.length();
+        return generation;
+    }
+}
@@ -0,0 +1,95 @@
+package systeme.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systeme.affichage.EncodeurPNG;
+import systeme.affichage.RasteriseurTraits;
+import systeme.affichage.RasteriseurTuiles;
+import systeme.lindenmeyer.BoiteEnglobante;
+import systeme.lindenmeyer.SequenceSymboles;
+import systeme.lindenmeyer.SystemeDeterministe;
+import systeme.lindenmeyer.SystemeLindenmeyer;
+
+/**
+ * Le rendu sans affichage d'une plante en image PNG, comme le fait {@link systeme.affichage.RenduLot} :
+ * mesure du dessin, tracé des pixels puis compression, l'image étant écrite dans un flux qui ne garde rien.
+ * Les images de plus de 2<sup>24</sup> pixels sont tracées par tuiles.
+ * Le compteur {@link Debit#symboles} donne le nombre de symboles rendus par seconde.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class BancRendu {
+    /**
+     * La couleur de fond et la couleur des traits.
+     * La marge laissée autour du dessin.
+     * Le niveau de compression de l'image.
+     * Le nombre de pixels au-delà duquel l'image est tracée par tuiles.
+     */
+    private static final int FOND = 0xFFFFFF, COULEUR = 0x008000;
+    private static final int MARGE = 10;
+    private static final int NIVEAU_COMPRESSION = 6;
+    private static final long NB_PIXELS_TUILES = 1L << 24;
+
+    /** La largeur et la hauteur de l'image. */
+    @Param({"1000", "4000", "8000"})
+    public int taille;
+
+    /**
+     * Le système rendu.
+     * La génération rendue.
+     */
+    private SystemeLindenmeyer systeme;
+    private SequenceSymboles generation;
+
+    /**
+     * Prépare la génération à rendre.
+     */
+    @Setup
+    public void prepare() {
+        systeme = new SystemeDeterministe("X", "X=F[+X][-X]FX F=FF", 25.7, 9, 5);
+        generation = systeme.generation(systeme.getIteration());
+    }
+
+    @Benchmark
+    public void rendu(Debit debit) throws IOException, InterruptedException {
+        BoiteEnglobante boite = systeme.mesureGeneration(generation, systeme.getLongueur());
+        double echelle = boite.echelle(taille, taille, MARGE);
+        double decalageX = boite.decalageX(echelle, taille), decalageY = boite.decalageY(echelle, taille);
+        OutputStream sortie = OutputStream.nullOutputStream();
+        if ((long) taille * taille > NB_PIXELS_TUILES) {
+            try (RasteriseurTuiles tuiles = new RasteriseurTuiles(taille, taille, FOND, COULEUR, Runtime.getRuntime().availableProcessors())) {
+                tuiles.setTransformation(echelle, decalageX, decalageY);
+                generation.parcours(systeme.creeTortue(systeme.getLongueur(), tuiles));
+                tuiles.termine();
+                tuiles.ecritPNG(sortie, NIVEAU_COMPRESSION);
+            }
+        } else {
+            RasteriseurTraits pixels = new RasteriseurTraits(taille, taille, FOND, COULEUR);
+            pixels.setTransformation(echelle, decalageX, decalageY);
+            generation.parcours(systeme.creeTortue(systeme.getLongueur(), pixels));
+            try (EncodeurPNG png = new EncodeurPNG(sortie, taille, taille, NIVEAU_COMPRESSION)) {
+                for (int rangee = 0; rangee < taille; rangee++)
+                    png.ecritLigne(pixels.getPixels(), rangee * taille);
+            }
+        }
+        debit.symboles += generation.taille();
+    }
+}
@@ -0,0 +1,61 @@
+package systeme.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import systeme.lindenmeyer.EcouteurTortue;
+import systeme.lindenmeyer.SequenceSymboles;
+import systeme.lindenmeyer.SystemeLindenmeyer;
+
+/**
+ * L'interprétation d'une génération par la tortue de {@link SystemeLindenmeyer#dessineSysteme}, ses traits étant
+ * envoyés à un écouteur qui ne dessine rien : seul le coût de la tortue et du parcours de la génération est mesuré.
+ * La génération est celle que l'application dessine, partagée pour un système déterministe et en mémoire sinon.
+ * Le compteur {@link Debit#symboles} donne le nombre de symboles interprétés par seconde.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class BancTortue {
+    /** Le type du système interprété. */
+    @Param({"deterministe", "contextuel", "stochastique", "parametrique"})
+    public String type;
+
+    /**
+     * Le système interprété.
+     * La génération interprétée.
+     */
+    private SystemeLindenmeyer systeme;
+    private SequenceSymboles generation;
+
+    /**
+     * Dérive la génération à interpréter.
+     */
+    @Setup
+    public void prepare() {
+        systeme = Systemes.cree(type);
+        generation = systeme.generation(Systemes.nbIterations(type, "grande"));
+    }
+
+    @Benchmark
+    public void interpretation(Debit debit, Blackhole trou) {
+        EcouteurTortue ecouteur = (x1, y1, x2, y2) -> trou.consume(x2 + y2);
+        generation.parcours(systeme.creeTortue(systeme.getLongueur(), ecouteur));
+        debit.symboles += generation.taille();
+    }
+}
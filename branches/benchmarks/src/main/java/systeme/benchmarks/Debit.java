@@ -0,0 +1,29 @@
+package systeme.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Le compteur des symboles traités par un banc d'essai.
+ * JMH le rapporte à côté du score, ramené à la seconde : c'est le débit en symboles par seconde,
+ * comparable d'un nombre d'itérations à l'autre alors que le temps d'une opération ne l'est pas.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Debit {
+    /** Le nombre de symboles traités depuis le début de l'itération de mesure. */
+    public long symboles;
+
+    /**
+     * Remet le compteur à zéro au début de chaque itération.
+     */
+    @Setup(Level.Iteration)
+    public void remiseAZero() {
+        symboles = 0;
+    }
+}
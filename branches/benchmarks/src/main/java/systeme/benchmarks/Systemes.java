@@ -0,0 +1,93 @@
+package systeme.benchmarks;
+
+import systeme.lindenmeyer.SystemeContextuel;
+import systeme.lindenmeyer.SystemeDeterministe;
+import systeme.lindenmeyer.SystemeLindenmeyer;
+import systeme.lindenmeyer.SystemeParametrique;
+import systeme.lindenmeyer.SystemeStochastique;
+
+/**
+ * Les systèmes mesurés par les bancs d'essai : les systèmes par défaut de l'application, le système stochastique
+ * recevant une graine fixe pour que chaque mesure porte sur la même plante. Le système paramétré par défaut s'arrêtant
+ * de croître, il est remplacé par un arbre dont chaque branche se divise à chaque itération ; le système contextuel
+ * par défaut n'ayant aucun contexte, il est remplacé par une plante dont les règles dépendent de leurs deux voisins.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+final class Systemes {
+    /** La graine du système stochastique. */
+    private static final long GRAINE = 42;
+    /** Les axiomes et les règles du système paramétré. */
+    private static final String AXIOME_PARAMETRIQUE = "A(1,0)";
+    private static final String REGLES_PARAMETRIQUES = "A(l,n):n<3=F(l)[+(25)A(l*0.8,n+1)][-(25+n)A(l*0.7,n+1)] A(l,n):n>=3=F(l)[+(20)A(l*0.9,0)]-(5)A(l*0.75,n+1)";
+    /** L'axiome, les règles et les symboles ignorés du système contextuel. */
+    private static final String AXIOME_CONTEXTUEL = "F1F1F1";
+    private static final String[][] REGLES_CONTEXTUELLES = {
+        {"0<0>0", "0"}, {"0<0>1", "1[+F1F1]"}, {"0<1>0", "1"}, {"0<1>1", "1"},
+        {"1<0>0", "0"}, {"1<0>1", "1F1"}, {"1<1>0", "0"}, {"1<1>1", "0"},
+        {"*<+>*", "-"}, {"*<->*", "+"}};
+    private static final String IGNORES_CONTEXTUELS = "+-F";
+
+    private Systemes() {
+    }
+
+    /**
+     * Construit le système d'un type donné.
+     * @param type "deterministe", "contextuel", "stochastique" ou "parametrique"
+     * @return le système
+     * @exception IllegalArgumentException si le type est inconnu
+     */
+    static SystemeLindenmeyer cree(String type) {
+        switch (type) {
+            case "deterministe":
+                return new SystemeDeterministe();
+            case "contextuel":
+                return new SystemeContextuel(AXIOME_CONTEXTUEL, "", 22.5, 30, 7, REGLES_CONTEXTUELLES, IGNORES_CONTEXTUELS);
+            case "stochastique":
+                SystemeStochastique defaut = new SystemeStochastique();
+                return new SystemeStochastique(defaut.getAxiomes(), defaut.getRegles(), defaut.getAngle(), defaut.getIteration(), defaut.getLongueur(), GRAINE);
+            case "parametrique":
+                return new SystemeParametrique(AXIOME_PARAMETRIQUE, REGLES_PARAMETRIQUES, 25, 10, 10);
+            default:
+                throw new IllegalArgumentException("Type de système inconnu : \"" + type + "\".");
+        }
+    }
+
+    /**
+     * Retourne le nombre d'itérations donnant une génération de la taille voulue pour un type de système,
+     * les systèmes ne croissant pas au même rythme.
+     * @param type "deterministe", "contextuel", "stochastique" ou "parametrique"
+     * @param taille "petite", "moyenne" ou "grande"
+     * @return le nombre d'itérations
+     * @exception IllegalArgumentException si le type ou la taille est inconnu
+     */
+    static int nbIterations(String type, String taille) {
+        int[] iterations;
+        switch (type) {
+            case "deterministe":
+                iterations = new int[] {10, 14, 18};
+                break;
+            case "contextuel":
+                iterations = new int[] {30, 45, 60};
+                break;
+            case "stochastique":
+                iterations = new int[] {5, 7, 9};
+                break;
+            case "parametrique":
+                iterations = new int[] {10, 14, 18};
+                break;
+            default:
+                throw new IllegalArgumentException("Type de système inconnu : \"" + type + "\".");
+        }
+        switch (taille) {
+            case "petite":
+                return iterations[0];
+            case "moyenne":
+                return iterations[1];
+            case "grande":
+                return iterations[2];
+            default:
+                throw new IllegalArgumentException("Taille de génération inconnue : \"" + taille + "\".");
+        }
+    }
+}
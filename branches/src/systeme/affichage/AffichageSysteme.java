@@ -9,8 +9,17 @@ import javafx.scene.control.*;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.layout.GridPane;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.concurrent.Task;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.ScrollEvent;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
 import systeme.lindenmeyer.*;
 
 /**
@@ -35,6 +44,62 @@ public class AffichageSysteme extends Application {
 	private TextField iterationsRentrees, angleRentre, longueurRentree, axiomesRentres, reglesRentrees;
 	private Label longueurLabel, angleLabel, iterationsLabel, axiomesLabel, reglesLabel, systemePreconfigure, couleurLabel;
 	private Canvas canvas;
+	/**
+	 * La génération en cours d'exécution en arrière-plan (null si aucune).
+	 * La barre de progression et l'état de la génération en cours.
+	 * Le bouton d'annulation de la génération en cours.
+	 */
+	private TacheGeneration tacheEnCours;
+	/** Le dernier système généré, que l'on peut exporter. */
+	private SystemeLindenmeyer systemeCourant;
+	/** L'export du dernier système en cours d'exécution en arrière-plan (null si aucun). */
+	private Task<Long> exportEnCours;
+	private ProgressBar progression;
+	private Label etatGeneration;
+	private Button annuleBouton;
+	/**
+	 * La longueur de génération au-delà de laquelle le dessin est refusé.
+	 * La taille maximale du canvas, dans laquelle les dessins trop grands sont réduits.
+	 * Le nombre de traits enregistrés entre deux vérifications de l'annulation de l'indexation, moins un.
+	 */
+	private static final long LONGUEUR_MAX_DESSIN = 1L << 30;
+	private static final double TAILLE_MAX_CANVAS = 2000;
+	private static final int MASQUE_ANNULATION_INDEXATION = (1 << 14) - 1;
+	/**
+	 * Les traits du dernier système dessiné, indexés pour le déplacement et le zoom (null tant qu'ils ne sont pas prêts).
+	 * L'enregistrement de ces traits en cours d'exécution en arrière-plan (null si aucun).
+	 * L'échelle et la translation de la vue affichée dans le canvas.
+	 * La dernière position de la souris lors d'un déplacement de la vue.
+	 */
+	private GrilleSegments grille;
+	private Task<GrilleSegments> indexationEnCours;
+	private double echelleVue, decalageXVue, decalageYVue;
+	private double xSouris, ySouris;
+	/** Le facteur de zoom appliqué à chaque cran de la molette. */
+	private static final double FACTEUR_ZOOM = 1.25;
+	/**
+	 * Les générations déjà calculées, retrouvées lorsque seuls l'angle ou la longueur du dessin changent
+	 * (au plus 128 millions de symboles en mémoire et 8 Go de fichiers sur le disque).
+	 * Les curseurs qui redessinent le dernier système avec un autre angle ou une autre longueur.
+	 * Indique si les curseurs sont en train d'être mis à jour par le programme, et non par l'utilisateur.
+	 */
+	private final CacheGenerations cacheGenerations = new CacheGenerations(1L << 27, 1L << 33);
+	private Slider angleCurseur, longueurCurseur;
+	private boolean majCurseurs;
+	/**
+	 * La case qui active les mesures de la génération et leur affichage.
+	 * Le résumé des mesures de la dernière génération, affiché par-dessus le dessin.
+	 */
+	private CheckBox statistiquesCase;
+	private Label statistiques;
+	/**
+	 * La dérivation en arrière-plan des générations à animer (null si aucune).
+	 * L'animation de la croissance en cours de lecture (null si aucune).
+	 */
+	private Task<Croissance> croissanceEnCours;
+	private AnimationCroissance animationEnCours;
+	/** Le nombre total de symboles des générations au-delà duquel la croissance n'est pas animée. */
+	private static final long NB_SYMBOLES_MAX_ANIMATION = 1L << 21;
 
 	/**
      * Retourne un entier si la chaine contient un entrée valide.
@@ -110,15 +175,391 @@ public class AffichageSysteme extends Application {
 	 * @param fenetre La fenêtre dont on doit changer le titre.
 	 * @param systeme Le système de Lindenmeyer à générer.
 	 * @param title Le nouveau titre de la fenêtre.
-	 * @param x La coordonnée x du canvas pour la fenêtre.
-	 * @param y La coordonnée y du canvas pour la fenêtre.
      */
-	private void changeParametresFenetre(Stage fenetre, Generation systeme, String titre, double x, double y) {
+	private void changeParametresFenetre(Stage fenetre, SystemeLindenmeyer systeme, String titre) {
     	fenetre.setTitle(titre);
-    	canvas.setTranslateX(x);
-    	canvas.setTranslateY(y);
-    	systeme.generationSysteme(systeme.getIteration(), Math.toRadians(systeme.getAngle()), systeme.getLongueur(), couleur, canvas);
+    	systeme.setCacheGenerations(cacheGenerations);
+    	// Les générations stochastiques trop longues pour la mémoire sont écrites dans le répertoire temporaire.
+    	systeme.setRepertoireGenerations(Paths.get(System.getProperty("java.io.tmpdir")));
+    	lanceGeneration(systeme);
+	}
+
+	/**
+	 * Redessine le dernier système avec l'angle et la longueur choisis par les curseurs, sans refaire sa génération.
+	 */
+	private void redessineAvecCurseurs() {
+		if (majCurseurs || systemeCourant == null)
+			return;
+		double angleChoisi = Math.round(angleCurseur.getValue() * 10) / 10.0;
+		int longueurChoisie = (int) Math.round(longueurCurseur.getValue());
+		lanceGeneration(systemeCourant.copieDessin(angleChoisi, longueurChoisie));
+	}
+
+	/**
+	 * Ajuste le canvas aux dimensions du dessin mesuré et y cadre le dessin.
+	 * Un dessin qui tient dans la taille maximale du canvas garde sa taille, un dessin plus grand est réduit.
+	 * @param systeme Le système de Lindenmeyer à dessiner.
+	 * @param boite La boîte englobant le dessin.
+	 * @return le contexte graphique sur lequel dessiner.
+	 */
+	private GraphicsContext prepareCanvas(SystemeLindenmeyer systeme, BoiteEnglobante boite) {
+		double marge = SystemeLindenmeyer.MARGE_DESSIN;
+		double echelle = boite.echelle(TAILLE_MAX_CANVAS, TAILLE_MAX_CANVAS, marge);
+		canvas.setWidth(Math.ceil(boite.getLargeur() * echelle + 2 * marge));
+		canvas.setHeight(Math.ceil(boite.getHauteur() * echelle + 2 * marge));
+		echelleVue = boite.echelle(canvas.getWidth(), canvas.getHeight(), marge);
+		decalageXVue = boite.decalageX(echelleVue, canvas.getWidth());
+		decalageYVue = boite.decalageY(echelleVue, canvas.getHeight());
+		return systeme.initialiseContexteGraphique(canvas, couleur, boite);
+	}
+
+	/**
+	 * Indexe en arrière-plan les traits du système qui vient d'être dessiné, pour pouvoir ensuite
+	 * déplacer et zoomer la vue sans refaire la génération. Les traits conservés par la génération qui les a dessinés
+	 * sont seulement indexés ; à défaut, la génération dessinée est parcourue une nouvelle fois, sans être dérivée de nouveau.
+	 * @param systeme Le système de Lindenmeyer dessiné.
+	 * @param generation La génération dessinée.
+	 * @param tache La génération en arrière-plan qui l'a dessinée, ou null si elle a été dessinée autrement.
+	 */
+	private void lanceIndexation(SystemeLindenmeyer systeme, SequenceSymboles generation, TacheGeneration tache) {
+		Task<GrilleSegments> indexation = new Task<GrilleSegments>() {
+			@Override
+			protected GrilleSegments call() {
+				GrilleSegments traits = tache == null ? null : tache.getTraits();
+				if (traits == null) {
+					GrilleSegments parcourus = new GrilleSegments();
+					// Une indexation annulée s'interrompt au lieu de parcourir toute la génération pour rien.
+					EcouteurTortue enregistrement = (x1, y1, x2, y2) -> {
+						if ((parcourus.getNbTraits() & MASQUE_ANNULATION_INDEXATION) == 0 && isCancelled())
+							throw new CancellationException();
+						parcourus.trait(x1, y1, x2, y2);
+					};
+					generation.parcours(systeme.creeTortue(systeme.getLongueur(), enregistrement));
+					traits = parcourus;
+				}
+				traits.indexe();
+				return traits;
+			}
+		};
+		indexation.setOnSucceeded(event -> {
+			if (indexation != indexationEnCours)
+				return;
+			grille = indexation.getValue();
+			indexationEnCours = null;
+			etatGeneration.setText(etatGeneration.getText() + " (glisser pour déplacer, molette pour zoomer)");
+		});
+		indexation.setOnFailed(event -> {
+			if (indexation != indexationEnCours)
+				return;
+			indexationEnCours = null;
+			etatGeneration.setText(etatGeneration.getText() + " (vue figée : " + indexation.getException().getMessage() + ")");
+		});
+		indexationEnCours = indexation;
+		Thread thread = new Thread(indexation, "Indexation L-système");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Redessine la partie visible du dernier système, à partir de ses traits indexés.
+	 */
+	private void redessineVue() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.setTransform(1, 0, 0, 1, 0, 0);
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		gc.setTransform(echelleVue, 0, 0, echelleVue, decalageXVue, decalageYVue);
+		gc.setStroke(couleur);
+		gc.setLineWidth(1 / echelleVue);
+		BoiteEnglobante vue = new BoiteEnglobante(-decalageXVue / echelleVue, -decalageYVue / echelleVue,
+		                                          (canvas.getWidth() - decalageXVue) / echelleVue, (canvas.getHeight() - decalageYVue) / echelleVue);
+		TraceurPolylignes traceur = new TraceurPolylignes(gc);
+		grille.parcoursVisibles(vue, 1 / echelleVue, traceur);
+		traceur.termine();
+	}
+
+	/**
+	 * Zoome la vue autour de la position de la souris, d'un cran de molette.
+	 * @param event Le défilement de la molette.
+	 */
+	private void zoomeVue(ScrollEvent event) {
+		if (grille == null || event.getDeltaY() == 0)
+			return;
+		double facteur = event.getDeltaY() > 0 ? FACTEUR_ZOOM : 1 / FACTEUR_ZOOM;
+		echelleVue *= facteur;
+		decalageXVue = event.getX() - (event.getX() - decalageXVue) * facteur;
+		decalageYVue = event.getY() - (event.getY() - decalageYVue) * facteur;
+		redessineVue();
+	}
+
+	/**
+	 * Affiche une alerte signalant une erreur lors de la génération du système.
+	 * @param message Le message de l'alerte.
+	 */
+	private void afficheAlerte(String message) {
+		afficheAlerte("Erreur génération système", message);
+	}
+
+	/**
+	 * Affiche une alerte d'information.
+	 * @param titre Le titre de l'alerte.
+	 * @param message Le message de l'alerte.
+	 */
+	private void afficheAlerte(String titre, String message) {
+		Alert alert = new Alert(AlertType.INFORMATION);
+		alert.setTitle(titre);
+		alert.setHeaderText(null);
+		alert.setContentText(message);
+		alert.showAndWait();
+	}
 
+	/**
+	 * Retourne la longueur de la génération demandée, calculée à partir des seules règles du système.
+	 * @param systeme Le système de Lindenmeyer à générer.
+	 * @return la longueur de la génération, ou null si elle ne peut pas être connue à l'avance.
+	 */
+	private BigInteger longueurPrevue(SystemeLindenmeyer systeme) {
+		try {
+			return systeme.longueurGeneration(systeme.getIteration());
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Génère et dessine le système en arrière-plan, en remplaçant la génération éventuellement en cours.
+	 * Les générations trop longues pour être dessinées sont refusées avant tout calcul.
+	 * @param systeme Le système de Lindenmeyer à générer.
+	 */
+	private void lanceGeneration(SystemeLindenmeyer systeme) {
+		annuleGeneration();
+		// Les statistiques affichées ne portent que sur la dernière génération, analyse des règles comprise.
+		Mesures.efface();
+		try {
+			BigInteger longueurPrevue = longueurPrevue(systeme);
+			if (longueurPrevue != null && longueurPrevue.compareTo(BigInteger.valueOf(LONGUEUR_MAX_DESSIN)) > 0) {
+				afficheAlerte("La génération demandée contient " + longueurPrevue + " symboles, ce qui est trop pour être dessiné.");
+				return;
+			}
+			systemeCourant = systeme;
+			majCurseurs = true;
+			angleCurseur.setValue(systeme.getAngle());
+			longueurCurseur.setValue(systeme.getLongueur());
+			majCurseurs = false;
+			TacheGeneration tache = new TacheGeneration(systeme, systeme.getIteration(), systeme.getLongueur(), boite -> prepareCanvas(systeme, boite), longueurPrevue == null ? -1 : longueurPrevue.longValue());
+			tache.setOnSucceeded(event -> {
+				termineGeneration(tache);
+				lanceIndexation(systeme, tache.getGeneration(), tache);
+			});
+			tache.setOnCancelled(event -> termineGeneration(tache));
+			tache.setOnFailed(event -> {
+				termineGeneration(tache);
+				afficheAlerte(tache.getException().getMessage());
+			});
+			progression.progressProperty().bind(tache.progressProperty());
+			etatGeneration.textProperty().bind(tache.messageProperty());
+			annuleBouton.setDisable(false);
+			tacheEnCours = tache;
+			Thread thread = new Thread(tache, "Génération L-système");
+			thread.setDaemon(true);
+			thread.start();
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			afficheAlerte(e.getMessage());
+		}
+	}
+
+	/**
+	 * Annule la génération ou l'export en cours, s'il y en a un. Les traits déjà dessinés restent affichés.
+	 */
+	private void annuleGeneration() {
+		if (tacheEnCours != null)
+			tacheEnCours.cancel();
+		if (exportEnCours != null)
+			exportEnCours.cancel();
+		if (indexationEnCours != null)
+			indexationEnCours.cancel();
+		indexationEnCours = null;
+		if (croissanceEnCours != null)
+			croissanceEnCours.cancel();
+		croissanceEnCours = null;
+		if (animationEnCours != null)
+			animationEnCours.stop();
+		animationEnCours = null;
+		grille = null;
+	}
+
+	/**
+	 * Anime la croissance du dernier système généré, de son axiome à sa dernière génération.
+	 * Les générations sont dérivées une seule fois en arrière-plan ; l'animation, cadrée sur la dernière génération,
+	 * redessine ensuite le canvas à chaque image, puis les traits sont indexés comme après une génération.
+	 */
+	private void lanceAnimation() {
+		if (systemeCourant == null) {
+			afficheAlerte("Aucun système n'a encore été généré.");
+			return;
+		}
+		annuleGeneration();
+		if (tacheEnCours != null)
+			termineGeneration(tacheEnCours);
+		SystemeLindenmeyer systeme = systemeCourant;
+		Task<Croissance> derivation = new Task<Croissance>() {
+			@Override
+			protected Croissance call() {
+				return systeme.croissance(systeme.getIteration(), NB_SYMBOLES_MAX_ANIMATION);
+			}
+		};
+		derivation.setOnSucceeded(event -> {
+			if (derivation != croissanceEnCours)
+				return;
+			croissanceEnCours = null;
+			Croissance croissance = derivation.getValue();
+			BoiteEnglobante boite = systeme.mesureGeneration(croissance.getGeneration(croissance.getNbIterations()), systeme.getLongueur());
+			GraphicsContext gc = prepareCanvas(systeme, boite);
+			AnimationCroissance animation = new AnimationCroissance(systeme, croissance, canvas, gc, () -> {
+				animationEnCours = null;
+				etatGeneration.setText("Croissance animée en " + croissance.getNbIterations() + " itérations");
+				lanceIndexation(systeme, croissance.getGeneration(croissance.getNbIterations()), null);
+			});
+			animationEnCours = animation;
+			etatGeneration.setText("Croissance en cours...");
+			animation.start();
+		});
+		derivation.setOnFailed(event -> {
+			if (derivation != croissanceEnCours)
+				return;
+			croissanceEnCours = null;
+			etatGeneration.setText("");
+			afficheAlerte(derivation.getException().getMessage());
+		});
+		croissanceEnCours = derivation;
+		etatGeneration.setText("Dérivation des générations à animer...");
+		Thread thread = new Thread(derivation, "Croissance L-système");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Détache l'affichage de la progression d'une génération qui vient de se terminer.
+	 * @param tache La génération terminée, réussie, annulée ou en échec.
+	 */
+	private void termineGeneration(TacheGeneration tache) {
+		if (tache != tacheEnCours)
+			return;
+		progression.progressProperty().unbind();
+		etatGeneration.textProperty().unbind();
+		annuleBouton.setDisable(true);
+		tacheEnCours = null;
+		// Les lots de traits sont dessinés avant que la fin de la tâche ne soit signalée : leurs mesures sont complètes.
+		majStatistiques();
+	}
+
+	/**
+	 * Met à jour le résumé des mesures affiché par-dessus le dessin, s'il est affiché.
+	 */
+	private void majStatistiques() {
+		if (statistiquesCase.isSelected())
+			statistiques.setText(Mesures.resume());
+	}
+
+	/**
+	 * Exporte en arrière-plan le dernier système généré, au format SVG, dans le format binaire des traits ou,
+	 * interprété dans l'espace, en maillage STL ou PLY selon l'extension du fichier choisi.
+	 * Les traits sont écrits au fil de la dérivation, sans être conservés en mémoire. L'avancement de l'export
+	 * est affiché comme celui d'une génération et il peut être annulé de la même façon : le fichier inachevé est alors supprimé.
+	 * @param fenetre La fenêtre à laquelle rattacher le choix du fichier.
+	 */
+	private void exporteSysteme(Stage fenetre) {
+		if (systemeCourant == null) {
+			afficheAlerte("Aucun système n'a encore été généré.");
+			return;
+		}
+		if (tacheEnCours != null || exportEnCours != null) {
+			afficheAlerte("Une génération ou un export est déjà en cours : attendez sa fin ou annulez-le.");
+			return;
+		}
+		FileChooser choixFichier = new FileChooser();
+		choixFichier.setTitle("Exporter le système");
+		choixFichier.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("Image vectorielle SVG", "*.svg"),
+		                                          new FileChooser.ExtensionFilter("Traits binaires", "*.lseg"),
+		                                          new FileChooser.ExtensionFilter("Maillage STL", "*.stl"),
+		                                          new FileChooser.ExtensionFilter("Maillage PLY", "*.ply"));
+		File fichier = choixFichier.showSaveDialog(fenetre);
+		if (fichier == null)
+			return;
+		SystemeLindenmeyer systeme = systemeCourant;
+		BigInteger longueur = longueurPrevue(systeme);
+		long longueurPrevue = longueur == null ? -1 : longueur.longValue();
+		int couleurTraits = (int) Math.round(couleur.getRed() * 255) << 16 | (int) Math.round(couleur.getGreen() * 255) << 8 | (int) Math.round(couleur.getBlue() * 255);
+		Task<Long> export = new Task<Long>() {
+			@Override
+			protected Long call() throws IOException {
+				long debut = System.nanoTime();
+				SuiviDerivation suivi = new SuiviDerivation() {
+					@Override
+					public void reecriture(int iteration, long nbSymboles) {
+						if (isCancelled())
+							throw new CancellationException();
+						updateProgress(iteration - 1, systeme.getIteration());
+						updateMessage("Export, itération " + iteration + " / " + systeme.getIteration() + " : réécriture, " + nbSymboles + " symboles en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+					}
+
+					@Override
+					public void mesure(long nbSymboles) {
+						if (isCancelled())
+							throw new CancellationException();
+						if (longueurPrevue > 0)
+							updateProgress(nbSymboles, longueurPrevue);
+						else
+							updateProgress(-1, -1);
+						updateMessage("Export : " + nbSymboles + (longueurPrevue > 0 ? " / " + longueurPrevue : "") + " symboles interprétés en " + (System.nanoTime() - debut) / 1_000_000 + " ms");
+					}
+				};
+				try {
+					String nom = fichier.getName().toLowerCase();
+					if (nom.endsWith(".stl") || nom.endsWith(".ply")) {
+						try (ExportMaillage maillage = nom.endsWith(".stl") ? new ExportSTL(fichier.toPath()) : new ExportPLY(fichier.toPath())) {
+							systeme.parcoursTraits3D(systeme.getIteration(), systeme.getLongueur(), maillage, suivi);
+							return maillage.getNbTraits();
+						}
+					}
+					try (ExportFlux flux = fichier.getName().endsWith(".lseg") ? new ExportSegments(fichier.toPath()) : new ExportSVG(fichier.toPath(), couleurTraits)) {
+						systeme.parcoursTraits(systeme.getIteration(), systeme.getLongueur(), flux, suivi);
+						return flux.getNbTraits();
+					}
+				} catch (CancellationException e) {
+					Files.deleteIfExists(fichier.toPath());
+					throw e;
+				}
+			}
+		};
+		export.setOnSucceeded(event -> {
+			termineExport(export);
+			afficheAlerte("Export du système", export.getValue() + " traits exportés dans " + fichier.getName() + ".");
+		});
+		export.setOnCancelled(event -> termineExport(export));
+		export.setOnFailed(event -> {
+			termineExport(export);
+			afficheAlerte("Erreur export système", export.getException().getMessage());
+		});
+		progression.progressProperty().bind(export.progressProperty());
+		etatGeneration.textProperty().bind(export.messageProperty());
+		annuleBouton.setDisable(false);
+		exportEnCours = export;
+		Thread thread = new Thread(export, "Export L-système");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Détache l'affichage de la progression d'un export qui vient de se terminer.
+	 * @param export L'export terminé, réussi, annulé ou en échec.
+	 */
+	private void termineExport(Task<Long> export) {
+		if (export != exportEnCours)
+			return;
+		progression.progressProperty().unbind();
+		etatGeneration.textProperty().unbind();
+		annuleBouton.setDisable(true);
+		exportEnCours = null;
 	}
 
 	@Override
@@ -171,12 +612,59 @@ public class AffichageSysteme extends Application {
 		canvas.setTranslateY(100);
 		conteneur.getChildren().add(canvas);
 
+		// Déplace la vue en faisant glisser la souris et zoome avec la molette, une fois les traits du système indexés.
+		canvas.setOnMousePressed(event -> {
+			xSouris = event.getX();
+			ySouris = event.getY();
+		});
+		canvas.setOnMouseDragged(event -> {
+			if (grille == null)
+				return;
+			decalageXVue += event.getX() - xSouris;
+			decalageYVue += event.getY() - ySouris;
+			xSouris = event.getX();
+			ySouris = event.getY();
+			redessineVue();
+		});
+		canvas.setOnScroll(this::zoomeVue);
+
+		// Le résumé des mesures, affiché dans le coin du canvas et transparent pour la souris.
+		statistiques = new Label();
+		statistiques.setStyle("-fx-background-color: rgba(255, 255, 255, 0.85); -fx-padding: 6; -fx-font-family: monospace;");
+		statistiques.setTranslateX(410);
+		statistiques.setTranslateY(110);
+		statistiques.setMouseTransparent(true);
+		statistiques.setVisible(false);
+		conteneur.getChildren().add(statistiques);
+		statistiquesCase = new CheckBox("Statistiques");
+		statistiquesCase.setOnAction(event -> {
+			Mesures.setActif(statistiquesCase.isSelected());
+			statistiques.setVisible(statistiquesCase.isSelected());
+			if (statistiquesCase.isSelected())
+				statistiques.setText("Les mesures s'afficheront à la prochaine génération.");
+		});
+
 		// Initialise la liste déroulante des systèmes et l'ajoute à la mise en page.
 		ComboBox<String> listeSystemes = new ComboBox<>();
 		Button genereBouton = new Button("Générer système");
 		Button nettoieBouton = new Button("Nettoyer");
+		annuleBouton = new Button("Annuler");
+		Button exporteBouton = new Button("Exporter");
+		Button animeBouton = new Button("Animer");
+		animeBouton.setOnAction(event -> lanceAnimation());
+		exporteBouton.setOnAction(event -> exporteSysteme(stage));
+		annuleBouton.setDisable(true);
+		annuleBouton.setOnAction(event -> annuleGeneration());
+		progression = new ProgressBar(0);
+		etatGeneration = new Label();
+		Label angleCurseurLabel = new Label("Angle du dessin :");
+		angleCurseur = new Slider(1, 180, 90);
+		angleCurseur.valueProperty().addListener((propriete, ancienne, nouvelle) -> redessineAvecCurseurs());
+		Label longueurCurseurLabel = new Label("Longueur du dessin :");
+		longueurCurseur = new Slider(1, 50, 5);
+		longueurCurseur.valueProperty().addListener((propriete, ancienne, nouvelle) -> redessineAvecCurseurs());
 
-		listeSystemes.getItems().addAll("Système personnalisé","Système détermnisite", "Système stochastique", "Système contextuel");
+		listeSystemes.getItems().addAll("Système personnalisé","Système détermnisite", "Système stochastique", "Système contextuel", "Système paramétrique");
 		listeSystemes.getSelectionModel().select(0);
 
 		// Gère le fonctionnement des boutons 
@@ -191,6 +679,16 @@ public class AffichageSysteme extends Application {
     		GridPane.setConstraints(listeCouleurs, 1, 7);
     		GridPane.setConstraints(genereBouton, 0, 8);
     		GridPane.setConstraints(nettoieBouton, 1, 8);
+    		GridPane.setConstraints(annuleBouton, 0, 9);
+    		GridPane.setConstraints(progression, 1, 9);
+    		GridPane.setConstraints(exporteBouton, 0, 10);
+    		GridPane.setConstraints(etatGeneration, 1, 10);
+    		GridPane.setConstraints(angleCurseurLabel, 0, 11);
+    		GridPane.setConstraints(angleCurseur, 1, 11);
+    		GridPane.setConstraints(longueurCurseurLabel, 0, 12);
+    		GridPane.setConstraints(longueurCurseur, 1, 12);
+    		GridPane.setConstraints(statistiquesCase, 0, 13);
+    		GridPane.setConstraints(animeBouton, 1, 13);
     		if (isCustom) {
         		GridPane.setConstraints(iterationsLabel, 0, 1);
         		GridPane.setConstraints(iterationsRentrees, 1, 1);
@@ -204,7 +702,7 @@ public class AffichageSysteme extends Application {
         		GridPane.setConstraints(reglesRentrees, 1, 5);
         		miseEnPage.getChildren().addAll(iterationsLabel, iterationsRentrees, angleLabel, angleRentre, longueurLabel, longueurRentree, axiomesLabel, axiomesRentres, reglesLabel, reglesRentrees);
     		}
-    		miseEnPage.getChildren().addAll(systemePreconfigure, listeSystemes, couleurLabel, listeCouleurs, genereBouton, nettoieBouton);
+    		miseEnPage.getChildren().addAll(systemePreconfigure, listeSystemes, couleurLabel, listeCouleurs, genereBouton, nettoieBouton, annuleBouton, progression, exporteBouton, etatGeneration, angleCurseurLabel, angleCurseur, longueurCurseurLabel, longueurCurseur, statistiquesCase, animeBouton);
 		});
 		genereBouton.setOnAction(event -> {
     		int indexCouleurChoisie = listeCouleurs.getSelectionModel().getSelectedIndex();
@@ -232,39 +730,45 @@ public class AffichageSysteme extends Application {
             		break;
     		}
 
-    		Generation systeme = null;
+    		SystemeLindenmeyer systeme = null;
     		String systemeChoisit = listeSystemes.getSelectionModel().getSelectedItem().toString();
     		switch (systemeChoisit){
         		case "Système stochastique":
+            		// Un système stochastique reçoit une nouvelle graine à chaque création : il donne une nouvelle plante.
             		systeme = new SystemeStochastique();
-					changeParametresFenetre(stage, systeme, "Système stochastique", -100, -700);
+					changeParametresFenetre(stage, systeme, "Système stochastique");
             		break;
         		case "Système détermnisite":
             		systeme = new SystemeDeterministe();
-					changeParametresFenetre(stage, systeme, "Système détermnisite", 100, -900);
+					changeParametresFenetre(stage, systeme, "Système détermnisite");
 					break;
         		case "Système contextuel":
             		systeme = new SystemeContextuel();
-					changeParametresFenetre(stage, systeme, "Système contextuel", 0, -500);
+					changeParametresFenetre(stage, systeme, "Système contextuel");
+            		break;
+        		case "Système paramétrique":
+            		systeme = new SystemeParametrique();
+					changeParametresFenetre(stage, systeme, "Système paramétrique");
             		break;
         		case "Système personnalisé":
             		if(!paramEntreValide(iterations, angle, longueur) || paramVide(iterations, angle, longueur, axiomes, regles)) {
-                		Alert alert = new Alert(AlertType.INFORMATION);
-                		alert.setTitle("Erreur génération système");
-                		alert.setHeaderText(null);
-                		alert.setContentText("L'un de vos paramètres contient une erreur.");
-                		alert.showAndWait();
+                		afficheAlerte("L'un de vos paramètres contient une erreur.");
                 		return;
             		}
-            		systeme = new SystemeDeterministe(axiomes, regles, angle, iterations, longueur);
-					changeParametresFenetre(stage, systeme, "Système personnalisé", 100, -700);
+            		// Des modules munis de paramètres, comme "A(1)", font du système personnalisé un système paramétré.
+            		if (axiomes.indexOf('(') >= 0 || regles.indexOf('(') >= 0)
+            			systeme = new SystemeParametrique(axiomes, regles, angle, iterations, longueur);
+            		else
+            			systeme = new SystemeDeterministe(axiomes, regles, angle, iterations, longueur);
+					changeParametresFenetre(stage, systeme, "Système personnalisé");
             		break;
     		}
-    		systeme.generationSysteme(systeme.getIteration(), Math.toRadians(systeme.getAngle()),  systeme.getLongueur(), couleur, canvas);
 		});
 		nettoieBouton.setOnAction(event -> {
+    		annuleGeneration();
     		GraphicsContext gc = canvas.getGraphicsContext2D();
-    		gc.clearRect(-1000, -1000, canvas.getWidth(), canvas.getHeight());
+    		gc.setTransform(1, 0, 0, 1, 0, 0);
+    		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
     		gc.setFill(Color.BLACK);
     		iterationsRentrees.clear();
     		angleRentre.clear();
@@ -291,8 +795,18 @@ public class AffichageSysteme extends Application {
 		GridPane.setConstraints(listeCouleurs, 1, 7);
 		GridPane.setConstraints(genereBouton, 0, 8);
 		GridPane.setConstraints(nettoieBouton, 1, 8);
+		GridPane.setConstraints(annuleBouton, 0, 9);
+		GridPane.setConstraints(progression, 1, 9);
+		GridPane.setConstraints(exporteBouton, 0, 10);
+		GridPane.setConstraints(etatGeneration, 1, 10);
+		GridPane.setConstraints(angleCurseurLabel, 0, 11);
+		GridPane.setConstraints(angleCurseur, 1, 11);
+		GridPane.setConstraints(longueurCurseurLabel, 0, 12);
+		GridPane.setConstraints(longueurCurseur, 1, 12);
+		GridPane.setConstraints(statistiquesCase, 0, 13);
+		GridPane.setConstraints(animeBouton, 1, 13);
 		
-		miseEnPage.getChildren().addAll(iterationsLabel, iterationsRentrees, angleLabel, angleRentre, longueurLabel, longueurRentree, couleurLabel, listeCouleurs, axiomesLabel, axiomesRentres, reglesLabel, reglesRentrees, systemePreconfigure, listeSystemes, genereBouton, nettoieBouton);
+		miseEnPage.getChildren().addAll(iterationsLabel, iterationsRentrees, angleLabel, angleRentre, longueurLabel, longueurRentree, couleurLabel, listeCouleurs, axiomesLabel, axiomesRentres, reglesLabel, reglesRentrees, systemePreconfigure, listeSystemes, genereBouton, nettoieBouton, annuleBouton, progression, exporteBouton, etatGeneration, angleCurseurLabel, angleCurseur, longueurCurseurLabel, longueurCurseur, statistiquesCase, animeBouton);
 		conteneur.getChildren().add(miseEnPage);
 
 		// Création de la scène et du stage
@@ -0,0 +1,177 @@
+package systeme.affichage;
+
+import java.util.Arrays;
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import systeme.lindenmeyer.*;
+
+/**
+ * L'animation de la croissance d'un système, de son axiome à sa dernière génération, redessinée à chaque image.
+ * Chaque itération dure {@value #DUREE_ITERATION} seconde : la génération en croissance est interprétée
+ * à l'avancement correspondant (voir {@link Croissance}), ses traits sont rangés dans un tampon de polylignes
+ * réutilisé d'une image à l'autre, puis le canvas est effacé et redessiné d'un seul chemin.
+ * Les générations ayant été dérivées à l'avance, une image ne coûte que l'interprétation d'une génération,
+ * sans créer d'objet une fois les tampons dimensionnés par les premières images.
+ * La vue reste cadrée sur la dernière génération pendant toute l'animation, qui s'arrête sur son dessin.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class AnimationCroissance extends AnimationTimer {
+	/** La durée de la croissance d'une génération à la suivante (en secondes). */
+	public static final double DUREE_ITERATION = 0.6;
+
+	/**
+	 * Les générations du système animé.
+	 * L'angle (en degrés) d'une rotation du système.
+	 * Le canvas sur lequel dessiner, et son contexte graphique déjà cadré sur la dernière génération.
+	 * La tortue qui interprète les générations, replacée à l'origine à chaque image.
+	 * Les polylignes de l'image en cours.
+	 * L'action exécutée lorsque l'animation atteint la dernière génération.
+	 */
+	private final Croissance croissance;
+	private final double angle;
+	private final Canvas canvas;
+	private final GraphicsContext gc;
+	private final Tortue tortue;
+	private final Polylignes polylignes;
+	private final Runnable fin;
+	/** L'instant de la première image (en nanosecondes), ou -1 avant qu'elle ne soit affichée. */
+	private long debut;
+
+	/**
+	 * Construit l'animation de la croissance d'un système.
+	 * @param systeme le système animé
+	 * @param croissance les générations du système, obtenues par {@link SystemeLindenmeyer#croissance(int, long)}
+	 * @param canvas le canvas sur lequel dessiner
+	 * @param gc le contexte graphique du canvas, cadré sur la dernière génération et muni de son crayon
+	 * @param fin l'action exécutée sur le thread JavaFX lorsque la dernière génération est dessinée
+	 */
+	public AnimationCroissance(SystemeLindenmeyer systeme, Croissance croissance, Canvas canvas, GraphicsContext gc, Runnable fin) {
+		this.croissance = croissance;
+		this.angle = systeme.getAngle();
+		this.canvas = canvas;
+		this.gc = gc;
+		this.polylignes = new Polylignes();
+		this.tortue = systeme.creeTortue(systeme.getLongueur(), polylignes);
+		this.fin = fin;
+		this.debut = -1;
+	}
+
+	@Override
+	public void handle(long maintenant) {
+		if (debut < 0)
+			debut = maintenant;
+		double avancement = (maintenant - debut) / 1e9 / DUREE_ITERATION;
+		int iteration = (int) avancement + 1;
+		boolean terminee = iteration > croissance.getNbIterations();
+		if (terminee)
+			dessine(croissance.getNbIterations(), 1);
+		else
+			dessine(iteration, avancement - (iteration - 1));
+		if (terminee) {
+			stop();
+			fin.run();
+		}
+	}
+
+	/**
+	 * Dessine une génération à un avancement donné de sa croissance, à la place de l'image précédente.
+	 * @param iteration le numéro de la génération, 0 pour l'axiome
+	 * @param avancement l'avancement de la croissance depuis la génération précédente, entre 0 et 1
+	 */
+	private void dessine(int iteration, double avancement) {
+		polylignes.vide();
+		tortue.reinitialise(0, 0);
+		croissance.interprete(iteration, avancement, angle, tortue);
+		gc.save();
+		gc.setTransform(1, 0, 0, 1, 0, 0);
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		gc.restore();
+		polylignes.dessine(gc);
+	}
+
+	/**
+	 * Les traits d'une image, regroupés en polylignes comme par {@link TraceurPolylignes} et rangés dans des tableaux
+	 * qui ne sont agrandis que lorsqu'une image compte plus de points que les précédentes.
+	 */
+	private static class Polylignes implements EcouteurTortue {
+		/**
+		 * Les coordonnées des points, deux par point.
+		 * L'indice du premier point de chaque polyligne.
+		 * Le nombre de points et le nombre de polylignes de l'image.
+		 * Indique si le prochain trait prolonge la polyligne en cours.
+		 */
+		private double[] points = new double[1 << 12];
+		private int[] debuts = new int[1 << 8];
+		private int nbPoints, nbPolylignes;
+		private boolean continu;
+
+		/**
+		 * Vide le tampon, sans libérer ses tableaux.
+		 */
+		void vide() {
+			nbPoints = 0;
+			nbPolylignes = 0;
+			continu = false;
+		}
+
+		/**
+		 * Ajoute un point à la polyligne en cours.
+		 * @param x l'abscisse du point
+		 * @param y l'ordonnée du point
+		 */
+		private void ajoute(double x, double y) {
+			if (2 * nbPoints + 2 > points.length)
+				points = Arrays.copyOf(points, 2 * points.length);
+			points[2 * nbPoints] = x;
+			points[2 * nbPoints + 1] = y;
+			nbPoints++;
+		}
+
+		@Override
+		public void trait(double x1, double y1, double x2, double y2) {
+			if (!continu) {
+				if (nbPolylignes == debuts.length)
+					debuts = Arrays.copyOf(debuts, 2 * debuts.length);
+				debuts[nbPolylignes++] = nbPoints;
+				ajoute(x1, y1);
+				continu = true;
+			}
+			ajoute(x2, y2);
+		}
+
+		@Override
+		public void saut(double x1, double y1, double x2, double y2) {
+			continu = false;
+		}
+
+		@Override
+		public void depile(double x, double y) {
+			continu = false;
+		}
+
+		/**
+		 * Dessine les polylignes du tampon, par chemins d'au plus {@value TraceurPolylignes#NB_POINTS_MAX} points.
+		 * @param gc le contexte graphique sur lequel dessiner
+		 */
+		void dessine(GraphicsContext gc) {
+			int nbPointsChemin = 0;
+			gc.beginPath();
+			for (int polyligne = 0; polyligne < nbPolylignes; polyligne++) {
+				int premier = debuts[polyligne];
+				int dernier = polyligne + 1 < nbPolylignes ? debuts[polyligne + 1] : nbPoints;
+				if (nbPointsChemin > 0 && nbPointsChemin + dernier - premier > TraceurPolylignes.NB_POINTS_MAX) {
+					gc.stroke();
+					gc.beginPath();
+					nbPointsChemin = 0;
+				}
+				gc.moveTo(points[2 * premier], points[2 * premier + 1]);
+				for (int point = premier + 1; point < dernier; point++)
+					gc.lineTo(points[2 * point], points[2 * point + 1]);
+				nbPointsChemin += dernier - premier;
+			}
+			gc.stroke();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package systeme.affichage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Un encodeur d'images PNG en couleurs RVB sur 8 bits, écrit sans dépendre d'aucune bibliothèque graphique.
+ * L'image est transmise ligne par ligne et compressée au fil de l'eau : seule une ligne et un bloc compressé
+ * sont conservés en mémoire, quelle que soit la hauteur de l'image.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class EncodeurPNG implements AutoCloseable {
+    /** La signature qui ouvre tout fichier PNG. */
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /** La taille des blocs de données compressées écrits dans le fichier. */
+    private static final int TAILLE_BLOC = 1 << 16;
+
+    /**
+     * Le flux dans lequel écrire l'image.
+     * La largeur et la hauteur de l'image.
+     * Le nombre de lignes déjà écrites.
+     */
+    private final DataOutputStream sortie;
+    private final int largeur, hauteur;
+    private int nbLignes;
+    /**
+     * Le compresseur des lignes de l'image.
+     * La ligne en cours d'encodage, précédée de son octet de filtre.
+     * Le bloc recevant les données compressées.
+     * Le calcul du code de contrôle des blocs.
+     */
+    private final Deflater compresseur;
+    private final byte[] ligne, bloc;
+    private final CRC32 controle;
+
+    /**
+     * Construit un encodeur et écrit l'en-tête de l'image.
+     * @param sortie le flux dans lequel écrire l'image
+     * @param largeur la largeur de l'image en pixels
+     * @param hauteur la hauteur de l'image en pixels
+     * @param niveauCompression le niveau de compression, de 0 (aucune) à 9 (maximale)
+     * @exception IOException si l'écriture échoue
+     */
+    public EncodeurPNG(OutputStream sortie, int largeur, int hauteur, int niveauCompression) throws IOException {
+        if (largeur <= 0 || hauteur <= 0 || largeur > (Integer.MAX_VALUE - 1) / 3)
+            throw new IllegalArgumentException("Dimensions d'image invalides : " + largeur + "x" + hauteur + ".");
+        this.sortie = new DataOutputStream(sortie);
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.compresseur = new Deflater(niveauCompression);
+        this.ligne = new byte[1 + 3 * largeur];
+        this.bloc = new byte[TAILLE_BLOC];
+        this.controle = new CRC32();
+        this.sortie.write(SIGNATURE);
+        byte[] entete = new byte[13];
+        ecritEntier(entete, 0, largeur);
+        ecritEntier(entete, 4, hauteur);
+        entete[8] = 8;      // 8 bits par composante
+        entete[9] = 2;      // couleurs RVB
+        ecritBloc("IHDR", entete, entete.length);
+    }
+
+    /**
+     * Écrit un entier sur quatre octets, de l'octet de poids fort à l'octet de poids faible.
+     * @param octets le tableau dans lequel écrire
+     * @param position la position du premier octet
+     * @param valeur l'entier à écrire
+     */
+    private static void ecritEntier(byte[] octets, int position, int valeur) {
+        octets[position] = (byte) (valeur >>> 24);
+        octets[position + 1] = (byte) (valeur >>> 16);
+        octets[position + 2] = (byte) (valeur >>> 8);
+        octets[position + 3] = (byte) valeur;
+    }
+
+    /**
+     * Écrit un bloc PNG : sa longueur, son type, ses données et leur code de contrôle.
+     * @param type le type du bloc, sur quatre caractères
+     * @param donnees les données du bloc
+     * @param longueur le nombre d'octets de données
+     * @exception IOException si l'écriture échoue
+     */
+    private void ecritBloc(String type, byte[] donnees, int longueur) throws IOException {
+        byte[] octetsType = type.getBytes(StandardCharsets.US_ASCII);
+        sortie.writeInt(longueur);
+        sortie.write(octetsType);
+        sortie.write(donnees, 0, longueur);
+        controle.reset();
+        controle.update(octetsType);
+        controle.update(donnees, 0, longueur);
+        sortie.writeInt((int) controle.getValue());
+    }
+
+    /**
+     * Encode la ligne suivante de l'image.
+     * @param pixels les pixels de la ligne, au format 0xRRGGBB
+     * @param debut la position du premier pixel de la ligne dans le tableau
+     * @exception IOException si l'écriture échoue
+     * @exception IllegalStateException si toutes les lignes de l'image ont déjà été écrites
+     */
+    public void ecritLigne(int[] pixels, int debut) throws IOException {
+        if (nbLignes == hauteur)
+            throw new IllegalStateException("Toutes les lignes de l'image ont déjà été écrites.");
+        // Le premier octet de la ligne indique qu'elle n'est pas filtrée.
+        ligne[0] = 0;
+        for (int colonne = 0, position = 1; colonne < largeur; colonne++) {
+            int pixel = pixels[debut + colonne];
+            ligne[position++] = (byte) (pixel >>> 16);
+            ligne[position++] = (byte) (pixel >>> 8);
+            ligne[position++] = (byte) pixel;
+        }
+        compresseur.setInput(ligne);
+        while (!compresseur.needsInput())
+            videCompresseur();
+        nbLignes++;
+    }
+
+    /**
+     * Écrit dans un bloc de données les octets disponibles en sortie du compresseur.
+     * @exception IOException si l'écriture échoue
+     */
+    private void videCompresseur() throws IOException {
+        int longueur = compresseur.deflate(bloc);
+        if (longueur > 0)
+            ecritBloc("IDAT", bloc, longueur);
+    }
+
+    /**
+     * Termine l'image une fois toutes ses lignes écrites. Le flux de sortie n'est pas fermé.
+     * @exception IOException si l'écriture échoue
+     * @exception IllegalStateException si des lignes de l'image n'ont pas été écrites
+     */
+    @Override
+    public void close() throws IOException {
+        if (nbLignes != hauteur) {
+            compresseur.end();
+            throw new IllegalStateException("Il manque " + (hauteur - nbLignes) + " lignes à l'image.");
+        }
+        compresseur.finish();
+        while (!compresseur.finished())
+            videCompresseur();
+        compresseur.end();
+        ecritBloc("IEND", bloc, 0);
+        sortie.flush();
+    }
+}
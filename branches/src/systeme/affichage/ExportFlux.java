@@ -0,0 +1,159 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import systeme.lindenmeyer.EcouteurTortue;
+
+/**
+ * Un export qui écrit dans un fichier, au fur et à mesure que la tortue les produit, les traits d'un dessin.
+ * Les octets sont accumulés dans un tampon direct de taille fixe écrit dans un {@link FileChannel} dès qu'il est plein :
+ * la mémoire utilisée est la même quel que soit le nombre de traits. L'en-tête du fichier, qui dépend de la boîte
+ * englobante ou du nombre de traits, est réservé au début de l'export et complété lors de sa fermeture.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public abstract class ExportFlux implements EcouteurTortue, AutoCloseable {
+    /** La taille du tampon d'écriture. */
+    private static final int TAILLE_TAMPON = 1 << 20;
+
+    /**
+     * Le fichier dans lequel écrire.
+     * Le tampon d'écriture.
+     */
+    private final FileChannel canal;
+    protected final ByteBuffer tampon;
+    /**
+     * Les bornes des traits exportés (la boîte est vide tant qu'aucun trait n'a été exporté).
+     * Le nombre de traits exportés.
+     */
+    private double xMin, yMin, xMax, yMax;
+    private long nbTraits;
+
+    /**
+     * Ouvre le fichier d'export, en le remplaçant s'il existe déjà.
+     * @param fichier le chemin du fichier
+     * @exception IOException si le fichier ne peut pas être ouvert
+     */
+    protected ExportFlux(Path fichier) throws IOException {
+        this.canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+        this.xMin = Double.POSITIVE_INFINITY;
+        this.yMin = Double.POSITIVE_INFINITY;
+        this.xMax = Double.NEGATIVE_INFINITY;
+        this.yMax = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Retourne le nombre de traits exportés.
+     * @return le nombre de traits exportés
+     */
+    public long getNbTraits() {
+        return this.nbTraits;
+    }
+    /**
+     * Retourne l'abscisse minimale des traits exportés.
+     * @return l'abscisse minimale des traits exportés
+     */
+    protected double getXMin() {
+        return this.xMin;
+    }
+    /**
+     * Retourne l'ordonnée minimale des traits exportés.
+     * @return l'ordonnée minimale des traits exportés
+     */
+    protected double getYMin() {
+        return this.yMin;
+    }
+    /**
+     * Retourne l'abscisse maximale des traits exportés.
+     * @return l'abscisse maximale des traits exportés
+     */
+    protected double getXMax() {
+        return this.xMax;
+    }
+    /**
+     * Retourne l'ordonnée maximale des traits exportés.
+     * @return l'ordonnée maximale des traits exportés
+     */
+    protected double getYMax() {
+        return this.yMax;
+    }
+
+    @Override
+    public final void trait(double x1, double y1, double x2, double y2) {
+        xMin = Math.min(xMin, Math.min(x1, x2));
+        yMin = Math.min(yMin, Math.min(y1, y2));
+        xMax = Math.max(xMax, Math.max(x1, x2));
+        yMax = Math.max(yMax, Math.max(y1, y2));
+        nbTraits++;
+        exporteTrait(x1, y1, x2, y2);
+    }
+
+    /**
+     * Écrit un trait dans le tampon.
+     * @param x1 l'abscisse de départ du trait
+     * @param y1 l'ordonnée de départ du trait
+     * @param x2 l'abscisse d'arrivée du trait
+     * @param y2 l'ordonnée d'arrivée du trait
+     */
+    protected abstract void exporteTrait(double x1, double y1, double x2, double y2);
+
+    /**
+     * Retourne l'en-tête définitif du fichier, qui remplace celui écrit au début de l'export.
+     * @return l'en-tête, de la même longueur que celui réservé au début du fichier
+     */
+    protected abstract ByteBuffer enteteDefinitif();
+
+    /**
+     * Écrit la fin du fichier dans le tampon, avant la fermeture de l'export.
+     */
+    protected abstract void termine();
+
+    /**
+     * Garantit que le tampon dispose de la place demandée, en écrivant son contenu dans le fichier si besoin.
+     * @param nbOctets le nombre d'octets qui vont être écrits dans le tampon
+     * @exception UncheckedIOException si l'écriture échoue
+     */
+    protected void reserve(int nbOctets) {
+        if (tampon.remaining() < nbOctets)
+            vide();
+    }
+
+    /**
+     * Écrit le contenu du tampon dans le fichier.
+     * @exception UncheckedIOException si l'écriture échoue
+     */
+    private void vide() {
+        try {
+            tampon.flip();
+            while (tampon.hasRemaining())
+                canal.write(tampon);
+            tampon.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Termine le fichier, complète son en-tête et le ferme.
+     * @exception IOException si l'écriture échoue
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            termine();
+            vide();
+            ByteBuffer entete = enteteDefinitif();
+            for (long position = 0; entete.hasRemaining(); )
+                position += canal.write(entete, position);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import systeme.lindenmeyer.EcouteurTortue3D;
+
+/**
+ * Un export qui écrit chaque branche d'un dessin en volume sous la forme d'un prisme à {@link #NB_COTES} côtés,
+ * au fur et à mesure que la {@link systeme.lindenmeyer.Tortue3D} les produit. Les sommets des deux anneaux de la branche
+ * en cours sont calculés dans un tableau réutilisé, puis écrits par le format du fichier : le maillage n'est jamais
+ * construit en mémoire, quel que soit le nombre de branches.
+ * Un dessin plan transmis comme tel est posé dans le plan z = 0, l'axe des ordonnées étant retourné pour que
+ * le dessin garde son sens, et ses traits reçoivent un rayon proportionnel à leur longueur.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public abstract class ExportMaillage extends ExportFlux implements EcouteurTortue3D {
+    /**
+     * Le nombre de côtés du prisme de chaque branche.
+     * Le rapport entre le rayon et la longueur d'un trait d'un dessin plan.
+     */
+    public static final int NB_COTES = 6;
+    private static final double RAYON_RELATIF_PLAN = 0.1;
+    /**
+     * Les cosinus et sinus de l'angle de chaque sommet d'un anneau.
+     * Les cosinus et sinus de l'angle du milieu de chaque côté.
+     */
+    private static final double[] COSINUS = new double[NB_COTES], SINUS = new double[NB_COTES];
+    private static final double[] COSINUS_MILIEUX = new double[NB_COTES], SINUS_MILIEUX = new double[NB_COTES];
+
+    static {
+        for (int cote = 0; cote < NB_COTES; cote++) {
+            COSINUS[cote] = Math.cos(2 * Math.PI * cote / NB_COTES);
+            SINUS[cote] = Math.sin(2 * Math.PI * cote / NB_COTES);
+            COSINUS_MILIEUX[cote] = Math.cos(2 * Math.PI * (cote + 0.5) / NB_COTES);
+            SINUS_MILIEUX[cote] = Math.sin(2 * Math.PI * (cote + 0.5) / NB_COTES);
+        }
+    }
+
+    /**
+     * Les coordonnées des sommets de la branche en cours : l'anneau de départ puis l'anneau d'arrivée, trois par sommet.
+     * Les coordonnées de la normale de chaque côté de la branche en cours, trois par côté.
+     * Le nombre de branches exportées.
+     */
+    protected final float[] sommets;
+    protected final float[] normales;
+    private long nbBranches;
+
+    /**
+     * Ouvre un export de maillage binaire, dont les valeurs sont écrites dans l'ordre petit-boutiste.
+     * @param fichier le chemin du fichier
+     * @exception IOException si le fichier ne peut pas être ouvert
+     */
+    protected ExportMaillage(Path fichier) throws IOException {
+        super(fichier);
+        tampon.order(ByteOrder.LITTLE_ENDIAN);
+        this.sommets = new float[2 * NB_COTES * 3];
+        this.normales = new float[NB_COTES * 3];
+    }
+
+    /**
+     * Retourne le nombre de branches exportées, y compris les traits d'un dessin plan.
+     * @return le nombre de branches exportées
+     */
+    @Override
+    public long getNbTraits() {
+        return this.nbBranches;
+    }
+
+    @Override
+    protected void exporteTrait(double x1, double y1, double x2, double y2) {
+        trait(x1, -y1, 0, x2, -y2, 0, RAYON_RELATIF_PLAN * Math.hypot(x2 - x1, y2 - y1));
+    }
+
+    @Override
+    public void trait(double x1, double y1, double z1, double x2, double y2, double z2, double rayon) {
+        double dx = x2 - x1, dy = y2 - y1, dz = z2 - z1;
+        double longueur = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (longueur == 0)
+            return;
+        dx /= longueur;
+        dy /= longueur;
+        dz /= longueur;
+        // Le premier axe de l'anneau est orthogonal à la branche et à l'axe du repère le moins aligné avec elle.
+        double ux, uy, uz;
+        if (Math.abs(dx) < 0.9) {
+            ux = 0;
+            uy = dz;
+            uz = -dy;
+        } else {
+            ux = -dz;
+            uy = 0;
+            uz = dx;
+        }
+        double norme = Math.sqrt(ux * ux + uy * uy + uz * uz);
+        ux /= norme;
+        uy /= norme;
+        uz /= norme;
+        double vx = dy * uz - dz * uy, vy = dz * ux - dx * uz, vz = dx * uy - dy * ux;
+        for (int cote = 0; cote < NB_COTES; cote++) {
+            double nx = COSINUS[cote] * ux + SINUS[cote] * vx;
+            double ny = COSINUS[cote] * uy + SINUS[cote] * vy;
+            double nz = COSINUS[cote] * uz + SINUS[cote] * vz;
+            int depart = 3 * cote, arrivee = 3 * (NB_COTES + cote);
+            sommets[depart] = (float) (x1 + rayon * nx);
+            sommets[depart + 1] = (float) (y1 + rayon * ny);
+            sommets[depart + 2] = (float) (z1 + rayon * nz);
+            sommets[arrivee] = (float) (x2 + rayon * nx);
+            sommets[arrivee + 1] = (float) (y2 + rayon * ny);
+            sommets[arrivee + 2] = (float) (z2 + rayon * nz);
+            normales[depart] = (float) (COSINUS_MILIEUX[cote] * ux + SINUS_MILIEUX[cote] * vx);
+            normales[depart + 1] = (float) (COSINUS_MILIEUX[cote] * uy + SINUS_MILIEUX[cote] * vy);
+            normales[depart + 2] = (float) (COSINUS_MILIEUX[cote] * uz + SINUS_MILIEUX[cote] * vz);
+        }
+        nbBranches++;
+        exporteBranche(nbBranches);
+    }
+
+    /**
+     * Écrit dans le tampon la branche dont les sommets et les normales viennent d'être calculés.
+     * Le côté k de la branche relie les sommets k et k+1 (modulo {@link #NB_COTES}) de l'anneau de départ
+     * aux mêmes sommets de l'anneau d'arrivée, qui suit l'anneau de départ dans {@link #sommets}.
+     * @param nbBranches le nombre de branches exportées, celle-ci comprise
+     * @exception IllegalStateException si le maillage dépasse la taille permise par le format
+     */
+    protected abstract void exporteBranche(long nbBranches);
+}
@@ -0,0 +1,78 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * L'export d'un dessin en volume au format PLY binaire petit-boutiste, écrit au fil de l'interprétation par la tortue.
+ * Le maillage est indexé : chaque branche ajoute les {@code 2 * NB_COTES} sommets de ses deux anneaux (flottants
+ * simple précision), puis chaque côté est une face à quatre sommets désignés par leurs indices (entiers).
+ * Les sommets sont écrits au fil de l'export ; les faces, qui doivent les suivre dans le fichier, ne dépendent que
+ * du nombre de branches et sont écrites à la fermeture. L'en-tête textuel réserve aux nombres de sommets et de faces
+ * une largeur fixe, complétée à la fermeture.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ExportPLY extends ExportMaillage {
+    /**
+     * L'en-tête du fichier, dont les nombres de sommets et de faces sont écrits sur une largeur fixe.
+     * La taille d'un sommet.
+     * La taille d'une face à quatre sommets.
+     */
+    private static final String ENTETE = "ply\nformat binary_little_endian 1.0\ncomment Systeme de Lindenmeyer\n"
+                                         + "element vertex %012d\nproperty float x\nproperty float y\nproperty float z\n"
+                                         + "element face %012d\nproperty list uchar int vertex_indices\nend_header\n";
+    public static final int TAILLE_SOMMET = 12;
+    public static final int TAILLE_FACE = 1 + 4 * 4;
+
+    /**
+     * Ouvre un export PLY.
+     * @param fichier le chemin du fichier à écrire
+     * @exception IOException si le fichier ne peut pas être ouvert
+     */
+    public ExportPLY(Path fichier) throws IOException {
+        super(fichier);
+        // L'en-tête est réservé et sera complété à la fermeture.
+        tampon.put(entete(0, 0));
+    }
+
+    /**
+     * Retourne l'en-tête du fichier.
+     * @param nbSommets le nombre de sommets
+     * @param nbFaces le nombre de faces
+     * @return l'en-tête, toujours de la même longueur
+     */
+    private static byte[] entete(long nbSommets, long nbFaces) {
+        return String.format(ENTETE, nbSommets, nbFaces).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    protected void exporteBranche(long nbBranches) {
+        if (nbBranches * 2 * NB_COTES > Integer.MAX_VALUE)
+            throw new IllegalStateException("Le maillage dépasse le nombre maximal de sommets indexés d'un fichier PLY.");
+        reserve(2 * NB_COTES * TAILLE_SOMMET);
+        for (int valeur = 0; valeur < sommets.length; valeur++)
+            tampon.putFloat(sommets[valeur]);
+    }
+
+    @Override
+    protected void termine() {
+        for (long branche = 0; branche < getNbTraits(); branche++) {
+            int premier = (int) (branche * 2 * NB_COTES);
+            reserve(NB_COTES * TAILLE_FACE);
+            for (int cote = 0; cote < NB_COTES; cote++) {
+                int suivant = (cote + 1) % NB_COTES;
+                // Les sommets de chaque face tournent dans le sens direct vus de l'extérieur de la branche.
+                tampon.put((byte) 4).putInt(premier + cote).putInt(premier + suivant)
+                      .putInt(premier + NB_COTES + suivant).putInt(premier + NB_COTES + cote);
+            }
+        }
+    }
+
+    @Override
+    protected ByteBuffer enteteDefinitif() {
+        return ByteBuffer.wrap(entete(getNbTraits() * 2 * NB_COTES, getNbTraits() * NB_COTES));
+    }
+}
@@ -0,0 +1,89 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * L'export d'un dessin en volume au format STL binaire, écrit au fil de l'interprétation par la tortue.
+ * Le fichier commence par un en-tête libre de 80 octets suivi du nombre de triangles (entier non signé de 32 bits),
+ * complété à la fermeture. Chaque côté d'une branche est formé de deux triangles de 50 octets : leur normale,
+ * leurs trois sommets (flottants simple précision) et deux octets d'attributs nuls.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ExportSTL extends ExportMaillage {
+    /**
+     * La taille de l'en-tête, nombre de triangles compris.
+     * La taille d'un triangle.
+     * Le nombre maximal de triangles d'un fichier.
+     * Le texte de l'en-tête, qui ne doit pas commencer par "solid" pour ne pas être pris pour un fichier STL textuel.
+     */
+    public static final int TAILLE_ENTETE = 84;
+    public static final int TAILLE_TRIANGLE = 50;
+    private static final long NB_TRIANGLES_MAX = 0xFFFFFFFFL;
+    private static final String TEXTE_ENTETE = "Systeme de Lindenmeyer, STL binaire";
+
+    /**
+     * Ouvre un export STL.
+     * @param fichier le chemin du fichier à écrire
+     * @exception IOException si le fichier ne peut pas être ouvert
+     */
+    public ExportSTL(Path fichier) throws IOException {
+        super(fichier);
+        // L'en-tête est réservé et sera complété à la fermeture.
+        tampon.put(new byte[TAILLE_ENTETE]);
+    }
+
+    @Override
+    protected void exporteBranche(long nbBranches) {
+        if (nbBranches * 2 * NB_COTES > NB_TRIANGLES_MAX)
+            throw new IllegalStateException("Le maillage dépasse le nombre maximal de triangles d'un fichier STL.");
+        reserve(2 * NB_COTES * TAILLE_TRIANGLE);
+        for (int cote = 0; cote < NB_COTES; cote++) {
+            int suivant = (cote + 1) % NB_COTES;
+            // Les sommets de chaque triangle tournent dans le sens direct vus de l'extérieur de la branche.
+            triangle(cote, cote, suivant, NB_COTES + suivant);
+            triangle(cote, cote, NB_COTES + suivant, NB_COTES + cote);
+        }
+    }
+
+    /**
+     * Écrit un triangle dans le tampon.
+     * @param cote le côté de la branche, qui donne la normale du triangle
+     * @param a le premier sommet du triangle
+     * @param b le deuxième sommet du triangle
+     * @param c le troisième sommet du triangle
+     */
+    private void triangle(int cote, int a, int b, int c) {
+        tampon.putFloat(normales[3 * cote]).putFloat(normales[3 * cote + 1]).putFloat(normales[3 * cote + 2]);
+        sommet(a);
+        sommet(b);
+        sommet(c);
+        tampon.putShort((short) 0);
+    }
+
+    /**
+     * Écrit un sommet de la branche en cours dans le tampon.
+     * @param sommet le numéro du sommet
+     */
+    private void sommet(int sommet) {
+        tampon.putFloat(sommets[3 * sommet]).putFloat(sommets[3 * sommet + 1]).putFloat(sommets[3 * sommet + 2]);
+    }
+
+    @Override
+    protected void termine() {
+    }
+
+    @Override
+    protected ByteBuffer enteteDefinitif() {
+        ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE).order(ByteOrder.LITTLE_ENDIAN);
+        entete.put(TEXTE_ENTETE.getBytes(StandardCharsets.US_ASCII));
+        entete.position(TAILLE_ENTETE - 4);
+        entete.putInt((int) (getNbTraits() * 2 * NB_COTES));
+        entete.rewind();
+        return entete;
+    }
+}
@@ -0,0 +1,167 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * L'export d'un dessin au format SVG, écrit au fil de l'interprétation par la tortue.
+ * Les traits reliés forment des polylignes, écrites comme sous-chemins d'éléments &lt;path&gt; de taille bornée ;
+ * les coordonnées sont écrites au centième, sans passer par des chaînes de caractères.
+ * La boîte englobante du dessin n'étant connue qu'à la fin, l'attribut viewBox est réservé dans l'en-tête puis complété.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ExportSVG extends ExportFlux {
+    /**
+     * Le nombre de points au-delà duquel un nouvel élément &lt;path&gt; est commencé.
+     * La place réservée dans l'en-tête pour les dimensions du dessin.
+     * La marge ajoutée autour du dessin, pour que les traits du bord ne soient pas coupés.
+     */
+    private static final int NB_POINTS_PAR_CHEMIN = 1 << 16;
+    private static final int TAILLE_DIMENSIONS = 200;
+    private static final double MARGE = 1;
+
+    /**
+     * Le début de l'en-tête, jusqu'aux dimensions du dessin.
+     * Le nombre de points de l'élément &lt;path&gt; en cours (0 si aucun n'est ouvert).
+     * Indique si le prochain trait prolonge la polyligne en cours.
+     * La position courante de la plume.
+     */
+    private final byte[] debutEntete;
+    private int nbPoints;
+    private boolean continu;
+    private double xPlume, yPlume;
+
+    /**
+     * Ouvre un export SVG.
+     * @param fichier le chemin du fichier à écrire
+     * @param couleur la couleur des traits, au format 0xRRGGBB
+     * @exception IOException si le fichier ne peut pas être ouvert
+     */
+    public ExportSVG(Path fichier, int couleur) throws IOException {
+        super(fichier);
+        this.debutEntete = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" ".getBytes(StandardCharsets.US_ASCII);
+        tampon.put(debutEntete);
+        for (int position = 0; position < TAILLE_DIMENSIONS; position++)
+            tampon.put((byte) ' ');
+        ecrit(String.format(">\n<g fill=\"none\" stroke=\"#%06x\" stroke-width=\"1\" stroke-linejoin=\"round\" stroke-linecap=\"round\">\n", couleur & 0xFFFFFF));
+    }
+
+    /**
+     * Écrit un texte ASCII dans le tampon.
+     * @param texte le texte à écrire
+     */
+    private void ecrit(String texte) {
+        reserve(texte.length());
+        for (int position = 0; position < texte.length(); position++)
+            tampon.put((byte) texte.charAt(position));
+    }
+
+    /**
+     * Écrit une coordonnée arrondie au centième, sans zéros inutiles.
+     * @param valeur la coordonnée à écrire
+     */
+    private void ecritNombre(double valeur) {
+        long centiemes = Math.round(valeur * 100);
+        if (centiemes < 0) {
+            tampon.put((byte) '-');
+            centiemes = -centiemes;
+        }
+        ecritEntier(centiemes / 100);
+        int decimales = (int) (centiemes % 100);
+        if (decimales != 0) {
+            tampon.put((byte) '.');
+            tampon.put((byte) ('0' + decimales / 10));
+            if (decimales % 10 != 0)
+                tampon.put((byte) ('0' + decimales % 10));
+        }
+    }
+
+    /**
+     * Écrit un entier positif en base dix.
+     * @param valeur l'entier à écrire
+     */
+    private void ecritEntier(long valeur) {
+        if (valeur >= 10)
+            ecritEntier(valeur / 10);
+        tampon.put((byte) ('0' + valeur % 10));
+    }
+
+    @Override
+    protected void exporteTrait(double x1, double y1, double x2, double y2) {
+        // Une coordonnée occupe au plus 24 octets : un point et son séparateur tiennent dans 64 octets.
+        reserve(2 * 64 + 16);
+        if (nbPoints >= NB_POINTS_PAR_CHEMIN)
+            fermeChemin();
+        if (!continu || x1 != xPlume || y1 != yPlume) {
+            if (nbPoints == 0)
+                ecrit("<path d=\"");
+            else
+                tampon.put((byte) ' ');
+            tampon.put((byte) 'M');
+            ecritNombre(x1);
+            tampon.put((byte) ',');
+            ecritNombre(y1);
+            tampon.put((byte) 'L');
+            nbPoints++;
+            continu = true;
+        } else
+            tampon.put((byte) ' ');
+        ecritNombre(x2);
+        tampon.put((byte) ',');
+        ecritNombre(y2);
+        nbPoints++;
+        xPlume = x2;
+        yPlume = y2;
+    }
+
+    @Override
+    public void saut(double x1, double y1, double x2, double y2) {
+        continu = false;
+    }
+
+    @Override
+    public void depile(double x, double y) {
+        continu = false;
+    }
+
+    /**
+     * Ferme l'élément &lt;path&gt; en cours, s'il y en a un.
+     */
+    private void fermeChemin() {
+        if (nbPoints > 0)
+            ecrit("\"/>\n");
+        nbPoints = 0;
+        continu = false;
+    }
+
+    @Override
+    protected void termine() {
+        fermeChemin();
+        ecrit("</g>\n</svg>\n");
+    }
+
+    @Override
+    protected ByteBuffer enteteDefinitif() {
+        double x = 0, y = 0, largeur = 0, hauteur = 0;
+        if (getNbTraits() > 0) {
+            x = getXMin() - MARGE;
+            y = getYMin() - MARGE;
+            largeur = getXMax() - getXMin() + 2 * MARGE;
+            hauteur = getYMax() - getYMin() + 2 * MARGE;
+        }
+        String dimensions = String.format(Locale.ROOT, "width=\"%.2f\" height=\"%.2f\" viewBox=\"%.2f %.2f %.2f %.2f\"", largeur, hauteur, x, y, largeur, hauteur);
+        if (dimensions.length() > TAILLE_DIMENSIONS)
+            throw new IllegalStateException("Les dimensions du dessin dépassent la place réservée dans l'en-tête.");
+        ByteBuffer entete = ByteBuffer.allocate(debutEntete.length + TAILLE_DIMENSIONS);
+        entete.put(debutEntete);
+        entete.put(dimensions.getBytes(StandardCharsets.US_ASCII));
+        while (entete.hasRemaining())
+            entete.put((byte) ' ');
+        entete.flip();
+        return entete;
+    }
+}
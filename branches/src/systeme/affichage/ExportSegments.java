@@ -0,0 +1,60 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * L'export d'un dessin dans un format binaire compact, écrit au fil de l'interprétation par la tortue.
+ * Le fichier commence par un en-tête de 32 octets : la signature "LSEG", la version du format (entier),
+ * le nombre de traits (entier long) puis la boîte englobante xMin, yMin, xMax, yMax (flottants).
+ * Chaque trait occupe ensuite 16 octets : x1, y1, x2, y2 en flottants simple précision.
+ * Toutes les valeurs sont écrites dans l'ordre petit-boutiste.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ExportSegments extends ExportFlux {
+    /**
+     * La signature qui ouvre le fichier.
+     * La version du format.
+     * La taille de l'en-tête.
+     * La taille d'un trait.
+     */
+    public static final int SIGNATURE = 'L' | 'S' << 8 | 'E' << 16 | 'G' << 24;
+    public static final int VERSION = 1;
+    public static final int TAILLE_ENTETE = 32;
+    public static final int TAILLE_TRAIT = 16;
+
+    /**
+     * Ouvre un export binaire.
+     * @param fichier le chemin du fichier à écrire
+     * @exception IOException si le fichier ne peut pas être ouvert
+     */
+    public ExportSegments(Path fichier) throws IOException {
+        super(fichier);
+        tampon.order(ByteOrder.LITTLE_ENDIAN);
+        // L'en-tête est réservé et sera complété à la fermeture.
+        tampon.put(new byte[TAILLE_ENTETE]);
+    }
+
+    @Override
+    protected void exporteTrait(double x1, double y1, double x2, double y2) {
+        reserve(TAILLE_TRAIT);
+        tampon.putFloat((float) x1).putFloat((float) y1).putFloat((float) x2).putFloat((float) y2);
+    }
+
+    @Override
+    protected void termine() {
+    }
+
+    @Override
+    protected ByteBuffer enteteDefinitif() {
+        ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE).order(ByteOrder.LITTLE_ENDIAN);
+        entete.putInt(SIGNATURE).putInt(VERSION).putLong(getNbTraits());
+        if (getNbTraits() > 0)
+            entete.putFloat((float) getXMin()).putFloat((float) getYMin()).putFloat((float) getXMax()).putFloat((float) getYMax());
+        entete.rewind();
+        return entete;
+    }
+}
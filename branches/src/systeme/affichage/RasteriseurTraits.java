@@ -0,0 +1,135 @@
+package systeme.affichage;
+
+import java.util.Arrays;
+import systeme.lindenmeyer.EcouteurTortue;
+
+/**
+ * Un écouteur de tortue qui trace les traits dans une image en mémoire, sans affichage ni bibliothèque graphique.
+ * Les coordonnées de la tortue sont ramenées à celles de l'image par une mise à l'échelle suivie d'une translation ;
+ * chaque trait est découpé au bord de l'image puis tracé pixel par pixel, avec une épaisseur d'un pixel.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class RasteriseurTraits implements EcouteurTortue {
+    /**
+     * Les pixels de l'image, ligne par ligne, au format 0xRRGGBB.
+     * La largeur et la hauteur de l'image.
+     * La couleur des traits.
+     */
+    private final int[] pixels;
+    private final int largeur, hauteur;
+    private final int couleur;
+    /** La mise à l'échelle et la translation qui transforment les coordonnées de la tortue en coordonnées de l'image. */
+    private double echelle, decalageX, decalageY;
+    /** L'intervalle paramétrique du trait en cours de découpage, réutilisé d'un trait à l'autre. */
+    private final double[] debutFin = new double[2];
+
+    /**
+     * Construit une image remplie de la couleur de fond.
+     * @param largeur la largeur de l'image en pixels
+     * @param hauteur la hauteur de l'image en pixels
+     * @param fond la couleur de fond, au format 0xRRGGBB
+     * @param couleur la couleur des traits, au format 0xRRGGBB
+     */
+    public RasteriseurTraits(int largeur, int hauteur, int fond, int couleur) {
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.pixels = new int[Math.multiplyExact(largeur, hauteur)];
+        Arrays.fill(pixels, fond);
+        this.couleur = couleur;
+        this.echelle = 1;
+    }
+
+    /**
+     * Définit la transformation des coordonnées de la tortue : un point (x, y) est tracé en (x * echelle + decalageX, y * echelle + decalageY).
+     * @param echelle la mise à l'échelle
+     * @param decalageX la translation horizontale
+     * @param decalageY la translation verticale
+     */
+    public void setTransformation(double echelle, double decalageX, double decalageY) {
+        this.echelle = echelle;
+        this.decalageX = decalageX;
+        this.decalageY = decalageY;
+    }
+
+    /**
+     * Retourne les pixels de l'image.
+     * @return les pixels de l'image, ligne par ligne, au format 0xRRGGBB
+     */
+    public int[] getPixels() {
+        return this.pixels;
+    }
+    /**
+     * Retourne la largeur de l'image.
+     * @return la largeur de l'image en pixels
+     */
+    public int getLargeur() {
+        return this.largeur;
+    }
+    /**
+     * Retourne la hauteur de l'image.
+     * @return la hauteur de l'image en pixels
+     */
+    public int getHauteur() {
+        return this.hauteur;
+    }
+
+    @Override
+    public void trait(double x1, double y1, double x2, double y2) {
+        double ax = x1 * echelle + decalageX, ay = y1 * echelle + decalageY;
+        double bx = x2 * echelle + decalageX, by = y2 * echelle + decalageY;
+        // Découpage de Liang-Barsky : on ne garde que la partie du trait comprise dans l'image.
+        double dx = bx - ax, dy = by - ay;
+        debutFin[0] = 0;
+        debutFin[1] = 1;
+        if (!decoupe(-dx, ax, debutFin) || !decoupe(dx, largeur - 1 - ax, debutFin)
+                || !decoupe(-dy, ay, debutFin) || !decoupe(dy, hauteur - 1 - ay, debutFin))
+            return;
+        trace(ax + debutFin[0] * dx, ay + debutFin[0] * dy, ax + debutFin[1] * dx, ay + debutFin[1] * dy);
+    }
+
+    /**
+     * Restreint l'intervalle paramétrique d'un trait au demi-plan p * t <= q (une étape du découpage de Liang-Barsky,
+     * partagée avec {@link RasteriseurTuiles}).
+     * @param p le coefficient du paramètre
+     * @param q la borne
+     * @param debutFin l'intervalle [début, fin] du paramètre, modifié sur place
+     * @return false si le trait est entièrement hors du demi-plan
+     */
+    static boolean decoupe(double p, double q, double[] debutFin) {
+        if (p == 0)
+            return q >= 0;
+        double t = q / p;
+        if (p < 0) {
+            if (t > debutFin[1])
+                return false;
+            debutFin[0] = Math.max(debutFin[0], t);
+        } else {
+            if (t < debutFin[0])
+                return false;
+            debutFin[1] = Math.min(debutFin[1], t);
+        }
+        return true;
+    }
+
+    /**
+     * Trace un trait entièrement compris dans l'image en avançant d'un pixel à la fois selon son axe principal.
+     * @param ax l'abscisse de départ
+     * @param ay l'ordonnée de départ
+     * @param bx l'abscisse d'arrivée
+     * @param by l'ordonnée d'arrivée
+     */
+    private void trace(double ax, double ay, double bx, double by) {
+        int nbPas = (int) Math.ceil(Math.max(Math.abs(bx - ax), Math.abs(by - ay)));
+        double pasX = nbPas == 0 ? 0 : (bx - ax) / nbPas;
+        double pasY = nbPas == 0 ? 0 : (by - ay) / nbPas;
+        double x = ax + 0.5, y = ay + 0.5;
+        for (int pas = 0; pas <= nbPas; pas++) {
+            int colonne = (int) x, rangee = (int) y;
+            if (colonne < largeur && rangee < hauteur)
+                pixels[rangee * largeur + colonne] = couleur;
+            x += pasX;
+            y += pasY;
+        }
+    }
+}
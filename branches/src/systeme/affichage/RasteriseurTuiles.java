@@ -0,0 +1,346 @@
+package systeme.affichage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import systeme.lindenmeyer.EcouteurTortue;
+
+/**
+ * Un écouteur de tortue qui trace les traits dans une image de très grande taille, découpée en tuiles carrées.
+ * Chaque trait est rangé dans les tuiles qu'il traverse ; dès qu'une tuile a reçu un lot de traits, ce lot est tracé
+ * par l'un des threads de tracé pendant que la tortue continue. Les pixels des tuiles (un octet par pixel, indiquant
+ * s'il est couvert par un trait) sont rangés dans un fichier temporaire projeté en mémoire : l'image n'occupe pas le tas
+ * et sa taille n'est limitée que par le disque. L'image est enfin écrite au format PNG ligne par ligne.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class RasteriseurTuiles implements EcouteurTortue, AutoCloseable {
+    /**
+     * La largeur et la hauteur d'une tuile, en pixels.
+     * Le nombre de traits d'un lot.
+     * Le nombre de lots en attente de tracé par thread, au-delà duquel la tortue attend.
+     */
+    private static final int TAILLE_TUILE = 1 << 10;
+    private static final int NB_TRAITS_LOT = 1 << 10;
+    private static final int NB_LOTS_PAR_THREAD = 4;
+
+    /**
+     * La largeur et la hauteur de l'image.
+     * Le nombre de colonnes et de lignes de tuiles.
+     * La couleur de fond et la couleur des traits.
+     */
+    private final int largeur, hauteur;
+    private final int nbColonnes, nbLignes;
+    private final int fond, couleur;
+    /**
+     * Le fichier temporaire contenant les pixels des tuiles, et son canal.
+     * Les tuiles de l'image, ligne après ligne.
+     * Les threads de tracé.
+     * Les lots qui peuvent encore être confiés aux threads de tracé avant de devoir attendre.
+     */
+    private final Path fichier;
+    private final FileChannel canal;
+    private final Tuile[] tuiles;
+    private final ExecutorService traceurs;
+    private final Semaphore lotsDisponibles;
+    /** La première erreur survenue dans un thread de tracé (null si aucune). */
+    private volatile Throwable erreur;
+    /** La mise à l'échelle et la translation qui transforment les coordonnées de la tortue en coordonnées de l'image. */
+    private double echelle, decalageX, decalageY;
+    /** Indique si tous les traits ont été tracés. */
+    private boolean termine;
+
+    /**
+     * Une tuile de l'image : ses pixels et le lot de traits en attente de tracé.
+     */
+    private class Tuile {
+        /**
+         * La position de la tuile dans le fichier des pixels.
+         * L'abscisse et l'ordonnée du coin supérieur gauche de la tuile dans l'image.
+         */
+        private final long position;
+        private final int x, y;
+        /**
+         * Les pixels de la tuile, projetés en mémoire lors du premier tracé (null tant qu'aucun trait n'y a été tracé).
+         * Les traits en attente, quatre coordonnées par trait dans le repère de l'image (null si aucun).
+         * Le nombre de traits en attente.
+         */
+        private MappedByteBuffer pixels;
+        private float[] lot;
+        private int nbTraits;
+
+        /**
+         * Construit une tuile vide.
+         * @param colonne la colonne de la tuile
+         * @param ligne la ligne de la tuile
+         */
+        private Tuile(int colonne, int ligne) {
+            this.position = ((long) ligne * nbColonnes + colonne) * TAILLE_TUILE * TAILLE_TUILE;
+            this.x = colonne * TAILLE_TUILE;
+            this.y = ligne * TAILLE_TUILE;
+        }
+
+        /**
+         * Ajoute un trait au lot de la tuile, et confie le lot aux threads de tracé s'il est plein.
+         * @param ax l'abscisse de départ dans l'image
+         * @param ay l'ordonnée de départ dans l'image
+         * @param bx l'abscisse d'arrivée dans l'image
+         * @param by l'ordonnée d'arrivée dans l'image
+         */
+        private void ajoute(double ax, double ay, double bx, double by) {
+            if (lot == null)
+                lot = new float[4 * NB_TRAITS_LOT];
+            int indice = 4 * nbTraits++;
+            lot[indice] = (float) ax;
+            lot[indice + 1] = (float) ay;
+            lot[indice + 2] = (float) bx;
+            lot[indice + 3] = (float) by;
+            if (nbTraits == NB_TRAITS_LOT)
+                confie();
+        }
+
+        /**
+         * Confie le lot en attente aux threads de tracé, en attendant si trop de lots sont déjà en attente.
+         */
+        private void confie() {
+            if (nbTraits == 0)
+                return;
+            lotsDisponibles.acquireUninterruptibly();
+            float[] lotConfie = lot;
+            int nbTraitsConfies = nbTraits;
+            lot = null;
+            nbTraits = 0;
+            traceurs.execute(() -> {
+                try {
+                    // Deux lots d'une même tuile ne sont jamais tracés en même temps.
+                    synchronized (this) {
+                        trace(lotConfie, nbTraitsConfies);
+                    }
+                } catch (Throwable e) {
+                    if (erreur == null)
+                        erreur = e;
+                } finally {
+                    lotsDisponibles.release();
+                }
+            });
+        }
+
+        /**
+         * Trace un lot de traits dans la tuile. Appelée par un thread de tracé.
+         * @param traits les traits, quatre coordonnées par trait
+         * @param nbTraitsLot le nombre de traits
+         * @exception IOException si les pixels de la tuile ne peuvent pas être projetés en mémoire
+         */
+        private void trace(float[] traits, int nbTraitsLot) throws IOException {
+            if (pixels == null)
+                pixels = canal.map(FileChannel.MapMode.READ_WRITE, position, (long) TAILLE_TUILE * TAILLE_TUILE);
+            double[] debutFin = new double[2];
+            for (int numero = 0; numero < nbTraitsLot; numero++) {
+                // Les coordonnées sont ramenées dans la tuile, dont les pixels couvrent [-0.5, TAILLE_TUILE - 0.5[.
+                double ax = traits[4 * numero] - x, ay = traits[4 * numero + 1] - y;
+                double bx = traits[4 * numero + 2] - x, by = traits[4 * numero + 3] - y;
+                double dx = bx - ax, dy = by - ay;
+                debutFin[0] = 0;
+                debutFin[1] = 1;
+                if (!RasteriseurTraits.decoupe(-dx, ax + 0.5, debutFin) || !RasteriseurTraits.decoupe(dx, TAILLE_TUILE - 0.5 - ax, debutFin)
+                        || !RasteriseurTraits.decoupe(-dy, ay + 0.5, debutFin) || !RasteriseurTraits.decoupe(dy, TAILLE_TUILE - 0.5 - ay, debutFin))
+                    continue;
+                traceDecoupe(ax + debutFin[0] * dx, ay + debutFin[0] * dy, ax + debutFin[1] * dx, ay + debutFin[1] * dy);
+            }
+        }
+
+        /**
+         * Trace un trait découpé au bord de la tuile en avançant d'un pixel à la fois selon son axe principal.
+         * @param ax l'abscisse de départ dans la tuile
+         * @param ay l'ordonnée de départ dans la tuile
+         * @param bx l'abscisse d'arrivée dans la tuile
+         * @param by l'ordonnée d'arrivée dans la tuile
+         */
+        private void traceDecoupe(double ax, double ay, double bx, double by) {
+            int nbPas = (int) Math.ceil(Math.max(Math.abs(bx - ax), Math.abs(by - ay)));
+            double pasX = nbPas == 0 ? 0 : (bx - ax) / nbPas;
+            double pasY = nbPas == 0 ? 0 : (by - ay) / nbPas;
+            double px = ax + 0.5, py = ay + 0.5;
+            for (int pas = 0; pas <= nbPas; pas++) {
+                int colonne = (int) Math.floor(px), rangee = (int) Math.floor(py);
+                if (colonne >= 0 && colonne < TAILLE_TUILE && rangee >= 0 && rangee < TAILLE_TUILE)
+                    pixels.put(rangee * TAILLE_TUILE + colonne, (byte) 1);
+                px += pasX;
+                py += pasY;
+            }
+        }
+    }
+
+    /**
+     * Construit une image vide, dont les pixels sont rangés dans un fichier temporaire.
+     * @param largeur la largeur de l'image en pixels
+     * @param hauteur la hauteur de l'image en pixels
+     * @param fond la couleur de fond, au format 0xRRGGBB
+     * @param couleur la couleur des traits, au format 0xRRGGBB
+     * @param nbThreads le nombre de threads de tracé
+     * @exception IOException si le fichier temporaire ne peut pas être créé
+     * @exception IllegalArgumentException si les dimensions de l'image ou le nombre de threads sont invalides
+     */
+    public RasteriseurTuiles(int largeur, int hauteur, int fond, int couleur, int nbThreads) throws IOException {
+        if (largeur <= 0 || hauteur <= 0 || nbThreads <= 0)
+            throw new IllegalArgumentException("Dimensions d'image ou nombre de threads invalides : " + largeur + "x" + hauteur + ", " + nbThreads + " threads.");
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.nbColonnes = (largeur + TAILLE_TUILE - 1) / TAILLE_TUILE;
+        this.nbLignes = (hauteur + TAILLE_TUILE - 1) / TAILLE_TUILE;
+        this.fond = fond;
+        this.couleur = couleur;
+        this.echelle = 1;
+        this.fichier = Files.createTempFile("lsysteme-tuiles", ".pixels");
+        // Le fichier est creux : seules les tuiles effectivement tracées occupent le disque.
+        this.canal = FileChannel.open(fichier, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        canal.write(ByteBuffer.allocate(1), (long) nbColonnes * nbLignes * TAILLE_TUILE * TAILLE_TUILE - 1);
+        this.tuiles = new Tuile[Math.multiplyExact(nbColonnes, nbLignes)];
+        for (int ligne = 0; ligne < nbLignes; ligne++)
+            for (int colonne = 0; colonne < nbColonnes; colonne++)
+                tuiles[ligne * nbColonnes + colonne] = new Tuile(colonne, ligne);
+        this.traceurs = Executors.newFixedThreadPool(nbThreads, tache -> {
+            Thread thread = new Thread(tache, "Tracé des tuiles");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lotsDisponibles = new Semaphore(NB_LOTS_PAR_THREAD * nbThreads);
+    }
+
+    /**
+     * Définit la transformation des coordonnées de la tortue : un point (x, y) est tracé en (x * echelle + decalageX, y * echelle + decalageY).
+     * @param echelle la mise à l'échelle
+     * @param decalageX la translation horizontale
+     * @param decalageY la translation verticale
+     */
+    public void setTransformation(double echelle, double decalageX, double decalageY) {
+        this.echelle = echelle;
+        this.decalageX = decalageX;
+        this.decalageY = decalageY;
+    }
+
+    /**
+     * Retourne la largeur de l'image.
+     * @return la largeur de l'image en pixels
+     */
+    public int getLargeur() {
+        return this.largeur;
+    }
+    /**
+     * Retourne la hauteur de l'image.
+     * @return la hauteur de l'image en pixels
+     */
+    public int getHauteur() {
+        return this.hauteur;
+    }
+
+    /**
+     * Range un trait dans les tuiles qu'il traverse.
+     * @exception IllegalStateException si tous les traits ont déjà été tracés
+     */
+    @Override
+    public void trait(double x1, double y1, double x2, double y2) {
+        if (termine)
+            throw new IllegalStateException("L'image est terminée, aucun trait ne peut plus y être tracé.");
+        double ax = x1 * echelle + decalageX, ay = y1 * echelle + decalageY;
+        double bx = x2 * echelle + decalageX, by = y2 * echelle + decalageY;
+        int colonneMin = Math.max(0, colonne(Math.min(ax, bx))), colonneMax = Math.min(nbColonnes - 1, colonne(Math.max(ax, bx)));
+        int ligneMin = Math.max(0, ligne(Math.min(ay, by))), ligneMax = Math.min(nbLignes - 1, ligne(Math.max(ay, by)));
+        if (colonneMin > colonneMax || ligneMin > ligneMax)
+            return;
+        for (int ligne = ligneMin; ligne <= ligneMax; ligne++)
+            for (int colonne = colonneMin; colonne <= colonneMax; colonne++)
+                tuiles[ligne * nbColonnes + colonne].ajoute(ax, ay, bx, by);
+    }
+
+    /**
+     * Retourne la colonne de tuiles contenant une abscisse de l'image, ramenée dans l'image.
+     * @param x l'abscisse
+     * @return la colonne de tuiles, -1 ou nbColonnes si l'abscisse est hors de l'image
+     */
+    private int colonne(double x) {
+        double position = Math.floor((x + 0.5) / TAILLE_TUILE);
+        return (int) Math.max(-1, Math.min(nbColonnes, position));
+    }
+
+    /**
+     * Retourne la ligne de tuiles contenant une ordonnée de l'image, ramenée dans l'image.
+     * @param y l'ordonnée
+     * @return la ligne de tuiles, -1 ou nbLignes si l'ordonnée est hors de l'image
+     */
+    private int ligne(double y) {
+        double position = Math.floor((y + 0.5) / TAILLE_TUILE);
+        return (int) Math.max(-1, Math.min(nbLignes, position));
+    }
+
+    /**
+     * Trace les derniers lots et attend que tous les traits aient été tracés.
+     * @exception IllegalStateException si le tracé d'une tuile a échoué
+     * @exception InterruptedException si l'attente est interrompue
+     */
+    public void termine() throws InterruptedException {
+        if (termine)
+            return;
+        for (Tuile tuile : tuiles)
+            tuile.confie();
+        traceurs.shutdown();
+        traceurs.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        termine = true;
+        if (erreur != null)
+            throw new IllegalStateException("Le tracé d'une tuile a échoué : " + erreur.getMessage(), erreur);
+    }
+
+    /**
+     * Écrit l'image au format PNG, ligne par ligne. Les traits doivent avoir été tracés par {@link #termine()}.
+     * @param sortie le flux dans lequel écrire l'image, qui n'est pas fermé
+     * @param niveauCompression le niveau de compression, de 0 (aucune) à 9 (maximale)
+     * @exception IOException si l'écriture échoue
+     * @exception IllegalStateException si les traits n'ont pas encore été tracés
+     */
+    public void ecritPNG(OutputStream sortie, int niveauCompression) throws IOException {
+        if (!termine)
+            throw new IllegalStateException("Les traits doivent être tracés avant d'écrire l'image.");
+        int[] ligne = new int[largeur];
+        byte[] rangeeTuile = new byte[TAILLE_TUILE];
+        try (EncodeurPNG png = new EncodeurPNG(sortie, largeur, hauteur, niveauCompression)) {
+            for (int rangee = 0; rangee < hauteur; rangee++) {
+                int ligneTuiles = rangee / TAILLE_TUILE, rangeeDansTuile = rangee % TAILLE_TUILE;
+                for (int colonne = 0; colonne < nbColonnes; colonne++) {
+                    Tuile tuile = tuiles[ligneTuiles * nbColonnes + colonne];
+                    int debut = colonne * TAILLE_TUILE, nbPixels = Math.min(TAILLE_TUILE, largeur - debut);
+                    if (tuile.pixels == null) {
+                        Arrays.fill(ligne, debut, debut + nbPixels, fond);
+                        continue;
+                    }
+                    ByteBuffer pixels = tuile.pixels.duplicate();
+                    pixels.position(rangeeDansTuile * TAILLE_TUILE);
+                    pixels.get(rangeeTuile, 0, nbPixels);
+                    for (int pixel = 0; pixel < nbPixels; pixel++)
+                        ligne[debut + pixel] = rangeeTuile[pixel] != 0 ? couleur : fond;
+                }
+                png.ecritLigne(ligne, 0);
+            }
+        }
+    }
+
+    /**
+     * Arrête les threads de tracé et supprime le fichier temporaire des pixels.
+     * @exception IOException si le fichier ne peut pas être fermé
+     */
+    @Override
+    public void close() throws IOException {
+        traceurs.shutdownNow();
+        canal.close();
+        Files.deleteIfExists(fichier);
+    }
+}
@@ -0,0 +1,276 @@
+package systeme.affichage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import systeme.lindenmeyer.*;
+
+/**
+ * Le rendu en ligne de commande d'une série de systèmes de Lindenmeyer en images PNG, sans fenêtre ni affichage.
+ * Les systèmes sont décrits dans un manifeste, à raison d'un système par ligne :
+ * <pre>nom;type;axiomes;règles;angle;itérations;longueur;couleur[;graine ou symboles ignorés]</pre>
+ * où le type est "deterministe", "stochastique", "contextuel" ou "parametrique" et la couleur un nom ("marron", "vert", "bleu",
+ * "rouge", "noir") ou un code "#RRVVBB". La graine, facultative, fixe les choix d'un système stochastique pour rendre toujours
+ * la même image. Les règles d'un système contextuel s'écrivent "G&lt;S&gt;D=production" ; son dernier champ, facultatif,
+ * donne les symboles ignorés dans la recherche des contextes.
+ * Les lignes vides et celles qui commencent par '#' sont ignorées.
+ * Chaque système est dérivé, mesuré pour être cadré dans l'image, puis tracé et écrit dans le dossier de sortie ;
+ * les systèmes sont rendus en parallèle sur tous les processeurs et la durée de chaque étape est affichée.
+ * Les très grandes images sont tracées par tuiles ({@link RasteriseurTuiles}) : leur taille n'est alors limitée que par le disque.
+ * <pre>java systeme.affichage.RenduLot manifeste dossier [largeur hauteur]</pre>
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class RenduLot {
+	/**
+	 * La taille par défaut des images, celle du canvas de la fenêtre.
+	 * La marge laissée autour du dessin lorsqu'il doit être réduit pour tenir dans l'image.
+	 * La couleur de fond des images.
+	 * Le niveau de compression des images.
+	 */
+	private static final int TAILLE_PAR_DEFAUT = 2000;
+	private static final int MARGE = 10;
+	private static final int FOND = 0xFFFFFF;
+	private static final int NIVEAU_COMPRESSION = 6;
+	/** Le nombre de pixels au-delà duquel une image est tracée par tuiles, hors du tas. */
+	private static final long NB_PIXELS_TUILES = 1L << 24;
+
+	/**
+	 * Un système à rendre, tel que décrit par une ligne du manifeste.
+	 */
+	private static class Travail {
+		/**
+		 * Le nom du système, qui donne son nom à l'image.
+		 * Le système à rendre.
+		 * La couleur des traits, au format 0xRRGGBB.
+		 */
+		private final String nom;
+		private final SystemeLindenmeyer systeme;
+		private final int couleur;
+
+		/**
+		 * Construit un système à rendre.
+		 * @param nom le nom du système
+		 * @param systeme le système à rendre
+		 * @param couleur la couleur des traits
+		 */
+		private Travail(String nom, SystemeLindenmeyer systeme, int couleur) {
+			this.nom = nom;
+			this.systeme = systeme;
+			this.couleur = couleur;
+		}
+	}
+
+	/**
+	 * Lit un manifeste de systèmes à rendre.
+	 * @param manifeste le chemin du manifeste
+	 * @return les systèmes à rendre, dans l'ordre du manifeste
+	 * @exception IOException si le manifeste ne peut pas être lu
+	 * @exception IllegalArgumentException si une ligne du manifeste est invalide
+	 */
+	private static List<Travail> litManifeste(Path manifeste) throws IOException {
+		List<Travail> travaux = new ArrayList<>();
+		List<String> lignes = Files.readAllLines(manifeste, StandardCharsets.UTF_8);
+		for (int numero = 0; numero < lignes.size(); numero++) {
+			String ligne = lignes.get(numero).trim();
+			if (ligne.isEmpty() || ligne.startsWith("#"))
+				continue;
+			try {
+				travaux.add(litTravail(ligne));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Ligne " + (numero + 1) + " du manifeste : " + e.getMessage(), e);
+			}
+		}
+		return travaux;
+	}
+
+	/**
+	 * Lit une ligne du manifeste.
+	 * @param ligne la ligne à lire
+	 * @return le système à rendre
+	 * @exception IllegalArgumentException si la ligne est invalide
+	 */
+	private static Travail litTravail(String ligne) {
+		String[] champs = ligne.split(";", -1);
+		if (champs.length != 8 && champs.length != 9)
+			throw new IllegalArgumentException("8 ou 9 champs attendus, " + champs.length + " trouvés.");
+		String nom = champs[0].trim();
+		String axiomes = champs[2].trim(), regles = champs[3].trim();
+		double angle = Double.parseDouble(champs[4].trim());
+		int iterations = Integer.parseInt(champs[5].trim());
+		int longueur = Integer.parseInt(champs[6].trim());
+		if (nom.isEmpty() || iterations < 0 || longueur <= 0)
+			throw new IllegalArgumentException("L'un des paramètres contient une erreur.");
+		SystemeLindenmeyer systeme;
+		switch (champs[1].trim().toLowerCase()) {
+			case "deterministe":
+				systeme = new SystemeDeterministe(axiomes, regles, angle, iterations, longueur);
+				break;
+			case "stochastique":
+				if (champs.length == 9)
+					systeme = new SystemeStochastique(axiomes, regles, angle, iterations, longueur, Long.parseLong(champs[8].trim()));
+				else
+					systeme = new SystemeStochastique(axiomes, regles, angle, iterations, longueur);
+				break;
+			case "contextuel":
+				systeme = new SystemeContextuel(axiomes, regles, angle, iterations, longueur, litReglesContextuelles(regles), champs.length == 9 ? champs[8].trim() : "");
+				break;
+			case "parametrique":
+				systeme = new SystemeParametrique(axiomes, regles, angle, iterations, longueur);
+				break;
+			default:
+				throw new IllegalArgumentException("Type de système inconnu : \"" + champs[1].trim() + "\".");
+		}
+		if (champs.length == 9 && !(systeme instanceof SystemeStochastique) && !(systeme instanceof SystemeContextuel))
+			throw new IllegalArgumentException("Le neuvième champ n'est accepté que par un système stochastique (sa graine) ou contextuel (ses symboles ignorés).");
+		return new Travail(nom, systeme, litCouleur(champs[7].trim()));
+	}
+
+	/**
+	 * Lit les règles d'un système contextuel, séparées par des espaces.
+	 * @param regles les règles, de la forme "G&lt;S&gt;D=production"
+	 * @return les règles sous la forme de couples {prédécesseur, production}
+	 * @exception IllegalArgumentException si une règle n'a pas de prédécesseur
+	 */
+	private static String[][] litReglesContextuelles(String regles) {
+		List<String[]> couples = new ArrayList<>();
+		for (String regle : regles.split("\\s+")) {
+			if (regle.isEmpty())
+				continue;
+			int egal = regle.indexOf('=');
+			if (egal <= 0)
+				throw new IllegalArgumentException("Règle contextuelle invalide : \"" + regle + "\".");
+			couples.add(new String[] {regle.substring(0, egal), regle.substring(egal + 1)});
+		}
+		return couples.toArray(new String[0][]);
+	}
+
+	/**
+	 * Lit une couleur donnée par son nom ou par son code hexadécimal.
+	 * @param couleur le nom ou le code "#RRVVBB" de la couleur
+	 * @return la couleur au format 0xRRGGBB
+	 * @exception IllegalArgumentException si la couleur est inconnue
+	 */
+	private static int litCouleur(String couleur) {
+		switch (couleur.toLowerCase()) {
+			case "marron":
+				return 0xA52A2A;
+			case "vert":
+				return 0x008000;
+			case "bleu":
+				return 0x0000FF;
+			case "rouge":
+				return 0xFF0000;
+			case "noir":
+				return 0x000000;
+			default:
+				if (couleur.matches("#[0-9a-fA-F]{6}"))
+					return Integer.parseInt(couleur.substring(1), 16);
+				throw new IllegalArgumentException("Couleur inconnue : \"" + couleur + "\".");
+		}
+	}
+
+	/**
+	 * Rend un système en image PNG.
+	 * @param travail le système à rendre
+	 * @param dossier le dossier dans lequel écrire l'image
+	 * @param largeur la largeur de l'image
+	 * @param hauteur la hauteur de l'image
+	 * @return le compte rendu du rendu, avec la durée de chaque étape
+	 * @exception IOException si l'image ne peut pas être écrite
+	 */
+	private static String rend(Travail travail, Path dossier, int largeur, int hauteur) throws IOException {
+		SystemeLindenmeyer systeme = travail.systeme;
+		// Les générations trop longues pour la mémoire sont écrites, le temps du rendu, dans le dossier des images.
+		systeme.setRepertoireGenerations(dossier);
+		long debut = System.nanoTime();
+		SequenceSymboles generation = systeme.generation(systeme.getIteration());
+		long finDerivation = System.nanoTime();
+
+		// Le fichier d'une génération trop longue pour la mémoire est supprimé même si le rendu échoue.
+		try {
+			BoiteEnglobante boite = systeme.mesureGeneration(generation, systeme.getLongueur());
+			long finCadrage = System.nanoTime();
+
+			// Le dessin garde sa taille s'il tient dans l'image, sinon il est réduit ; il est toujours centré.
+			double echelle = boite.echelle(largeur, hauteur, MARGE);
+			double decalageX = boite.decalageX(echelle, largeur), decalageY = boite.decalageY(echelle, hauteur);
+			long finRendu;
+			Path image = dossier.resolve(travail.nom + ".png");
+			if ((long) largeur * hauteur > NB_PIXELS_TUILES) {
+				// Les systèmes occupent déjà tous les processeurs : chaque image n'a qu'un thread de tracé, qui suit la tortue.
+				try (RasteriseurTuiles tuiles = new RasteriseurTuiles(largeur, hauteur, FOND, travail.couleur, 1);
+				     OutputStream sortie = new BufferedOutputStream(Files.newOutputStream(image))) {
+					tuiles.setTransformation(echelle, decalageX, decalageY);
+					if (!boite.estVide())
+						generation.parcours(systeme.creeTortue(systeme.getLongueur(), tuiles));
+					tuiles.termine();
+					finRendu = System.nanoTime();
+					tuiles.ecritPNG(sortie, NIVEAU_COMPRESSION);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Le rendu de " + travail.nom + " a été interrompu.", e);
+				}
+			} else {
+				RasteriseurTraits pixels = new RasteriseurTraits(largeur, hauteur, FOND, travail.couleur);
+				pixels.setTransformation(echelle, decalageX, decalageY);
+				if (!boite.estVide())
+					generation.parcours(systeme.creeTortue(systeme.getLongueur(), pixels));
+				finRendu = System.nanoTime();
+				try (OutputStream sortie = new BufferedOutputStream(Files.newOutputStream(image));
+				     EncodeurPNG png = new EncodeurPNG(sortie, largeur, hauteur, NIVEAU_COMPRESSION)) {
+					for (int rangee = 0; rangee < hauteur; rangee++)
+						png.ecritLigne(pixels.getPixels(), rangee * largeur);
+				}
+			}
+			long fin = System.nanoTime();
+			return String.format("%-24s %,15d symboles   dérivation %6d ms   cadrage %6d ms   rendu %6d ms   PNG %6d ms",
+			                     travail.nom, generation.taille(), (finDerivation - debut) / 1_000_000, (finCadrage - finDerivation) / 1_000_000,
+			                     (finRendu - finCadrage) / 1_000_000, (fin - finRendu) / 1_000_000);
+		} finally {
+			if (generation instanceof GenerationFichier)
+				((GenerationFichier) generation).close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length != 2 && args.length != 4) {
+			System.err.println("Usage : java systeme.affichage.RenduLot manifeste dossier [largeur hauteur]");
+			System.exit(2);
+		}
+		Path dossier = Paths.get(args[1]);
+		int largeur = args.length == 4 ? Integer.parseInt(args[2]) : TAILLE_PAR_DEFAUT;
+		int hauteur = args.length == 4 ? Integer.parseInt(args[3]) : TAILLE_PAR_DEFAUT;
+		List<Travail> travaux = litManifeste(Paths.get(args[0]));
+		Files.createDirectories(dossier);
+
+		long debut = System.nanoTime();
+		ExecutorService executeur = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<String>> rendus = new ArrayList<>();
+		for (Travail travail : travaux)
+			rendus.add(executeur.submit(() -> rend(travail, dossier, largeur, hauteur)));
+		executeur.shutdown();
+		int nbEchecs = 0;
+		for (int numero = 0; numero < travaux.size(); numero++) {
+			try {
+				System.out.println(rendus.get(numero).get());
+			} catch (ExecutionException e) {
+				nbEchecs++;
+				System.out.println(String.format("%-24s échec : %s", travaux.get(numero).nom, e.getCause().getMessage()));
+			}
+		}
+		System.out.println(String.format("%d systèmes rendus, %d échecs, en %d ms.", travaux.size() - nbEchecs, nbEchecs, (System.nanoTime() - debut) / 1_000_000));
+		if (nbEchecs > 0)
+			System.exit(1);
+	}
+}
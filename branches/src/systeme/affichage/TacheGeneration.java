@@ -0,0 +1,348 @@
+package systeme.affichage;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.canvas.GraphicsContext;
+import systeme.lindenmeyer.*;
+
+/**
+ * La génération d'un système de Lindenmeyer exécutée en arrière-plan, pour que la fenêtre reste réactive.
+ * La dérivation, la mesure du dessin et l'interprétation par la tortue ont lieu sur le thread de la tâche ;
+ * le canvas est préparé sur le thread JavaFX dès que le dessin est mesuré, puis les traits obtenus sont
+ * regroupés en lots de polylignes transmis au thread JavaFX, seul autorisé à dessiner sur le canvas.
+ * Une génération déterministe n'est développée que là où elle est visible et plus grande qu'un pixel
+ * (voir {@link ParcoursVisible}) : le nombre de traits dessinés est alors borné par la taille du canvas.
+ * Les autres générations sont parcourues entièrement, et leurs traits conservés au passage dans une {@link GrilleSegments}
+ * pour que la vue puisse ensuite être déplacée et zoomée sans parcourir la génération une nouvelle fois.
+ * La tâche signale au fur et à mesure l'itération réécrite, puis le nombre de symboles mesurés et interprétés
+ * et le temps écoulé ; qu'elle réécrive, mesure ou dessine, elle s'interrompt au plus tard quelques milliers
+ * de symboles après avoir été annulée.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class TacheGeneration extends Task<Long> {
+	/**
+	 * Le nombre de symboles interprétés entre deux vérifications de l'annulation et deux signalements de la progression.
+	 * Le nombre de valeurs d'un lot de traits.
+	 * Le nombre maximal de lots transmis au thread JavaFX et pas encore dessinés.
+	 */
+	private static final int MASQUE_VERIFICATION = (1 << 14) - 1;
+	private static final int TAILLE_LOT = 1 << 15;
+	private static final int NB_LOTS_EN_ATTENTE = 8;
+
+	/**
+	 * Le système à générer.
+	 * Le nombre d'itérations.
+	 * La longueur d'un trait.
+	 * La préparation du canvas, qui reçoit la boîte englobant le dessin et retourne le contexte graphique sur lequel dessiner.
+	 * La longueur prévue de la génération (-1 si elle n'est pas connue à l'avance).
+	 */
+	private final SystemeLindenmeyer systeme;
+	private final int nbIterations, longueur;
+	private final Function<BoiteEnglobante, GraphicsContext> preparation;
+	private final long longueurPrevue;
+	/**
+	 * Le contexte graphique sur lequel dessiner, obtenu sur le thread JavaFX avant le premier lot.
+	 * Le parcours limité à la partie visible du dessin (null si la génération est parcourue entièrement).
+	 */
+	private GraphicsContext gc;
+	private ParcoursVisible parcoursVisible;
+	/**
+	 * La génération dessinée (null tant qu'elle n'est pas dérivée).
+	 * Les traits dessinés, conservés pour déplacer et zoomer la vue (null si la génération n'est dessinée que là où elle est visible).
+	 * L'erreur qui a empêché de conserver les traits dessinés (null si aucune).
+	 */
+	private SequenceSymboles generation;
+	private GrilleSegments traits;
+	private IllegalStateException echecTraits;
+	/** Les lots transmis au thread JavaFX qui peuvent encore l'être avant de devoir attendre qu'il les dessine. */
+	private final Semaphore lotsDisponibles;
+	/**
+	 * Le nombre de symboles interprétés.
+	 * L'instant de début de la génération (en nanosecondes).
+	 */
+	private long nbSymboles, debut;
+
+	/**
+	 * Construit la génération en arrière-plan d'un système.
+	 * La préparation est appelée sur le thread JavaFX, typiquement pour cadrer le canvas
+	 * avec {@link SystemeLindenmeyer#initialiseContexteGraphique}.
+	 * @param systeme le système à générer
+	 * @param nbIterations le nombre d'itérations
+	 * @param longueur la longueur d'un trait
+	 * @param preparation la préparation du canvas, à partir de la boîte englobant le dessin
+	 * @param longueurPrevue la longueur prévue de la génération, ou -1 si elle n'est pas connue
+	 */
+	public TacheGeneration(SystemeLindenmeyer systeme, int nbIterations, int longueur, Function<BoiteEnglobante, GraphicsContext> preparation, long longueurPrevue) {
+		this.systeme = systeme;
+		this.nbIterations = nbIterations;
+		this.longueur = longueur;
+		this.preparation = preparation;
+		this.longueurPrevue = longueurPrevue;
+		this.lotsDisponibles = new Semaphore(NB_LOTS_EN_ATTENTE);
+	}
+
+	/**
+	 * Retourne la génération dessinée par la tâche.
+	 * @return la génération dessinée, ou null si elle n'a pas encore été dérivée
+	 */
+	public SequenceSymboles getGeneration() {
+		return this.generation;
+	}
+	/**
+	 * Retourne les traits dessinés par la tâche terminée, à indexer pour déplacer et zoomer la vue.
+	 * Seule une génération parcourue entièrement conserve ses traits : une génération déterministe dessinée
+	 * là où elle est visible n'a pas transmis les traits de ses parties cachées ou plus petites qu'un pixel.
+	 * @return les traits dessinés, ou null si la génération n'a été dessinée que là où elle est visible
+	 * @exception IllegalStateException si le dessin compte trop de traits pour être conservé
+	 */
+	public GrilleSegments getTraits() {
+		if (echecTraits != null)
+			throw echecTraits;
+		return this.traits;
+	}
+
+	@Override
+	protected Long call() {
+		debut = System.nanoTime();
+		Suivi suivi = new Suivi();
+		SequenceSymboles generation = systeme.generation(nbIterations, suivi);
+		this.generation = generation;
+		BoiteEnglobante boite = systeme.mesureGeneration(generation, longueur, suivi);
+		gc = prepareCanvas(boite);
+		Collecteur collecteur = new Collecteur();
+		parcoursVisible = creeParcoursVisible(generation, boite, collecteur);
+		signaleProgression();
+		MesurePhase mesure = Mesures.debut(Mesures.Phase.INTERPRETATION, nbIterations);
+		if (parcoursVisible != null) {
+			parcoursVisible.parcours(systeme.getAxiomes(), nbIterations);
+			nbSymboles = parcoursVisible.getNbSymboles();
+		} else {
+			traits = new GrilleSegments();
+			Tortue tortue = systeme.creeTortue(longueur, collecteur);
+			if (generation instanceof ChaineParametree) {
+				// Les modules d'une génération paramétrée sont transmis à la tortue avec leurs paramètres.
+				((ChaineParametree) generation).parcoursModules((symbole, parametres, debutParametres, nbParametres) -> {
+					tortue.recoit(symbole, parametres, debutParametres, nbParametres);
+					if ((++nbSymboles & MASQUE_VERIFICATION) == 0)
+						signaleProgression();
+				});
+			} else {
+				generation.parcours(symbole -> {
+					tortue.recoit(symbole);
+					if ((++nbSymboles & MASQUE_VERIFICATION) == 0)
+						signaleProgression();
+				});
+			}
+		}
+		collecteur.publie();
+		mesure.termine(nbSymboles, 0, collecteur.nbTraits, 0);
+		signaleProgression();
+		return nbSymboles;
+	}
+
+	/**
+	 * Fait préparer le canvas par le thread JavaFX et attend qu'il le soit.
+	 * @param boite la boîte englobant le dessin
+	 * @return le contexte graphique sur lequel dessiner
+	 * @exception CancellationException si la tâche est annulée avant que le canvas ne soit préparé
+	 */
+	private GraphicsContext prepareCanvas(BoiteEnglobante boite) {
+		// Une génération annulée ne doit pas effacer le canvas d'une génération lancée après elle.
+		FutureTask<GraphicsContext> preparationCanvas = new FutureTask<>(() -> isCancelled() ? null : preparation.apply(boite));
+		Platform.runLater(preparationCanvas);
+		try {
+			while (true) {
+				try {
+					GraphicsContext contexte = preparationCanvas.get(50, TimeUnit.MILLISECONDS);
+					if (contexte == null)
+						throw new CancellationException();
+					return contexte;
+				} catch (TimeoutException e) {
+					if (isCancelled())
+						throw new CancellationException();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Le canvas n'a pas pu être préparé : " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Crée le parcours de la seule partie visible de la génération, lorsque celle-ci est déterministe.
+	 * @param generation la génération à dessiner
+	 * @param boite la boîte englobant le dessin
+	 * @param ecouteur l'écouteur des mouvements de la tortue
+	 * @return le parcours limité à la partie visible, ou null si la génération doit être parcourue entièrement
+	 */
+	private ParcoursVisible creeParcoursVisible(SequenceSymboles generation, BoiteEnglobante boite, EcouteurTortue ecouteur) {
+		if (!(generation instanceof GenerationPartagee) || !((GenerationPartagee) generation).estComplete())
+			return null;
+		// Le canvas n'est plus modifié une fois préparé : ses dimensions peuvent être lues depuis la tâche.
+		double largeur = gc.getCanvas().getWidth(), hauteur = gc.getCanvas().getHeight();
+		double echelle = boite.echelle(largeur, hauteur, SystemeLindenmeyer.MARGE_DESSIN);
+		try {
+			return systeme.creeParcoursVisible(longueur, boite.zoneVisible(echelle, largeur, hauteur), 1 / echelle, ecouteur);
+		} catch (IllegalArgumentException e) {
+			// Les branches de la grammaire ne sont pas équilibrées : la génération est parcourue entièrement.
+			return null;
+		}
+	}
+
+	/**
+	 * Signale la progression de la génération, ou l'interrompt si elle a été annulée.
+	 * @exception CancellationException si la tâche a été annulée
+	 */
+	private void signaleProgression() {
+		if (isCancelled())
+			throw new CancellationException();
+		if (longueurPrevue > 0)
+			updateProgress(nbSymboles, longueurPrevue);
+		else
+			updateProgress(-1, -1);
+		long duree = (System.nanoTime() - debut) / 1_000_000;
+		updateMessage("Itération " + nbIterations + " : " + nbSymboles + (longueurPrevue > 0 ? " / " + longueurPrevue : "") + " symboles en " + duree + " ms");
+	}
+
+	/**
+	 * Dessine un lot de traits sur le canvas. Appelée sur le thread JavaFX.
+	 * @param lot les points du lot, chaque polyligne étant précédée d'un couple de valeurs NaN
+	 * @param nbValeurs le nombre de valeurs occupées dans le lot
+	 */
+	private void dessineLot(double[] lot, int nbValeurs) {
+		MesurePhase mesure = Mesures.debut(Mesures.Phase.TRACE, nbIterations);
+		gc.beginPath();
+		for (int indice = 0; indice < nbValeurs; ) {
+			if (Double.isNaN(lot[indice])) {
+				gc.moveTo(lot[indice + 2], lot[indice + 3]);
+				indice += 4;
+			} else {
+				gc.lineTo(lot[indice], lot[indice + 1]);
+				indice += 2;
+			}
+		}
+		// Le chemin n'est construit que localement : le lot ne coûte au canvas qu'une commande de tracé.
+		gc.stroke();
+		mesure.termine(0, 0, 0, 1);
+	}
+
+	/**
+	 * Le suivi de la dérivation et de la mesure du dessin, qui signale l'itération en cours et le nombre de symboles
+	 * déjà traités, et interrompt la tâche si elle a été annulée.
+	 */
+	private class Suivi implements SuiviDerivation {
+		@Override
+		public void reecriture(int iteration, long nbSymbolesProduits) {
+			if (isCancelled())
+				throw new CancellationException();
+			updateProgress(iteration - 1, nbIterations);
+			long duree = (System.nanoTime() - debut) / 1_000_000;
+			updateMessage("Itération " + iteration + " / " + nbIterations + " : réécriture, " + nbSymbolesProduits + " symboles en " + duree + " ms");
+		}
+
+		@Override
+		public void mesure(long nbSymbolesParcourus) {
+			if (isCancelled())
+				throw new CancellationException();
+			if (longueurPrevue > 0)
+				updateProgress(nbSymbolesParcourus, longueurPrevue);
+			else
+				updateProgress(-1, -1);
+			long duree = (System.nanoTime() - debut) / 1_000_000;
+			updateMessage("Itération " + nbIterations + " : mesure du dessin, " + nbSymbolesParcourus + (longueurPrevue > 0 ? " / " + longueurPrevue : "") + " symboles en " + duree + " ms");
+		}
+	}
+
+	/**
+	 * L'écouteur de la tortue qui regroupe les traits reliés en polylignes et les transmet par lots au thread JavaFX.
+	 */
+	private class Collecteur implements EcouteurTortue {
+		/**
+		 * Les valeurs du lot en cours.
+		 * Le nombre de valeurs occupées dans le lot en cours.
+		 * Indique si le prochain trait prolonge la polyligne en cours.
+		 */
+		private double[] lot = new double[TAILLE_LOT];
+		private int nbValeurs;
+		private boolean continu;
+		/** Le nombre de traits reçus. */
+		private long nbTraits;
+
+		@Override
+		public void trait(double x1, double y1, double x2, double y2) {
+			// Un parcours limité à la partie visible est suivi à chaque lot de traits plutôt qu'à chaque symbole.
+			if ((++nbTraits & MASQUE_VERIFICATION) == 0 && parcoursVisible != null) {
+				nbSymboles = parcoursVisible.getNbSymboles();
+				signaleProgression();
+			}
+			if (traits != null) {
+				try {
+					traits.trait(x1, y1, x2, y2);
+				} catch (IllegalStateException e) {
+					// Le dessin continue, mais ses traits ne pourront pas être indexés.
+					echecTraits = e;
+					traits = null;
+				}
+			}
+			if (nbValeurs + 6 > TAILLE_LOT)
+				publie();
+			if (!continu) {
+				lot[nbValeurs++] = Double.NaN;
+				lot[nbValeurs++] = Double.NaN;
+				lot[nbValeurs++] = x1;
+				lot[nbValeurs++] = y1;
+				continu = true;
+			}
+			lot[nbValeurs++] = x2;
+			lot[nbValeurs++] = y2;
+		}
+
+		@Override
+		public void saut(double x1, double y1, double x2, double y2) {
+			continu = false;
+		}
+
+		@Override
+		public void depile(double x, double y) {
+			continu = false;
+		}
+
+		/**
+		 * Transmet le lot en cours au thread JavaFX, en attendant si trop de lots n'y ont pas encore été dessinés.
+		 * @exception CancellationException si la tâche est annulée pendant l'attente
+		 */
+		private void publie() {
+			if (nbValeurs == 0)
+				return;
+			try {
+				while (!lotsDisponibles.tryAcquire(50, TimeUnit.MILLISECONDS))
+					if (isCancelled())
+						throw new CancellationException();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException();
+			}
+			double[] lotPublie = lot;
+			int nbValeursPubliees = nbValeurs;
+			Platform.runLater(() -> {
+				// Les lots encore en attente lors d'une annulation ne sont pas dessinés.
+				if (!isCancelled())
+					dessineLot(lotPublie, nbValeursPubliees);
+				lotsDisponibles.release();
+			});
+			lot = new double[TAILLE_LOT];
+			nbValeurs = 0;
+			continu = false;
+		}
+	}
+}
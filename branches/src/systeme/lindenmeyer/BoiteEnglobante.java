@@ -0,0 +1,144 @@
+package systeme.lindenmeyer;
+
+/**
+ * Un écouteur de tortue qui mesure la boîte englobant tous les traits dessinés,
+ * pour cadrer un dessin avant de le tracer.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class BoiteEnglobante implements EcouteurTortue {
+    /** Les bornes des traits mesurés (la boîte est vide tant qu'aucun trait n'a été mesuré). */
+    private double xMin, yMin, xMax, yMax;
+
+    /**
+     * Construit une boîte englobante vide.
+     */
+    public BoiteEnglobante() {
+        this.xMin = Double.POSITIVE_INFINITY;
+        this.yMin = Double.POSITIVE_INFINITY;
+        this.xMax = Double.NEGATIVE_INFINITY;
+        this.yMax = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Construit une boîte englobante à partir de ses bornes.
+     * @param xMin l'abscisse minimale
+     * @param yMin l'ordonnée minimale
+     * @param xMax l'abscisse maximale
+     * @param yMax l'ordonnée maximale
+     */
+    public BoiteEnglobante(double xMin, double yMin, double xMax, double yMax) {
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.xMax = xMax;
+        this.yMax = yMax;
+    }
+
+    @Override
+    public void trait(double x1, double y1, double x2, double y2) {
+        xMin = Math.min(xMin, Math.min(x1, x2));
+        yMin = Math.min(yMin, Math.min(y1, y2));
+        xMax = Math.max(xMax, Math.max(x1, x2));
+        yMax = Math.max(yMax, Math.max(y1, y2));
+    }
+
+    /**
+     * Retourne l'abscisse minimale des traits mesurés.
+     * @return l'abscisse minimale des traits mesurés
+     */
+    public double getXMin() {
+        return this.xMin;
+    }
+    /**
+     * Retourne l'ordonnée minimale des traits mesurés.
+     * @return l'ordonnée minimale des traits mesurés
+     */
+    public double getYMin() {
+        return this.yMin;
+    }
+    /**
+     * Retourne l'abscisse maximale des traits mesurés.
+     * @return l'abscisse maximale des traits mesurés
+     */
+    public double getXMax() {
+        return this.xMax;
+    }
+    /**
+     * Retourne l'ordonnée maximale des traits mesurés.
+     * @return l'ordonnée maximale des traits mesurés
+     */
+    public double getYMax() {
+        return this.yMax;
+    }
+    /**
+     * Retourne la largeur de la boîte.
+     * @return la largeur de la boîte, ou 0 si elle est vide
+     */
+    public double getLargeur() {
+        return estVide() ? 0 : xMax - xMin;
+    }
+    /**
+     * Retourne la hauteur de la boîte.
+     * @return la hauteur de la boîte, ou 0 si elle est vide
+     */
+    public double getHauteur() {
+        return estVide() ? 0 : yMax - yMin;
+    }
+
+    /**
+     * Retourne l'échelle à appliquer au dessin pour qu'il tienne dans une zone donnée.
+     * Un dessin qui tient déjà dans la zone garde sa taille ; un dessin plus grand est réduit.
+     * @param largeur la largeur de la zone
+     * @param hauteur la hauteur de la zone
+     * @param marge la marge à laisser de chaque côté du dessin
+     * @return l'échelle du dessin, au plus 1
+     */
+    public double echelle(double largeur, double hauteur, double marge) {
+        double echelle = 1;
+        if (getLargeur() > 0)
+            echelle = Math.min(echelle, (largeur - 2 * marge) / getLargeur());
+        if (getHauteur() > 0)
+            echelle = Math.min(echelle, (hauteur - 2 * marge) / getHauteur());
+        return Math.max(echelle, Double.MIN_NORMAL);
+    }
+
+    /**
+     * Retourne la translation horizontale qui centre le dessin mis à l'échelle dans une zone.
+     * @param echelle l'échelle du dessin
+     * @param largeur la largeur de la zone
+     * @return la translation horizontale à appliquer après la mise à l'échelle
+     */
+    public double decalageX(double echelle, double largeur) {
+        return estVide() ? largeur / 2 : (largeur - getLargeur() * echelle) / 2 - xMin * echelle;
+    }
+
+    /**
+     * Retourne la translation verticale qui centre le dessin mis à l'échelle dans une zone.
+     * @param echelle l'échelle du dessin
+     * @param hauteur la hauteur de la zone
+     * @return la translation verticale à appliquer après la mise à l'échelle
+     */
+    public double decalageY(double echelle, double hauteur) {
+        return estVide() ? hauteur / 2 : (hauteur - getHauteur() * echelle) / 2 - yMin * echelle;
+    }
+
+    /**
+     * Retourne la partie du dessin visible dans une zone, une fois le dessin mis à l'échelle et centré dans celle-ci.
+     * @param echelle l'échelle du dessin
+     * @param largeur la largeur de la zone
+     * @param hauteur la hauteur de la zone
+     * @return la partie visible, dans les coordonnées du dessin
+     */
+    public BoiteEnglobante zoneVisible(double echelle, double largeur, double hauteur) {
+        double decalageX = decalageX(echelle, largeur), decalageY = decalageY(echelle, hauteur);
+        return new BoiteEnglobante(-decalageX / echelle, -decalageY / echelle, (largeur - decalageX) / echelle, (hauteur - decalageY) / echelle);
+    }
+
+    /**
+     * Indique si aucun trait n'a été mesuré.
+     * @return true si la boîte est vide
+     */
+    public boolean estVide() {
+        return xMin > xMax;
+    }
+}
@@ -0,0 +1,184 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un cache des développements d'un système de Lindenmeyer déterministe.
+ * Dans un tel système, un symbole développé jusqu'à une profondeur donnée produit toujours la même chaîne :
+ * son {@link ResumeDerivation} (longueur, effet sur la tortue et boîte englobante) ne dépend donc que du symbole,
+ * de la profondeur restante et de l'orientation de la tortue. Chaque résumé est calculé une seule fois à partir de ceux
+ * des symboles de sa production, si bien que résumer une génération de plusieurs milliards de symboles ne demande
+ * que quelques milliers d'opérations. Le nombre de résumés conservés est borné, les moins récemment utilisés étant oubliés.
+ * Ce cache n'est pas prévu pour être partagé entre plusieurs threads.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class CacheDerivation {
+    /**
+     * La grammaire compilée du système.
+     * L'angle d'un pas de rotation (en radians).
+     * Le nombre de pas de rotation formant un tour complet (0 si l'angle ne divise aucun nombre entier de tours).
+     * Les résumés déjà calculés, indexés par symbole, profondeur et orientation, du moins au plus récemment utilisé.
+     */
+    private final GrammaireCompilee grammaire;
+    private final double delta;
+    private final int periode;
+    private final LinkedHashMap<Long, ResumeDerivation> resumes;
+
+    /**
+     * Construit un cache vide pour un système déterministe.
+     * @param grammaire la grammaire compilée du système
+     * @param angle l'angle (en degrés) d'une rotation de la tortue
+     * @param capacite le nombre maximal de résumés conservés
+     * @exception IllegalArgumentException si une production ouvre ou ferme une branche sans l'autre, ou si les crochets ont des règles
+     */
+    public CacheDerivation(GrammaireCompilee grammaire, double angle, int capacite) {
+        if (grammaire.production('[') != null || grammaire.production(']') != null)
+            throw new IllegalArgumentException("Les symboles '[' et ']' ne peuvent pas être réécrits.");
+        for (int symbole = 0; symbole < GrammaireCompilee.TAILLE_ALPHABET; symbole++) {
+            byte[] production = grammaire.production(symbole);
+            if (production != null && !estEquilibree(production, production.length))
+                throw new IllegalArgumentException("La production de '" + (char) symbole + "' ne referme pas toutes ses branches.");
+        }
+        this.grammaire = grammaire;
+        this.delta = Math.toRadians(angle);
+        this.periode = Tortue.calculePeriode(angle);
+        this.resumes = new LinkedHashMap<Long, ResumeDerivation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ResumeDerivation> plusAncien) {
+                return size() > capacite;
+            }
+        };
+    }
+
+    /**
+     * Indique si chaque branche ouverte dans une chaîne y est refermée.
+     * @param symboles les symboles de la chaîne
+     * @param longueur le nombre de symboles de la chaîne
+     * @return true si les crochets de la chaîne sont équilibrés
+     */
+    private static boolean estEquilibree(byte[] symboles, int longueur) {
+        int profondeur = 0;
+        for (int position = 0; position < longueur && profondeur >= 0; position++)
+            if (symboles[position] == '[')
+                profondeur++;
+            else if (symboles[position] == ']')
+                profondeur--;
+        return profondeur == 0;
+    }
+
+    /**
+     * Retourne le nombre de pas de rotation formant un tour complet.
+     * @return le nombre de pas formant un tour, ou 0 si l'angle ne divise aucun nombre entier de tours
+     */
+    public int getPeriode() {
+        return this.periode;
+    }
+
+    /**
+     * Retourne le résumé du développement d'un symbole.
+     * @param symbole le symbole à développer
+     * @param profondeur le nombre d'itérations restant à appliquer au symbole
+     * @param orientation l'orientation de la tortue, en nombre de pas de rotation depuis la verticale
+     * @return le résumé du développement du symbole
+     */
+    public ResumeDerivation resume(char symbole, int profondeur, int orientation) {
+        int orientationReduite = periode > 0 ? Math.floorMod(orientation, periode) : orientation;
+        long cle = ((long) orientationReduite << 32) | ((long) profondeur << 8) | symbole;
+        ResumeDerivation resume = resumes.get(cle);
+        if (resume == null) {
+            byte[] production = profondeur == 0 ? null : grammaire.production(symbole);
+            resume = production == null ? resumeTerminal(symbole, orientationReduite) : compose(production, production.length, profondeur - 1, orientationReduite);
+            resumes.put(cle, resume);
+        }
+        return resume;
+    }
+
+    /**
+     * Retourne le résumé du développement d'une chaîne entière, la tortue partant vers le haut.
+     * @param chaine la chaîne à développer (un axiome par exemple)
+     * @param profondeur le nombre d'itérations à appliquer à la chaîne
+     * @return le résumé du développement de la chaîne
+     * @exception IllegalArgumentException si la chaîne ne referme pas toutes ses branches
+     */
+    public ResumeDerivation resumeChaine(CharSequence chaine, int profondeur) {
+        TamponSymboles symboles = new TamponSymboles(chaine);
+        if (!estEquilibree(symboles.tableau(), symboles.length()))
+            throw new IllegalArgumentException("La chaîne \"" + chaine + "\" ne referme pas toutes ses branches.");
+        return compose(symboles.tableau(), symboles.length(), profondeur, 0);
+    }
+
+    /**
+     * Retourne le résumé d'un symbole qui n'est plus réécrit, interprété comme une commande de la tortue.
+     * @param symbole le symbole
+     * @param orientation l'orientation de la tortue
+     * @return le résumé du symbole
+     */
+    private ResumeDerivation resumeTerminal(char symbole, int orientation) {
+        double alpha = -Math.PI / 2 + orientation * delta;
+        double dx = Math.cos(alpha);
+        double dy = Math.sin(alpha);
+        switch (symbole) {
+            case 'F':
+                return new ResumeDerivation(1, 0, dx, dy, Math.min(0, dx), Math.min(0, dy), Math.max(0, dx), Math.max(0, dy));
+            case 'f':
+                return new ResumeDerivation(1, 0, dx, dy, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+            case '+':
+                return new ResumeDerivation(1, -1, 0, 0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+            case '-':
+                return new ResumeDerivation(1, 1, 0, 0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+            default:
+                return new ResumeDerivation(1, 0, 0, 0, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * Compose les résumés des symboles d'une chaîne équilibrée en suivant la tortue d'un symbole à l'autre.
+     * @param symboles les symboles de la chaîne
+     * @param longueur le nombre de symboles de la chaîne
+     * @param profondeur le nombre d'itérations restant à appliquer à chaque symbole
+     * @param orientation l'orientation de la tortue au début de la chaîne
+     * @return le résumé du développement de la chaîne
+     */
+    private ResumeDerivation compose(byte[] symboles, int longueur, int profondeur, int orientation) {
+        double x = 0, y = 0;
+        int pas = orientation;
+        long longueurTotale = 0;
+        double xMin = Double.POSITIVE_INFINITY, yMin = Double.POSITIVE_INFINITY;
+        double xMax = Double.NEGATIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+        // La position et l'orientation de la tortue à l'ouverture de chaque branche, trois valeurs par branche.
+        double[] pile = new double[12];
+        int hauteur = 0;
+        for (int position = 0; position < longueur; position++) {
+            char symbole = (char) (symboles[position] & 0xFF);
+            longueurTotale++;
+            if (symbole == '[') {
+                if (hauteur == pile.length)
+                    pile = Arrays.copyOf(pile, 2 * pile.length);
+                pile[hauteur++] = x;
+                pile[hauteur++] = y;
+                pile[hauteur++] = pas;
+            } else if (symbole == ']') {
+                pas = (int) pile[--hauteur];
+                y = pile[--hauteur];
+                x = pile[--hauteur];
+            } else {
+                ResumeDerivation resume = resume(symbole, profondeur, pas);
+                if (!resume.estVide()) {
+                    xMin = Math.min(xMin, x + resume.getXMin());
+                    yMin = Math.min(yMin, y + resume.getYMin());
+                    xMax = Math.max(xMax, x + resume.getXMax());
+                    yMax = Math.max(yMax, y + resume.getYMax());
+                }
+                x += resume.getDeplacementX();
+                y += resume.getDeplacementY();
+                pas += resume.getRotation();
+                // La longueur sature à Long.MAX_VALUE plutôt que de déborder.
+                longueurTotale = longueurTotale + resume.getLongueur() - 1 < 0 ? Long.MAX_VALUE : longueurTotale + resume.getLongueur() - 1;
+            }
+        }
+        return new ResumeDerivation(longueurTotale, pas - orientation, x, y, xMin, yMin, xMax, yMax);
+    }
+}
@@ -0,0 +1,155 @@
+package systeme.lindenmeyer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Un cache des générations de systèmes de Lindenmeyer, partagé entre plusieurs instances de systèmes.
+ * La génération d'un système ne dépend que de son type, de ses axiomes, de ses règles et du nombre d'itérations ;
+ * l'angle et la longueur n'interviennent qu'au moment du dessin. Un système redessiné avec un autre angle
+ * ou une autre longueur retrouve donc sa génération dans le cache, sans refaire la réécriture.
+ * Les générations construites en mémoire sont conservées dans la limite d'un nombre total de symboles,
+ * et les générations écrites dans un fichier dans la limite d'une place totale sur le disque, les moins récemment
+ * utilisées étant oubliées ; les générations partagées, qui n'occupent presque pas de mémoire, ne comptent dans
+ * aucune de ces limites. Le fichier d'une génération oubliée est supprimé aussitôt : les projections déjà ouvertes
+ * par un dessin en cours restent lisibles sur les systèmes qui permettent de supprimer un fichier projeté.
+ * Le cache peut être utilisé depuis plusieurs threads.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class CacheGenerations {
+    /** Le nombre maximal de générations conservées. */
+    private static final int NB_GENERATIONS_MAX = 64;
+
+    /**
+     * Le nombre maximal de symboles des générations construites en mémoire conservées.
+     * Le nombre de symboles des générations construites en mémoire actuellement conservées.
+     * Le nombre maximal d'octets des fichiers des générations écrites sur le disque conservées.
+     * Le nombre d'octets des fichiers des générations écrites sur le disque actuellement conservées.
+     * Les générations conservées, indexées par la clé de dérivation de leur système et le nombre d'itérations,
+     * de la moins à la plus récemment utilisée.
+     */
+    private final long capacite;
+    private long nbSymboles;
+    private final long capaciteFichiers;
+    private long nbOctetsFichiers;
+    private final LinkedHashMap<String, SequenceSymboles> generations;
+
+    /**
+     * Construit un cache vide.
+     * @param capacite le nombre maximal de symboles des générations construites en mémoire conservées
+     * @param capaciteFichiers le nombre maximal d'octets des fichiers des générations écrites sur le disque conservées
+     */
+    public CacheGenerations(long capacite, long capaciteFichiers) {
+        this.capacite = capacite;
+        this.capaciteFichiers = capaciteFichiers;
+        this.generations = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Retourne la clé d'une génération dans le cache.
+     * @param systeme le système
+     * @param nbIterations le nombre d'itérations
+     * @return la clé de la génération
+     */
+    private static String cle(SystemeLindenmeyer systeme, int nbIterations) {
+        return systeme.cleDerivation() + '\u0000' + nbIterations;
+    }
+
+    /**
+     * Retourne le nombre de symboles qu'une génération occupe en mémoire.
+     * @param generation la génération
+     * @return le nombre de symboles conservés en mémoire, 0 pour une génération partagée ou écrite dans un fichier
+     */
+    private static long poids(SequenceSymboles generation) {
+        return generation instanceof GenerationPartagee || generation instanceof GenerationFichier ? 0 : generation.taille();
+    }
+
+    /**
+     * Retourne le nombre d'octets qu'une génération occupe sur le disque.
+     * @param generation la génération
+     * @return la taille du fichier d'une génération écrite sur le disque (un octet par symbole), 0 pour une autre génération
+     */
+    private static long poidsFichier(SequenceSymboles generation) {
+        return generation instanceof GenerationFichier ? generation.taille() : 0;
+    }
+
+    /**
+     * Retourne la génération d'un système, calculée lors de la première demande puis conservée.
+     * Une génération dont la réécriture est abandonnée par le suivi n'est pas conservée.
+     * @param systeme le système
+     * @param nbIterations le nombre d'itérations
+     * @param suivi le suivi de la dérivation, ou null pour ne pas la suivre
+     * @return la génération demandée
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation
+     */
+    public SequenceSymboles generation(SystemeLindenmeyer systeme, int nbIterations, SuiviDerivation suivi) {
+        String cle = cle(systeme, nbIterations);
+        synchronized (this) {
+            SequenceSymboles generation = generations.get(cle);
+            if (generation != null)
+                return generation;
+        }
+        // La génération est calculée hors du verrou, pour ne pas bloquer les autres systèmes pendant la réécriture.
+        SequenceSymboles generation = systeme.calculeGeneration(nbIterations, suivi);
+        synchronized (this) {
+            SequenceSymboles dejaCalculee = generations.get(cle);
+            if (dejaCalculee != null) {
+                // La génération calculée en même temps par un autre thread est retournée : celle-ci n'est plus utilisée.
+                ferme(generation);
+                return dejaCalculee;
+            }
+            if (poids(generation) <= capacite && poidsFichier(generation) <= capaciteFichiers) {
+                generations.put(cle, generation);
+                nbSymboles += poids(generation);
+                nbOctetsFichiers += poidsFichier(generation);
+                libere();
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Oublie la génération d'un système, pour qu'elle soit recalculée lors de la prochaine demande.
+     * Le fichier d'une génération écrite sur le disque est supprimé.
+     * @param systeme le système
+     * @param nbIterations le nombre d'itérations
+     */
+    public synchronized void oublie(SystemeLindenmeyer systeme, int nbIterations) {
+        SequenceSymboles generation = generations.remove(cle(systeme, nbIterations));
+        if (generation != null)
+            retire(generation);
+    }
+
+    /**
+     * Oublie les générations les moins récemment utilisées tant que le cache dépasse l'une de ses capacités.
+     */
+    private void libere() {
+        Iterator<Map.Entry<String, SequenceSymboles>> generationsAnciennes = generations.entrySet().iterator();
+        while ((nbSymboles > capacite || nbOctetsFichiers > capaciteFichiers || generations.size() > NB_GENERATIONS_MAX) && generationsAnciennes.hasNext()) {
+            SequenceSymboles generation = generationsAnciennes.next().getValue();
+            generationsAnciennes.remove();
+            retire(generation);
+        }
+    }
+
+    /**
+     * Décompte une génération qui vient d'être retirée du cache et supprime son fichier.
+     * @param generation la génération retirée
+     */
+    private void retire(SequenceSymboles generation) {
+        nbSymboles -= poids(generation);
+        nbOctetsFichiers -= poidsFichier(generation);
+        ferme(generation);
+    }
+
+    /**
+     * Supprime le fichier d'une génération écrite sur le disque.
+     * @param generation une génération, qui n'est fermée que si elle est écrite dans un fichier
+     */
+    private static void ferme(SequenceSymboles generation) {
+        if (generation instanceof GenerationFichier)
+            ((GenerationFichier) generation).close();
+    }
+}
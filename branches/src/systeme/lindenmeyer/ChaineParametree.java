@@ -0,0 +1,215 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Une génération de L-système paramétré : une suite de modules, chacun formé d'un symbole et de ses paramètres réels.
+ * Les symboles sont stockés dans un {@link TamponSymboles} et les paramètres dans deux tableaux de types primitifs
+ * qui lui sont parallèles : la position du premier paramètre de chaque module, et les valeurs de tous les paramètres
+ * mises bout à bout. Une génération de plusieurs millions de modules n'utilise donc que quelques tableaux,
+ * sans aucun objet par module.
+ * Parcourue par un {@link RecepteurModules} (une {@link Tortue} par exemple), la génération transmet chaque module
+ * avec ses paramètres ; parcourue par un simple {@link RecepteurSymboles}, elle ne transmet que les symboles.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ChaineParametree implements SequenceSymboles {
+    /**
+     * Les symboles des modules.
+     * La position, dans le tableau des valeurs, du premier paramètre de chaque module.
+     * Les valeurs des paramètres de tous les modules, dans l'ordre des modules.
+     * Le nombre de valeurs effectivement utilisées.
+     */
+    private final TamponSymboles symboles;
+    private int[] debuts;
+    private double[] valeurs;
+    private int nbValeurs;
+
+    /**
+     * Construit une génération vide pouvant contenir le nombre de modules indiqué sans être agrandie.
+     * @param capacite la capacité initiale de la génération, en modules
+     */
+    public ChaineParametree(int capacite) {
+        this.symboles = new TamponSymboles(capacite);
+        this.debuts = new int[Math.max(capacite, 16)];
+        this.valeurs = new double[Math.max(capacite, 16)];
+    }
+
+    /**
+     * Ajoute un module sans paramètre à la fin de la génération ; ses paramètres sont ensuite ajoutés
+     * par {@link #ajouteParametre(double)}.
+     * @param symbole le symbole du module
+     * @exception IllegalArgumentException si le symbole ne tient pas sur un octet
+     */
+    public void ajoute(char symbole) {
+        if (symbole >= GrammaireCompilee.TAILLE_ALPHABET)
+            throw new IllegalArgumentException("Symbole non supporté : '" + symbole + "'.");
+        ajoute((byte) symbole);
+    }
+
+    /**
+     * Ajoute un module sans paramètre, déjà encodé sur un octet, à la fin de la génération.
+     * @param symbole le code du symbole du module
+     */
+    void ajoute(byte symbole) {
+        int taille = symboles.length();
+        if (taille == debuts.length)
+            debuts = Arrays.copyOf(debuts, (int) Math.min(2L * debuts.length, TamponSymboles.CAPACITE_MAXIMALE));
+        debuts[taille] = nbValeurs;
+        symboles.ajoute(symbole);
+    }
+
+    /**
+     * Ajoute un paramètre au dernier module de la génération.
+     * @param valeur la valeur du paramètre
+     * @exception IllegalStateException si la génération ne contient aucun module ou dépasse la taille maximale d'un tableau
+     */
+    public void ajouteParametre(double valeur) {
+        if (symboles.length() == 0)
+            throw new IllegalStateException("Un paramètre doit suivre le symbole de son module.");
+        if (nbValeurs == valeurs.length) {
+            if (nbValeurs == TamponSymboles.CAPACITE_MAXIMALE)
+                throw new IllegalStateException("Les paramètres de la génération dépassent la taille maximale d'un tableau.");
+            valeurs = Arrays.copyOf(valeurs, (int) Math.min(2L * valeurs.length, TamponSymboles.CAPACITE_MAXIMALE));
+        }
+        valeurs[nbValeurs++] = valeur;
+    }
+
+    /**
+     * Vide la génération sans libérer sa mémoire.
+     */
+    public void vide() {
+        symboles.vide();
+        nbValeurs = 0;
+    }
+
+    /**
+     * Retourne les symboles de la génération, sans leurs paramètres.
+     * @return le tampon des symboles, partagé avec la génération
+     */
+    public TamponSymboles getSymboles() {
+        return this.symboles;
+    }
+
+    /**
+     * Retourne le nombre de paramètres d'un module.
+     * @param index la position du module
+     * @return le nombre de paramètres du module
+     */
+    public int nbParametres(long index) {
+        int module = Objects.checkIndex(Math.toIntExact(index), symboles.length());
+        return fin(module) - debuts[module];
+    }
+
+    /**
+     * Retourne un paramètre d'un module.
+     * @param index la position du module
+     * @param rang le rang du paramètre dans le module, à partir de 0
+     * @return la valeur du paramètre
+     */
+    public double parametre(long index, int rang) {
+        int module = Objects.checkIndex(Math.toIntExact(index), symboles.length());
+        return valeurs[debuts[module] + Objects.checkIndex(rang, fin(module) - debuts[module])];
+    }
+
+    /**
+     * Retourne la position, dans le tableau des valeurs, qui suit le dernier paramètre d'un module.
+     * @param module la position du module
+     * @return la fin des paramètres du module
+     */
+    private int fin(int module) {
+        return module + 1 < symboles.length() ? debuts[module + 1] : nbValeurs;
+    }
+
+    /**
+     * Retourne le tableau interne des positions des premiers paramètres, dont seuls les {@link #taille()} premiers
+     * éléments sont significatifs.
+     * @return le tableau des positions des premiers paramètres
+     */
+    int[] debuts() {
+        return this.debuts;
+    }
+
+    /**
+     * Retourne le tableau interne des valeurs des paramètres, dont seuls les {@link #getNbValeurs()} premiers
+     * éléments sont significatifs.
+     * @return le tableau des valeurs des paramètres
+     */
+    double[] valeurs() {
+        return this.valeurs;
+    }
+
+    /**
+     * Retourne le nombre total de paramètres de la génération.
+     * @return le nombre de valeurs de paramètres
+     */
+    public int getNbValeurs() {
+        return this.nbValeurs;
+    }
+
+    /**
+     * Transmet au récepteur, dans l'ordre, chaque module de la génération avec ses paramètres.
+     * @param recepteur le récepteur des modules
+     */
+    public void parcoursModules(RecepteurModules recepteur) {
+        byte[] codes = symboles.tableau();
+        int taille = symboles.length();
+        for (int module = 0; module < taille; module++) {
+            int debut = debuts[module];
+            recepteur.recoit((char) (codes[module] & 0xFF), valeurs, debut, fin(module) - debut);
+        }
+    }
+
+    @Override
+    public long taille() {
+        return symboles.taille();
+    }
+
+    @Override
+    public char symbole(long index) {
+        return symboles.symbole(index);
+    }
+
+    @Override
+    public void parcours(RecepteurSymboles recepteur) {
+        // Une tortue, ou tout autre récepteur qui sait lire les paramètres, reçoit les modules complets.
+        if (recepteur instanceof RecepteurModules)
+            parcoursModules((RecepteurModules) recepteur);
+        else
+            symboles.parcours(recepteur);
+    }
+
+    @Override
+    public SequenceSymboles tranche(long debut, long fin) {
+        Objects.checkFromToIndex(debut, fin, taille());
+        ChaineParametree tranche = new ChaineParametree((int) (fin - debut));
+        byte[] codes = symboles.tableau();
+        for (int module = (int) debut; module < fin; module++) {
+            tranche.ajoute(codes[module]);
+            for (int valeur = debuts[module]; valeur < fin(module); valeur++)
+                tranche.ajouteParametre(valeurs[valeur]);
+        }
+        return tranche;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder chaine = new StringBuilder();
+        byte[] codes = symboles.tableau();
+        for (int module = 0; module < symboles.length(); module++) {
+            chaine.append((char) (codes[module] & 0xFF));
+            for (int valeur = debuts[module]; valeur < fin(module); valeur++) {
+                chaine.append(valeur == debuts[module] ? '(' : ',');
+                double parametre = valeurs[valeur];
+                if (parametre == Math.rint(parametre) && Math.abs(parametre) < 1e15)
+                    chaine.append((long) parametre);
+                else
+                    chaine.append(parametre);
+                if (valeur == fin(module) - 1)
+                    chaine.append(')');
+            }
+        }
+        return chaine.toString();
+    }
+}
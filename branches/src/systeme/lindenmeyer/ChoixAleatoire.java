@@ -0,0 +1,69 @@
+package systeme.lindenmeyer;
+
+/**
+ * Le choix pondéré et reproductible des productions d'un système stochastique.
+ * Le tirage de chaque symbole ne dépend que de la graine du système, de l'itération et de la position du symbole
+ * dans la chaîne réécrite : il est obtenu en mélangeant ces trois valeurs par la fonction de SplitMix64, celle qui dérive
+ * les nombres d'un {@link java.util.SplittableRandom}. Une même graine donne donc toujours la même génération,
+ * que la chaîne soit réécrite d'un bloc, par morceaux sur plusieurs processeurs ou symbole par symbole au fil de l'eau,
+ * et le choix ne garde aucun état : il peut être partagé entre plusieurs threads.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ChoixAleatoire implements MoteurReecriture.ChoixAlternative {
+    /** L'incrément de SplitMix64, partie fractionnaire du nombre d'or. */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * La grammaire compilée du système, qui donne le poids de chaque production.
+     * La graine du système.
+     */
+    private final GrammaireCompilee grammaire;
+    private final long graine;
+
+    /**
+     * Construit le choix des productions d'un système.
+     * @param grammaire la grammaire compilée du système
+     * @param graine la graine du système
+     */
+    public ChoixAleatoire(GrammaireCompilee grammaire, long graine) {
+        this.grammaire = grammaire;
+        this.graine = graine;
+    }
+
+    /**
+     * Retourne la graine du système.
+     * @return la graine du système
+     */
+    public long getGraine() {
+        return this.graine;
+    }
+
+    /**
+     * Mélange les bits d'un entier de 64 bits (fonction de finalisation de SplitMix64).
+     * @param valeur l'entier à mélanger
+     * @return l'entier mélangé
+     */
+    private static long melange(long valeur) {
+        valeur = (valeur ^ (valeur >>> 30)) * 0xBF58476D1CE4E5B9L;
+        valeur = (valeur ^ (valeur >>> 27)) * 0x94D049BB133111EBL;
+        return valeur ^ (valeur >>> 31);
+    }
+
+    /**
+     * Retourne le tirage d'un symbole, uniforme entre 0 inclus et 1 exclu.
+     * @param graine la graine du système
+     * @param iteration l'itération qui réécrit le symbole
+     * @param position la position du symbole dans la chaîne réécrite
+     * @return le tirage du symbole
+     */
+    public static double tirage(long graine, int iteration, long position) {
+        long flux = melange(graine + GAMMA * (iteration + 1L));
+        return (melange(flux + GAMMA * (position + 1)) >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public int choisit(int symbole, int nbAlternatives, int iteration, long position) {
+        return grammaire.alternative(symbole, tirage(graine, iteration, position));
+    }
+}
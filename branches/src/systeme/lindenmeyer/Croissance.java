@@ -0,0 +1,103 @@
+package systeme.lindenmeyer;
+
+/**
+ * Les générations successives d'un système, de l'axiome à la dernière itération demandée, dérivées une seule fois
+ * pour animer sa croissance. La croissance d'une génération à la suivante est décrite par la filiation des symboles :
+ * dans la production d'un symbole, la première occurrence de ce même symbole le prolonge, et les autres symboles
+ * sont nouveaux. Interprétée à un avancement t entre 0 et 1, une génération trace ses symboles anciens en entier,
+ * tandis que ses nouveaux traits et ses nouvelles rotations sont réduits dans la proportion t : à t = 0 le dessin
+ * est celui de la génération précédente, les branches naissantes étant de longueur nulle, et à t = 1 celui
+ * de la génération elle-même.
+ * Les générations dont la filiation n'est pas connue, comme celles d'un système contextuel ou paramétré,
+ * passent directement d'un dessin à l'autre.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class Croissance {
+    /**
+     * Les générations, de l'axiome (indice 0) à la dernière itération.
+     * Les marques des symboles nouveaux de chaque génération, un bit par symbole (null si la filiation n'est pas connue).
+     * Le paramètre transmis à la tortue pour un symbole nouveau, réutilisé d'un symbole à l'autre.
+     */
+    private final SequenceSymboles[] generations;
+    private final long[][] nouveaux;
+    private final double[] parametre;
+
+    /**
+     * Construit la croissance d'un système à partir de ses générations.
+     * @param generations les générations, de l'axiome à la dernière itération
+     * @param nouveaux les marques des symboles nouveaux de chaque génération, ou null pour une génération sans filiation
+     */
+    Croissance(SequenceSymboles[] generations, long[][] nouveaux) {
+        if (generations.length != nouveaux.length)
+            throw new IllegalArgumentException("Chaque génération doit avoir ses marques de filiation.");
+        this.generations = generations;
+        this.nouveaux = nouveaux;
+        this.parametre = new double[1];
+    }
+
+    /**
+     * Retourne le nombre d'itérations de la croissance.
+     * @return le nombre d'itérations, l'axiome n'en comptant pas
+     */
+    public int getNbIterations() {
+        return generations.length - 1;
+    }
+    /**
+     * Retourne une génération de la croissance.
+     * @param iteration le numéro de la génération, 0 pour l'axiome
+     * @return la génération demandée
+     */
+    public SequenceSymboles getGeneration(int iteration) {
+        return generations[iteration];
+    }
+    /**
+     * Retourne la longueur cumulée de toutes les générations de la croissance.
+     * @return le nombre total de symboles conservés
+     */
+    public long getNbSymboles() {
+        long nbSymboles = 0;
+        for (SequenceSymboles generation : generations)
+            nbSymboles += generation.taille();
+        return nbSymboles;
+    }
+
+    /**
+     * Interprète une génération à un avancement donné de sa croissance, sans créer d'objet.
+     * @param iteration le numéro de la génération, 0 pour l'axiome
+     * @param avancement l'avancement de la croissance depuis la génération précédente, entre 0 et 1
+     * @param angle l'angle (en degrés) d'une rotation du système
+     * @param tortue la tortue qui interprète la génération
+     */
+    public void interprete(int iteration, double avancement, double angle, Tortue tortue) {
+        long[] marques = nouveaux[iteration];
+        if (marques == null || avancement >= 1) {
+            generations[iteration].parcours(tortue);
+            return;
+        }
+        SequenceSymboles generation = generations[iteration];
+        long taille = generation.taille();
+        for (int position = 0; position < taille; position++) {
+            char symbole = generation.symbole(position);
+            if ((marques[position >>> 6] & 1L << position) == 0) {
+                tortue.recoit(symbole);
+                continue;
+            }
+            switch (symbole) {
+                case 'F':
+                case 'f':
+                    parametre[0] = avancement;
+                    tortue.recoit(symbole, parametre, 0, 1);
+                    break;
+                case '+':
+                case '-':
+                    parametre[0] = angle * avancement;
+                    tortue.recoit(symbole, parametre, 0, 1);
+                    break;
+                default:
+                    tortue.recoit(symbole);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+
+/**
+ * Une dérivation en profondeur d'abord qui produit les symboles de la n-ième génération au fil de l'eau.
+ * Chaque symbole est développé règle par règle jusqu'à la profondeur voulue puis transmis directement
+ * à un {@link RecepteurSymboles}. Seule la production en cours de lecture à chaque niveau est conservée,
+ * la mémoire utilisée est donc proportionnelle au nombre d'itérations et non à la longueur de la génération.
+ * Le rang de chaque symbole dans sa génération est suivi au fil du parcours, pour que les choix d'un système stochastique
+ * soient ceux d'une réécriture en mémoire.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class DerivationFlux {
+    /**
+     * La grammaire compilée du système.
+     * Le choix des productions pour les symboles qui en ont plusieurs (null pour un système déterministe).
+     */
+    private final GrammaireCompilee grammaire;
+    private final MoteurReecriture.ChoixAlternative choix;
+
+    /**
+     * Construit une dérivation au fil de l'eau.
+     * @param grammaire la grammaire compilée du système
+     * @param choix le choix des productions, ou null pour toujours appliquer la dernière règle définie
+     */
+    public DerivationFlux(GrammaireCompilee grammaire, MoteurReecriture.ChoixAlternative choix) {
+        this.grammaire = grammaire;
+        this.choix = choix;
+    }
+
+    /**
+     * Transmet au récepteur, dans l'ordre, chaque symbole de la génération obtenue après le nombre d'itérations donné.
+     * @param axiome la chaîne de départ
+     * @param nbIterations le nombre d'itérations
+     * @param recepteur le récepteur des symboles de la génération
+     */
+    public void parcours(CharSequence axiome, int nbIterations, RecepteurSymboles recepteur) {
+        // chaines[p] est la production en cours de lecture à la profondeur p, positions[p] la position du prochain symbole à lire.
+        byte[][] chaines = new byte[nbIterations + 1][];
+        int[] positions = new int[nbIterations + 1];
+        // rangs[p] est la position, dans la p-ième génération, du prochain symbole lu à la profondeur p.
+        long[] rangs = choix == null ? null : new long[nbIterations + 1];
+        TamponSymboles depart = new TamponSymboles(axiome);
+        chaines[0] = Arrays.copyOf(depart.tableau(), depart.length());
+        int profondeur = 0;
+        while (profondeur >= 0) {
+            byte[] chaine = chaines[profondeur];
+            if (positions[profondeur] == chaine.length) {
+                profondeur--;
+                continue;
+            }
+            int symbole = chaine[positions[profondeur]++] & 0xFF;
+            byte[][] alternatives = profondeur == nbIterations ? null : grammaire.alternatives(symbole);
+            // Un symbole sans règle est conservé tel quel jusqu'à la dernière génération.
+            if (alternatives == null) {
+                if (rangs != null)
+                    for (int generation = profondeur; generation <= nbIterations; generation++)
+                        rangs[generation]++;
+                recepteur.recoit((char) symbole);
+                continue;
+            }
+            if (alternatives.length == 1 || choix == null)
+                chaines[profondeur + 1] = alternatives[alternatives.length - 1];
+            else
+                chaines[profondeur + 1] = alternatives[choix.choisit(symbole, alternatives.length, profondeur, rangs[profondeur])];
+            if (rangs != null)
+                rangs[profondeur]++;
+            profondeur++;
+            positions[profondeur] = 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package systeme.lindenmeyer;
+
+/**
+ * Reçoit les mouvements d'une {@link Tortue} : c'est par cette interface que les différents moteurs de rendu,
+ * d'export ou de mesure réutilisent le même interprète des symboles.
+ * Seuls les traits doivent être traités, les autres événements étant ignorés par défaut.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@FunctionalInterface
+public interface EcouteurTortue {
+    /**
+     * Appelée lorsque la tortue avance en dessinant un trait.
+     * @param x1 l'abscisse de départ du trait
+     * @param y1 l'ordonnée de départ du trait
+     * @param x2 l'abscisse d'arrivée du trait
+     * @param y2 l'ordonnée d'arrivée du trait
+     */
+    public void trait(double x1, double y1, double x2, double y2);
+
+    /**
+     * Appelée lorsque la tortue avance sans dessiner.
+     * @param x1 l'abscisse de départ du déplacement
+     * @param y1 l'ordonnée de départ du déplacement
+     * @param x2 l'abscisse d'arrivée du déplacement
+     * @param y2 l'ordonnée d'arrivée du déplacement
+     */
+    public default void saut(double x1, double y1, double x2, double y2) {
+    }
+
+    /**
+     * Appelée lorsque la tortue ouvre une branche en sauvegardant son état.
+     * @param x l'abscisse de la tortue
+     * @param y l'ordonnée de la tortue
+     */
+    public default void empile(double x, double y) {
+    }
+
+    /**
+     * Appelée lorsque la tortue ferme une branche et revient à l'état sauvegardé.
+     * @param x l'abscisse à laquelle la tortue revient
+     * @param y l'ordonnée à laquelle la tortue revient
+     */
+    public default void depile(double x, double y) {
+    }
+}
@@ -0,0 +1,22 @@
+package systeme.lindenmeyer;
+
+/**
+ * Reçoit les branches tracées par une {@link Tortue3D} : c'est par cette interface que les exports en volume
+ * réutilisent l'interprète des symboles.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@FunctionalInterface
+public interface EcouteurTortue3D {
+    /**
+     * Appelée lorsque la tortue avance en traçant une branche.
+     * @param x1 l'abscisse de départ de la branche
+     * @param y1 l'ordonnée de départ de la branche
+     * @param z1 la cote de départ de la branche
+     * @param x2 l'abscisse d'arrivée de la branche
+     * @param y2 l'ordonnée d'arrivée de la branche
+     * @param z2 la cote d'arrivée de la branche
+     * @param rayon le rayon de la branche
+     */
+    public void trait(double x1, double y1, double z1, double x2, double y2, double z2, double rayon);
+}
@@ -0,0 +1,49 @@
+package systeme.lindenmeyer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * L'événement JFR émis à la fin de chaque phase mesurée par {@link Mesures}.
+ * Il n'est enregistré que si un enregistrement JFR est en cours, par exemple avec l'option
+ * <pre>-XX:StartFlightRecording=filename=lindenmeyer.jfr</pre>
+ * et se lit avec <code>jfr print --events systeme.lindenmeyer.Phase lindenmeyer.jfr</code>.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@Name("systeme.lindenmeyer.Phase")
+@Label("Phase d'un L-système")
+@Description("Une phase de la génération ou du dessin d'un système de Lindenmeyer")
+@Category("Système de Lindenmeyer")
+@StackTrace(false)
+class EvenementPhase extends Event {
+    /**
+     * La phase mesurée.
+     * Le numéro de l'itération concernée (0 si la phase ne concerne pas une itération).
+     */
+    @Label("Phase")
+    String phase;
+    @Label("Itération")
+    int iteration;
+    /**
+     * Le nombre de symboles lus et produits.
+     * Le nombre d'octets alloués par le thread pendant la phase (-1 si la JVM ne le mesure pas).
+     * Le nombre de traits émis par la tortue et de commandes de tracé envoyées au canvas.
+     */
+    @Label("Symboles lus")
+    long symbolesEntree;
+    @Label("Symboles produits")
+    long symbolesSortie;
+    @Label("Octets alloués")
+    @DataAmount
+    long octetsAlloues;
+    @Label("Traits")
+    long nbTraits;
+    @Label("Commandes du canvas")
+    long nbCommandes;
+}
@@ -0,0 +1,423 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Une expression arithmétique des règles paramétrées, analysée une seule fois et compilée en une suite d'instructions
+ * pour une machine à pile : l'évaluer pour chaque module réécrit ne relit jamais le texte et ne crée aucun objet.
+ * Une expression combine des nombres, les paramètres formels de la règle, les opérateurs "+", "-", "*", "/", "^"
+ * (puissance), les comparaisons "&lt;", "&lt;=", "&gt;", "&gt;=", "==", "!=", les opérateurs logiques "&amp;&amp;", "||", "!"
+ * et les fonctions sqrt, abs, exp, log, floor, ceil, sin, cos et tan, ces trois dernières prenant des degrés
+ * comme les angles du système. Une comparaison vaut 1 si elle est vraie et 0 sinon ; une valeur non nulle est vraie.
+ * Une expression sans paramètre est calculée dès la compilation.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ExpressionCompilee {
+    /**
+     * Les instructions de la machine à pile : l'octet de poids faible code l'opération,
+     * les bits suivants son opérande (l'indice d'une constante ou d'un paramètre).
+     */
+    private static final int CONSTANTE = 0, PARAMETRE = 1, ADDITION = 2, SOUSTRACTION = 3, MULTIPLICATION = 4, DIVISION = 5,
+                             PUISSANCE = 6, OPPOSE = 7, NEGATION = 8, INFERIEUR = 9, INFERIEUR_EGAL = 10, SUPERIEUR = 11,
+                             SUPERIEUR_EGAL = 12, EGAL = 13, DIFFERENT = 14, ET = 15, OU = 16, FONCTION = 17;
+    /** Les fonctions reconnues, dans l'ordre de leur opérande. */
+    private static final List<String> FONCTIONS = Arrays.asList("sqrt", "abs", "exp", "log", "floor", "ceil", "sin", "cos", "tan");
+
+    /**
+     * Le texte de l'expression.
+     * Les instructions de l'expression.
+     * Les constantes de l'expression.
+     * La hauteur maximale de la pile pendant l'évaluation.
+     */
+    private final String texte;
+    private final int[] instructions;
+    private final double[] constantes;
+    private final int hauteurPile;
+
+    /**
+     * Compile une expression.
+     * @param texte le texte de l'expression
+     * @param parametres les noms des paramètres formels, dans l'ordre de leurs valeurs
+     * @exception IllegalArgumentException si l'expression est invalide ou utilise un paramètre inconnu
+     */
+    public ExpressionCompilee(String texte, List<String> parametres) {
+        this.texte = texte;
+        Analyseur analyseur = new Analyseur(texte, parametres);
+        analyseur.expression();
+        analyseur.saute();
+        if (analyseur.position < texte.length())
+            throw analyseur.erreur("caractère inattendu '" + texte.charAt(analyseur.position) + "'");
+        int[] code = Arrays.copyOf(analyseur.code, analyseur.nbInstructions);
+        double[] valeurs = Arrays.copyOf(analyseur.constantes, analyseur.nbConstantes);
+        boolean constante = true;
+        for (int instruction : code)
+            constante &= (instruction & 0xFF) != PARAMETRE;
+        if (constante && code.length > 1) {
+            // Une expression sans paramètre vaut toujours la même chose : elle se réduit à sa valeur.
+            valeurs = new double[] {execute(code, valeurs, null, 0, new double[analyseur.hauteurMax])};
+            code = new int[] {CONSTANTE};
+        }
+        this.instructions = code;
+        this.constantes = valeurs;
+        this.hauteurPile = constante ? 1 : analyseur.hauteurMax;
+    }
+
+    /**
+     * Retourne le texte de l'expression.
+     * @return le texte de l'expression
+     */
+    public String getTexte() {
+        return this.texte;
+    }
+
+    /**
+     * Retourne la hauteur de pile nécessaire à l'évaluation de l'expression.
+     * @return la hauteur de pile nécessaire
+     */
+    public int getHauteurPile() {
+        return this.hauteurPile;
+    }
+
+    /**
+     * Indique si l'expression ne dépend d'aucun paramètre.
+     * @return true si l'expression a toujours la même valeur
+     */
+    public boolean estConstante() {
+        return instructions.length == 1 && instructions[0] == CONSTANTE;
+    }
+
+    /**
+     * Évalue l'expression pour les valeurs données des paramètres formels.
+     * @param valeurs le tableau contenant les valeurs des paramètres
+     * @param debut la position de la valeur du premier paramètre dans le tableau
+     * @param pile la pile de l'évaluation, d'au moins {@link #getHauteurPile()} valeurs, réutilisable d'une évaluation à l'autre
+     * @return la valeur de l'expression
+     */
+    public double evalue(double[] valeurs, int debut, double[] pile) {
+        return execute(instructions, constantes, valeurs, debut, pile);
+    }
+
+    /**
+     * Évalue une expression sans paramètre.
+     * @return la valeur de l'expression
+     * @exception IllegalStateException si l'expression dépend d'un paramètre
+     */
+    public double evalue() {
+        if (!estConstante())
+            throw new IllegalStateException("L'expression \"" + texte + "\" dépend de paramètres.");
+        return constantes[0];
+    }
+
+    /**
+     * Exécute des instructions de la machine à pile.
+     * @param code les instructions
+     * @param constantes les constantes des instructions
+     * @param valeurs le tableau contenant les valeurs des paramètres
+     * @param debut la position de la valeur du premier paramètre dans le tableau
+     * @param pile la pile de l'évaluation
+     * @return la valeur restée au sommet de la pile
+     */
+    private static double execute(int[] code, double[] constantes, double[] valeurs, int debut, double[] pile) {
+        int hauteur = 0;
+        for (int instruction : code) {
+            int operande = instruction >>> 8;
+            switch (instruction & 0xFF) {
+                case CONSTANTE:
+                    pile[hauteur++] = constantes[operande];
+                    break;
+                case PARAMETRE:
+                    pile[hauteur++] = valeurs[debut + operande];
+                    break;
+                case OPPOSE:
+                    pile[hauteur - 1] = -pile[hauteur - 1];
+                    break;
+                case NEGATION:
+                    pile[hauteur - 1] = pile[hauteur - 1] == 0 ? 1 : 0;
+                    break;
+                case FONCTION:
+                    pile[hauteur - 1] = fonction(operande, pile[hauteur - 1]);
+                    break;
+                default:
+                    double droite = pile[--hauteur];
+                    pile[hauteur - 1] = operation(instruction & 0xFF, pile[hauteur - 1], droite);
+                    break;
+            }
+        }
+        return pile[0];
+    }
+
+    /**
+     * Applique une opération binaire.
+     * @param operation le code de l'opération
+     * @param gauche l'opérande gauche
+     * @param droite l'opérande droit
+     * @return le résultat de l'opération
+     */
+    private static double operation(int operation, double gauche, double droite) {
+        switch (operation) {
+            case ADDITION: return gauche + droite;
+            case SOUSTRACTION: return gauche - droite;
+            case MULTIPLICATION: return gauche * droite;
+            case DIVISION: return gauche / droite;
+            case PUISSANCE: return Math.pow(gauche, droite);
+            case INFERIEUR: return gauche < droite ? 1 : 0;
+            case INFERIEUR_EGAL: return gauche <= droite ? 1 : 0;
+            case SUPERIEUR: return gauche > droite ? 1 : 0;
+            case SUPERIEUR_EGAL: return gauche >= droite ? 1 : 0;
+            case EGAL: return gauche == droite ? 1 : 0;
+            case DIFFERENT: return gauche != droite ? 1 : 0;
+            case ET: return gauche != 0 && droite != 0 ? 1 : 0;
+            case OU: return gauche != 0 || droite != 0 ? 1 : 0;
+            default: throw new IllegalStateException("Instruction inconnue : " + operation + ".");
+        }
+    }
+
+    /**
+     * Applique une fonction.
+     * @param fonction l'indice de la fonction dans {@link #FONCTIONS}
+     * @param valeur l'argument de la fonction
+     * @return le résultat de la fonction
+     */
+    private static double fonction(int fonction, double valeur) {
+        switch (fonction) {
+            case 0: return Math.sqrt(valeur);
+            case 1: return Math.abs(valeur);
+            case 2: return Math.exp(valeur);
+            case 3: return Math.log(valeur);
+            case 4: return Math.floor(valeur);
+            case 5: return Math.ceil(valeur);
+            case 6: return Math.sin(Math.toRadians(valeur));
+            case 7: return Math.cos(Math.toRadians(valeur));
+            case 8: return Math.tan(Math.toRadians(valeur));
+            default: throw new IllegalStateException("Fonction inconnue : " + fonction + ".");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.texte;
+    }
+
+    /**
+     * L'analyseur d'une expression, par descente récursive, qui émet les instructions au fil de la lecture.
+     */
+    private static class Analyseur {
+        /**
+         * Le texte analysé et la position de lecture.
+         * Les noms des paramètres formels.
+         * Les instructions émises et leur nombre.
+         * Les constantes lues et leur nombre.
+         * La hauteur de la pile après les instructions émises, et sa hauteur maximale.
+         */
+        private final String texte;
+        private int position;
+        private final List<String> parametres;
+        private int[] code = new int[16];
+        private int nbInstructions;
+        private double[] constantes = new double[8];
+        private int nbConstantes;
+        private int hauteur, hauteurMax;
+
+        /**
+         * Construit l'analyseur d'une expression.
+         * @param texte le texte de l'expression
+         * @param parametres les noms des paramètres formels
+         */
+        private Analyseur(String texte, List<String> parametres) {
+            this.texte = texte;
+            this.parametres = parametres;
+        }
+
+        /**
+         * Construit l'erreur signalant une expression invalide.
+         * @param message la cause de l'erreur
+         * @return l'erreur
+         */
+        private IllegalArgumentException erreur(String message) {
+            return new IllegalArgumentException("Expression \"" + texte + "\" invalide : " + message + ".");
+        }
+
+        /**
+         * Émet une instruction en suivant la hauteur de la pile.
+         * @param operation le code de l'opération
+         * @param operande l'opérande de l'instruction
+         * @param variation la variation de la hauteur de la pile après l'instruction
+         */
+        private void emet(int operation, int operande, int variation) {
+            if (nbInstructions == code.length)
+                code = Arrays.copyOf(code, 2 * code.length);
+            code[nbInstructions++] = operation | operande << 8;
+            hauteur += variation;
+            hauteurMax = Math.max(hauteurMax, hauteur);
+        }
+
+        /**
+         * Saute les espaces.
+         */
+        private void saute() {
+            while (position < texte.length() && Character.isWhitespace(texte.charAt(position)))
+                position++;
+        }
+
+        /**
+         * Lit un opérateur s'il se trouve à la position de lecture.
+         * @param operateur l'opérateur attendu
+         * @return true si l'opérateur a été lu
+         */
+        private boolean lit(String operateur) {
+            saute();
+            if (!texte.startsWith(operateur, position))
+                return false;
+            position += operateur.length();
+            return true;
+        }
+
+        /** expression := et ("||" et)* */
+        private void expression() {
+            et();
+            while (lit("||")) {
+                et();
+                emet(OU, 0, -1);
+            }
+        }
+
+        /** et := comparaison ("&amp;&amp;" comparaison)* */
+        private void et() {
+            comparaison();
+            while (lit("&&")) {
+                comparaison();
+                emet(ET, 0, -1);
+            }
+        }
+
+        /** comparaison := somme (("&lt;=" | "&gt;=" | "==" | "!=" | "&lt;" | "&gt;") somme)? */
+        private void comparaison() {
+            somme();
+            int operation;
+            if (lit("<="))
+                operation = INFERIEUR_EGAL;
+            else if (lit(">="))
+                operation = SUPERIEUR_EGAL;
+            else if (lit("=="))
+                operation = EGAL;
+            else if (lit("!="))
+                operation = DIFFERENT;
+            else if (lit("<"))
+                operation = INFERIEUR;
+            else if (lit(">"))
+                operation = SUPERIEUR;
+            else
+                return;
+            somme();
+            emet(operation, 0, -1);
+        }
+
+        /** somme := produit (("+" | "-") produit)* */
+        private void somme() {
+            produit();
+            while (true) {
+                if (lit("+")) {
+                    produit();
+                    emet(ADDITION, 0, -1);
+                } else if (lit("-")) {
+                    produit();
+                    emet(SOUSTRACTION, 0, -1);
+                } else
+                    return;
+            }
+        }
+
+        /** produit := unaire (("*" | "/") unaire)* */
+        private void produit() {
+            unaire();
+            while (true) {
+                if (lit("*")) {
+                    unaire();
+                    emet(MULTIPLICATION, 0, -1);
+                } else if (lit("/")) {
+                    unaire();
+                    emet(DIVISION, 0, -1);
+                } else
+                    return;
+            }
+        }
+
+        /** unaire := ("-" | "!") unaire | puissance */
+        private void unaire() {
+            if (lit("-")) {
+                unaire();
+                emet(OPPOSE, 0, 0);
+            } else if (lit("!")) {
+                unaire();
+                emet(NEGATION, 0, 0);
+            } else
+                puissance();
+        }
+
+        /** puissance := primaire ("^" unaire)? */
+        private void puissance() {
+            primaire();
+            if (lit("^")) {
+                unaire();
+                emet(PUISSANCE, 0, -1);
+            }
+        }
+
+        /** primaire := nombre | paramètre | fonction "(" expression ")" | "(" expression ")" */
+        private void primaire() {
+            saute();
+            if (position == texte.length())
+                throw erreur("expression incomplète");
+            char caractere = texte.charAt(position);
+            if (lit("(")) {
+                expression();
+                if (!lit(")"))
+                    throw erreur("parenthèse non fermée");
+            } else if (Character.isDigit(caractere) || caractere == '.') {
+                int debut = position;
+                while (position < texte.length() && (Character.isDigit(texte.charAt(position)) || texte.charAt(position) == '.'))
+                    position++;
+                if (position < texte.length() && (texte.charAt(position) == 'e' || texte.charAt(position) == 'E')) {
+                    int exposant = position + 1;
+                    if (exposant < texte.length() && (texte.charAt(exposant) == '+' || texte.charAt(exposant) == '-'))
+                        exposant++;
+                    if (exposant < texte.length() && Character.isDigit(texte.charAt(exposant))) {
+                        position = exposant;
+                        while (position < texte.length() && Character.isDigit(texte.charAt(position)))
+                            position++;
+                    }
+                }
+                double valeur;
+                try {
+                    valeur = Double.parseDouble(texte.substring(debut, position));
+                } catch (NumberFormatException e) {
+                    throw erreur("nombre \"" + texte.substring(debut, position) + "\" invalide");
+                }
+                if (nbConstantes == constantes.length)
+                    constantes = Arrays.copyOf(constantes, 2 * constantes.length);
+                constantes[nbConstantes] = valeur;
+                emet(CONSTANTE, nbConstantes++, 1);
+            } else if (Character.isLetter(caractere) || caractere == '_') {
+                int debut = position;
+                while (position < texte.length() && (Character.isLetterOrDigit(texte.charAt(position)) || texte.charAt(position) == '_'))
+                    position++;
+                String nom = texte.substring(debut, position);
+                int parametre = parametres.indexOf(nom);
+                if (parametre >= 0) {
+                    emet(PARAMETRE, parametre, 1);
+                } else if (FONCTIONS.contains(nom)) {
+                    if (!lit("("))
+                        throw erreur("parenthèse attendue après la fonction " + nom);
+                    expression();
+                    if (!lit(")"))
+                        throw erreur("parenthèse non fermée");
+                    emet(FONCTION, FONCTIONS.indexOf(nom), 0);
+                } else
+                    throw erreur("paramètre inconnu \"" + nom + "\"");
+            } else
+                throw erreur("caractère inattendu '" + caractere + "'");
+        }
+    }
+}
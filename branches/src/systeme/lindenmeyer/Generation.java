@@ -30,6 +30,15 @@ public interface Generation {
      * @param gc le contexte graphique associé au canvas
      */
     public void dessineSysteme(String chaine, int longueur, Color couleur, Canvas canvas, GraphicsContext gc);
+    /**
+     * Dessine un système de L-système à partir d'une génération, quelle que soit sa représentation en mémoire.
+     * @param generation la génération qui contient les instructions pour dessiner l'arbre
+     * @param longueur la longueur du dessin
+     * @param couleur la couleur à utiliser pour dessiner l'arbre
+     * @param canvas le canvas sur lequel dessiner l'arbre
+     * @param gc le contexte graphique associé au canvas
+     */
+    public void dessineSysteme(SequenceSymboles generation, int longueur, Color couleur, Canvas canvas, GraphicsContext gc);
     /**
      * Retourne l'angle utilisé par le L-Système.
      * @return l'angle utilisé par le L-Système
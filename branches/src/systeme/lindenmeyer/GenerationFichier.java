@@ -0,0 +1,301 @@
+package systeme.lindenmeyer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Une génération stockée dans un fichier temporaire, un octet par symbole, et lue par projection en mémoire.
+ * Une projection ne pouvant dépasser 2 Go, le fichier est projeté en segments de {@value #TAILLE_SEGMENT} octets :
+ * la génération n'est limitée que par la place sur le disque, et non par la taille d'un tableau ou du tas.
+ * Les symboles sont lus directement dans les pages projetées, que le système charge et libère au fil du parcours ;
+ * {@link #parcours(RecepteurSymboles)} les recopie par blocs dans un petit tableau réutilisé.
+ * Le fichier est supprimé par {@link #close()} ou, à défaut, lorsque la génération et ses tranches ne sont plus utilisées.
+ * Une génération est écrite une fois, du premier au dernier symbole, par une {@link Ecriture}.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class GenerationFichier implements SequenceSymboles, AutoCloseable {
+    /**
+     * Le nombre de bits de la position d'un symbole dans son segment.
+     * La taille d'un segment projeté.
+     * Le nombre de symboles lus d'un coup lors d'un parcours.
+     */
+    private static final int BITS_SEGMENT = 30;
+    public static final int TAILLE_SEGMENT = 1 << BITS_SEGMENT;
+    private static final int TAILLE_BLOC = 1 << 16;
+    /** Le nettoyeur qui supprime les fichiers des générations oubliées sans avoir été fermées. */
+    private static final Cleaner NETTOYEUR = Cleaner.create();
+
+    /** La projection du fichier, partagée par la génération et ses tranches. */
+    private final Projection projection;
+    /** La position du premier symbole de la tranche et la position suivant son dernier symbole. */
+    private final long debut, fin;
+
+    /**
+     * Projette une génération entièrement écrite dans un fichier.
+     * @param fichier le fichier de la génération
+     * @param taille le nombre de symboles de la génération
+     * @exception IOException si le fichier ne peut pas être projeté
+     */
+    private GenerationFichier(Path fichier, long taille) throws IOException {
+        this.projection = new Projection(fichier, taille);
+        this.debut = 0;
+        this.fin = taille;
+    }
+
+    /**
+     * Construit une tranche d'une génération, qui partage ses segments.
+     * @param generation la génération découpée
+     * @param debut la position absolue du premier symbole de la tranche
+     * @param fin la position absolue suivant le dernier symbole de la tranche
+     */
+    private GenerationFichier(GenerationFichier generation, long debut, long fin) {
+        this.projection = generation.projection;
+        this.debut = debut;
+        this.fin = fin;
+    }
+
+    /**
+     * Recopie des symboles consécutifs de la génération dans un tableau.
+     * @param position la position, dans la génération, du premier symbole à lire
+     * @param destination le tableau dans lequel recopier les symboles
+     * @param longueur le nombre de symboles à lire
+     */
+    void lit(long position, byte[] destination, int longueur) {
+        long absolue = debut + position;
+        int lus = 0;
+        while (lus < longueur) {
+            MappedByteBuffer segment = projection.segments[(int) (absolue >>> BITS_SEGMENT)];
+            int index = (int) (absolue & (TAILLE_SEGMENT - 1));
+            int nbSymboles = Math.min(longueur - lus, segment.limit() - index);
+            segment.get(index, destination, lus, nbSymboles);
+            lus += nbSymboles;
+            absolue += nbSymboles;
+        }
+    }
+
+    @Override
+    public long taille() {
+        return fin - debut;
+    }
+
+    @Override
+    public char symbole(long index) {
+        Objects.checkIndex(index, taille());
+        long position = debut + index;
+        return (char) (projection.segments[(int) (position >>> BITS_SEGMENT)].get((int) (position & (TAILLE_SEGMENT - 1))) & 0xFF);
+    }
+
+    @Override
+    public void parcours(RecepteurSymboles recepteur) {
+        byte[] bloc = new byte[(int) Math.min(TAILLE_BLOC, taille())];
+        for (long position = 0; position < taille(); position += bloc.length) {
+            int longueur = (int) Math.min(bloc.length, taille() - position);
+            lit(position, bloc, longueur);
+            for (int indice = 0; indice < longueur; indice++)
+                recepteur.recoit((char) (bloc[indice] & 0xFF));
+        }
+    }
+
+    @Override
+    public GenerationFichier tranche(long debut, long fin) {
+        Objects.checkFromToIndex(debut, fin, taille());
+        return new GenerationFichier(this, this.debut + debut, this.debut + fin);
+    }
+
+    /**
+     * Supprime le fichier de la génération. La génération et ses tranches ne doivent plus être lues ensuite.
+     */
+    @Override
+    public void close() {
+        projection.suppression.clean();
+    }
+
+    /**
+     * Les segments projetés d'un fichier, référencés par la génération et par chacune de ses tranches :
+     * le fichier n'est supprimé par le nettoyeur que lorsque plus aucune d'elles ne peut le lire.
+     */
+    private static class Projection {
+        /**
+         * Les segments projetés du fichier, en lecture seule.
+         * La suppression du fichier, enregistrée auprès du nettoyeur.
+         */
+        private final MappedByteBuffer[] segments;
+        private final Cleaner.Cleanable suppression;
+
+        /**
+         * Projette un fichier entièrement écrit.
+         * @param fichier le fichier à projeter
+         * @param taille la taille du fichier
+         * @exception IOException si le fichier ne peut pas être projeté, auquel cas il est supprimé
+         */
+        Projection(Path fichier, long taille) throws IOException {
+            this.suppression = NETTOYEUR.register(this, new Suppression(fichier));
+            try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+                this.segments = new MappedByteBuffer[(int) ((taille + TAILLE_SEGMENT - 1) >>> BITS_SEGMENT)];
+                for (int segment = 0; segment < segments.length; segment++) {
+                    long position = (long) segment << BITS_SEGMENT;
+                    segments[segment] = canal.map(FileChannel.MapMode.READ_ONLY, position, Math.min(TAILLE_SEGMENT, taille - position));
+                }
+            } catch (IOException e) {
+                suppression.clean();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * La suppression du fichier d'une génération, qui ne doit retenir ni la génération ni sa projection.
+     */
+    private static class Suppression implements Runnable {
+        /** Le fichier à supprimer. */
+        private final Path fichier;
+
+        /**
+         * Construit la suppression d'un fichier.
+         * @param fichier le fichier à supprimer
+         */
+        Suppression(Path fichier) {
+            this.fichier = fichier;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(fichier);
+            } catch (IOException e) {
+                // Le fichier reste dans le répertoire temporaire, qui sera nettoyé par le système.
+            }
+        }
+    }
+
+    /**
+     * L'écriture séquentielle d'une génération dans un nouveau fichier temporaire.
+     * Les symboles sont accumulés dans un tableau de taille fixe écrit dans le fichier dès qu'il est plein.
+     */
+    public static class Ecriture implements AutoCloseable {
+        /** La taille du tampon d'écriture. */
+        private static final int TAILLE_TAMPON = 1 << 20;
+
+        /**
+         * Le fichier écrit et le canal par lequel il est écrit.
+         * Le tampon d'écriture et le nombre de symboles qu'il contient.
+         * Le nombre de symboles écrits dans le fichier.
+         * Indique si l'écriture a été terminée par {@link #termine()}.
+         */
+        private final Path fichier;
+        private final FileChannel canal;
+        private final byte[] tampon;
+        private int nbSymboles;
+        private long taille;
+        private boolean terminee;
+
+        /**
+         * Crée un fichier temporaire pour y écrire une génération.
+         * @param repertoire le répertoire dans lequel créer le fichier
+         * @param prefixe le début du nom du fichier
+         * @exception IOException si le fichier ne peut pas être créé
+         */
+        public Ecriture(Path repertoire, String prefixe) throws IOException {
+            this.fichier = Files.createTempFile(repertoire, prefixe, ".lsym");
+            this.canal = FileChannel.open(fichier, StandardOpenOption.WRITE);
+            this.tampon = new byte[TAILLE_TAMPON];
+        }
+
+        /**
+         * Retourne le nombre de symboles écrits.
+         * @return le nombre de symboles écrits
+         */
+        public long getTaille() {
+            return this.taille + this.nbSymboles;
+        }
+
+        /**
+         * Écrit le tampon dans le fichier et le vide.
+         */
+        private void vide() {
+            ByteBuffer octets = ByteBuffer.wrap(tampon, 0, nbSymboles);
+            try {
+                while (octets.hasRemaining())
+                    canal.write(octets);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            taille += nbSymboles;
+            nbSymboles = 0;
+        }
+
+        /**
+         * Ajoute un symbole déjà encodé sur un octet à la fin de la génération.
+         * @param symbole le code du symbole
+         * @exception UncheckedIOException si le fichier ne peut pas être écrit
+         */
+        void ajoute(byte symbole) {
+            if (nbSymboles == tampon.length)
+                vide();
+            tampon[nbSymboles++] = symbole;
+        }
+
+        /**
+         * Ajoute des symboles déjà encodés sur un octet à la fin de la génération.
+         * @param production les codes des symboles
+         * @exception UncheckedIOException si le fichier ne peut pas être écrit
+         */
+        void ajoute(byte[] production) {
+            if (nbSymboles + production.length > tampon.length) {
+                for (byte symbole : production)
+                    ajoute(symbole);
+                return;
+            }
+            System.arraycopy(production, 0, tampon, nbSymboles, production.length);
+            nbSymboles += production.length;
+        }
+
+        /**
+         * Ajoute un symbole à la fin de la génération.
+         * @param symbole le symbole
+         * @exception IllegalArgumentException si le symbole ne tient pas sur un octet
+         * @exception UncheckedIOException si le fichier ne peut pas être écrit
+         */
+        public void ajoute(char symbole) {
+            if (symbole > 0xFF)
+                throw new IllegalArgumentException("Symbole non supporté : '" + symbole + "'.");
+            ajoute((byte) symbole);
+        }
+
+        /**
+         * Termine l'écriture et projette la génération écrite. Le fichier appartient ensuite à la génération.
+         * @return la génération écrite
+         * @exception IOException si le fichier ne peut pas être écrit ou projeté
+         */
+        public GenerationFichier termine() throws IOException {
+            try {
+                vide();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            canal.close();
+            terminee = true;
+            return new GenerationFichier(fichier, taille);
+        }
+
+        /**
+         * Ferme le fichier ; s'il n'a pas été terminé, l'écriture est abandonnée et le fichier supprimé.
+         * @exception IOException si le fichier ne peut pas être fermé
+         */
+        @Override
+        public void close() throws IOException {
+            canal.close();
+            if (!terminee)
+                Files.deleteIfExists(fichier);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package systeme.lindenmeyer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Une génération de système de Lindenmeyer déterministe représentée sans être développée.
+ * Dans un tel système, toutes les occurrences d'un même symbole développé jusqu'à une même profondeur
+ * produisent la même chaîne : la génération est donc un graphe acyclique dont chaque nœud « symbole X à la profondeur k »
+ * est partagé par toutes ses occurrences. Seuls l'axiome, les productions et la longueur de chaque nœud sont conservés,
+ * soit quelques kilo-octets quelle que soit la longueur de la génération.
+ * L'accès à un symbole descend du sommet du graphe en s'aidant des longueurs, et le parcours d'une tranche
+ * saute d'un coup tous les nœuds qui la précèdent.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class GenerationPartagee implements SequenceSymboles {
+    /**
+     * La grammaire compilée du système.
+     * Les symboles de l'axiome.
+     * Le nombre d'itérations de la génération.
+     * La longueur de chaque symbole développé à chaque profondeur, indexée par profondeur puis par symbole.
+     */
+    private final GrammaireCompilee grammaire;
+    private final byte[] axiome;
+    private final int profondeur;
+    private final long[][] longueurs;
+    /** La position du premier symbole de la tranche et la position suivant son dernier symbole. */
+    private final long debut, fin;
+
+    /**
+     * Construit la génération demandée d'un système déterministe.
+     * @param grammaire la grammaire compilée du système
+     * @param axiome l'axiome du système
+     * @param profondeur le nombre d'itérations
+     * @exception IllegalArgumentException si le nombre d'itérations est négatif
+     * @exception IllegalStateException si la génération est trop longue pour que ses positions tiennent sur un entier long
+     */
+    public GenerationPartagee(GrammaireCompilee grammaire, CharSequence axiome, int profondeur) {
+        if (profondeur < 0)
+            throw new IllegalArgumentException("Le nombre d'itérations doit être positif.");
+        this.grammaire = grammaire;
+        this.axiome = new TamponSymboles(axiome).toString().getBytes(StandardCharsets.ISO_8859_1);
+        this.profondeur = profondeur;
+        this.longueurs = calculeLongueurs(grammaire, profondeur);
+        long longueur = 0;
+        for (byte symbole : this.axiome) {
+            long longueurSymbole = longueurs[profondeur][symbole & 0xFF];
+            longueur += longueurSymbole;
+            if (longueur < 0 || longueurSymbole == Long.MAX_VALUE)
+                throw new IllegalStateException("La génération " + profondeur + " compte plus de " + (Long.MAX_VALUE - 1) + " symboles.");
+        }
+        this.debut = 0;
+        this.fin = longueur;
+    }
+
+    /**
+     * Construit une tranche d'une génération, qui partage toute sa structure.
+     * @param generation la génération découpée
+     * @param debut la position absolue du premier symbole de la tranche
+     * @param fin la position absolue suivant le dernier symbole de la tranche
+     */
+    private GenerationPartagee(GenerationPartagee generation, long debut, long fin) {
+        this.grammaire = generation.grammaire;
+        this.axiome = generation.axiome;
+        this.profondeur = generation.profondeur;
+        this.longueurs = generation.longueurs;
+        this.debut = debut;
+        this.fin = fin;
+    }
+
+    /**
+     * Calcule, profondeur par profondeur, la longueur du développement de chaque symbole.
+     * Une longueur qui dépasse Long.MAX_VALUE est remplacée par Long.MAX_VALUE.
+     * @param grammaire la grammaire compilée du système
+     * @param profondeur le nombre d'itérations
+     * @return la longueur de chaque symbole, indexée par profondeur puis par symbole
+     */
+    private static long[][] calculeLongueurs(GrammaireCompilee grammaire, int profondeur) {
+        long[][] longueurs = new long[profondeur + 1][GrammaireCompilee.TAILLE_ALPHABET];
+        Arrays.fill(longueurs[0], 1);
+        for (int niveau = 1; niveau <= profondeur; niveau++)
+            for (int symbole = 0; symbole < GrammaireCompilee.TAILLE_ALPHABET; symbole++) {
+                byte[] production = grammaire.production(symbole);
+                if (production == null)
+                    longueurs[niveau][symbole] = 1;
+                else {
+                    long longueur = 0;
+                    for (byte produit : production) {
+                        longueur += longueurs[niveau - 1][produit & 0xFF];
+                        if (longueur < 0) {
+                            longueur = Long.MAX_VALUE;
+                            break;
+                        }
+                    }
+                    longueurs[niveau][symbole] = longueur;
+                }
+            }
+        return longueurs;
+    }
+
+    /**
+     * Retourne le nombre d'itérations de la génération.
+     * @return le nombre d'itérations de la génération
+     */
+    public int getProfondeur() {
+        return this.profondeur;
+    }
+
+    /**
+     * Retourne la longueur d'un symbole développé jusqu'à une profondeur donnée.
+     * @param symbole le symbole
+     * @param profondeur le nombre d'itérations appliquées au symbole, au plus celui de la génération
+     * @return la longueur du développement (Long.MAX_VALUE s'il dépasse la capacité d'un entier long)
+     */
+    public long longueur(char symbole, int profondeur) {
+        Objects.checkIndex(profondeur, this.profondeur + 1);
+        return symbole < GrammaireCompilee.TAILLE_ALPHABET ? longueurs[profondeur][symbole] : 1;
+    }
+
+    /**
+     * Indique si la séquence couvre toute la génération, et non une tranche de celle-ci.
+     * @return true si la séquence est la génération entière
+     */
+    public boolean estComplete() {
+        long longueur = 0;
+        for (byte symbole : axiome)
+            longueur += longueurs[profondeur][symbole & 0xFF];
+        return debut == 0 && fin == longueur;
+    }
+
+    @Override
+    public long taille() {
+        return fin - debut;
+    }
+
+    @Override
+    public char symbole(long index) {
+        Objects.checkIndex(index, taille());
+        long reste = debut + index;
+        byte[] chaine = axiome;
+        int niveau = profondeur;
+        while (true) {
+            for (byte octet : chaine) {
+                int symbole = octet & 0xFF;
+                long longueur = longueurs[niveau][symbole];
+                if (reste < longueur) {
+                    byte[] production = niveau == 0 ? null : grammaire.production(symbole);
+                    if (production == null)
+                        return (char) symbole;
+                    // Le symbole cherché est dans le développement de ce nœud : on y descend.
+                    chaine = production;
+                    niveau--;
+                    break;
+                }
+                reste -= longueur;
+            }
+        }
+    }
+
+    @Override
+    public void parcours(RecepteurSymboles recepteur) {
+        if (debut == fin)
+            return;
+        // La chaîne en cours de lecture et la position du prochain symbole à lire, pour chaque niveau du graphe.
+        byte[][] chaines = new byte[profondeur + 1][];
+        int[] positions = new int[profondeur + 1];
+        chaines[0] = axiome;
+        int niveau = 0;
+        long position = 0;
+        while (niveau >= 0) {
+            if (positions[niveau] == chaines[niveau].length) {
+                niveau--;
+                continue;
+            }
+            int symbole = chaines[niveau][positions[niveau]++] & 0xFF;
+            long longueur = longueurs[profondeur - niveau][symbole];
+            if (position + longueur <= debut) {
+                // Le nœud précède entièrement la tranche : il est sauté sans être développé.
+                position += longueur;
+                continue;
+            }
+            byte[] production = niveau == profondeur ? null : grammaire.production(symbole);
+            if (production == null) {
+                recepteur.recoit((char) symbole);
+                if (++position == fin)
+                    return;
+            } else {
+                niveau++;
+                chaines[niveau] = production;
+                positions[niveau] = 0;
+            }
+        }
+    }
+
+    @Override
+    public GenerationPartagee tranche(long debut, long fin) {
+        Objects.checkFromToIndex(debut, fin, taille());
+        return new GenerationPartagee(this, this.debut + debut, this.debut + fin);
+    }
+
+    @Override
+    public String toString() {
+        if (taille() > TamponSymboles.CAPACITE_MAXIMALE)
+            throw new IllegalStateException("La génération est trop longue pour être convertie en chaîne.");
+        StringBuilder chaine = new StringBuilder((int) taille());
+        parcours(chaine::append);
+        return chaine.toString();
+    }
+}
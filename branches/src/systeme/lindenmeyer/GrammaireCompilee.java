@@ -0,0 +1,181 @@
+package systeme.lindenmeyer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Les règles d'un système de Lindenmeyer compilées une seule fois en une table indexée par le code du symbole.
+ * Chaque production est stockée sous forme d'un tableau d'octets, ce qui permet de réécrire une génération
+ * sans aucune allocation ni conversion de caractère en objet.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class GrammaireCompilee {
+    /** Le nombre de symboles différents pouvant apparaître dans un L-système (alphabet ISO-8859-1). */
+    public static final int TAILLE_ALPHABET = 256;
+
+    /**
+     * Les productions de chaque symbole, dans l'ordre de définition des règles (null si le symbole n'a pas de règle).
+     * La longueur de la réécriture de chaque symbole dans un système déterministe (1 pour un symbole sans règle).
+     * La longueur de la plus longue production.
+     * Les poids cumulés des productions de chaque symbole, ramenés à une somme de 1 (null si le symbole n'a pas de règle).
+     */
+    private final byte[][][] productions;
+    private final int[] longueursProductions;
+    private final int longueurMaxProduction;
+    private final double[][] cumulsPoids;
+
+    /**
+     * Compile les règles données sous la forme de couples {symbole, production}, ou de triplets {symbole, production, poids}.
+     * Un même symbole peut avoir plusieurs productions, conservées dans l'ordre pour les systèmes stochastiques,
+     * qui les choisissent en proportion de leur poids (1 par défaut).
+     * @param regles le tableau des règles à compiler
+     * @exception IllegalArgumentException si une règle ne porte pas sur un unique symbole, contient un symbole non supporté
+     * ou a un poids qui n'est pas un nombre strictement positif
+     */
+    public GrammaireCompilee(String[][] regles) {
+        this.productions = new byte[TAILLE_ALPHABET][][];
+        this.cumulsPoids = new double[TAILLE_ALPHABET][];
+        int longueurMax = 1;
+        for (String[] regle : regles) {
+            if (regle[0].length() != 1)
+                throw new IllegalArgumentException("La règle \"" + regle[0] + "=" + regle[1] + "\" doit porter sur un unique symbole.");
+            int symbole = codeSymbole(regle[0].charAt(0));
+            byte[] production = encode(regle[1]);
+            double poids = regle.length > 2 ? poids(regle) : 1;
+            byte[][] alternatives = productions[symbole];
+            double[] cumuls = cumulsPoids[symbole];
+            if (alternatives == null) {
+                alternatives = new byte[][] {production};
+                cumuls = new double[] {poids};
+            } else {
+                alternatives = Arrays.copyOf(alternatives, alternatives.length + 1);
+                alternatives[alternatives.length - 1] = production;
+                cumuls = Arrays.copyOf(cumuls, cumuls.length + 1);
+                cumuls[cumuls.length - 1] = cumuls[cumuls.length - 2] + poids;
+            }
+            productions[symbole] = alternatives;
+            cumulsPoids[symbole] = cumuls;
+            longueurMax = Math.max(longueurMax, production.length);
+        }
+        for (double[] cumuls : cumulsPoids)
+            if (cumuls != null) {
+                double total = cumuls[cumuls.length - 1];
+                for (int alternative = 0; alternative < cumuls.length; alternative++)
+                    cumuls[alternative] /= total;
+            }
+        this.longueurMaxProduction = longueurMax;
+        this.longueursProductions = new int[TAILLE_ALPHABET];
+        for (int symbole = 0; symbole < TAILLE_ALPHABET; symbole++) {
+            byte[] production = production(symbole);
+            longueursProductions[symbole] = production == null ? 1 : production.length;
+        }
+    }
+
+    /**
+     * Retourne le code d'un symbole dans la table.
+     * @param symbole le symbole
+     * @return le code du symbole
+     * @exception IllegalArgumentException si le symbole ne tient pas sur un octet
+     */
+    private static int codeSymbole(char symbole) {
+        if (symbole >= TAILLE_ALPHABET)
+            throw new IllegalArgumentException("Symbole non supporté : '" + symbole + "'.");
+        return symbole;
+    }
+
+    /**
+     * Lit le poids d'une règle.
+     * @param regle la règle, sous la forme d'un triplet {symbole, production, poids}
+     * @return le poids de la règle
+     * @exception IllegalArgumentException si le poids n'est pas un nombre strictement positif
+     */
+    private static double poids(String[] regle) {
+        double poids;
+        try {
+            poids = Double.parseDouble(regle[2]);
+        } catch (NumberFormatException e) {
+            poids = Double.NaN;
+        }
+        if (!(poids > 0) || Double.isInfinite(poids))
+            throw new IllegalArgumentException("Le poids de la règle \"" + regle[0] + "=" + regle[1] + "\" doit être un nombre strictement positif.");
+        return poids;
+    }
+
+    /**
+     * Encode une production en tableau d'octets.
+     * @param production la production à encoder
+     * @return les symboles de la production
+     */
+    private static byte[] encode(String production) {
+        for (int position = 0; position < production.length(); position++)
+            codeSymbole(production.charAt(position));
+        return production.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Retourne les productions d'un symbole.
+     * @param symbole le code du symbole
+     * @return les productions du symbole, ou null si le symbole est conservé tel quel
+     */
+    byte[][] alternatives(int symbole) {
+        return productions[symbole];
+    }
+
+    /**
+     * Retourne la production d'un symbole dans un système déterministe.
+     * Comme lors de la lecture des règles, la dernière règle définie pour un symbole l'emporte.
+     * @param symbole le code du symbole
+     * @return la production du symbole, ou null si le symbole est conservé tel quel
+     */
+    public byte[] production(int symbole) {
+        byte[][] alternatives = productions[symbole];
+        return alternatives == null ? null : alternatives[alternatives.length - 1];
+    }
+
+    /**
+     * Retourne la longueur de la réécriture d'un symbole dans un système déterministe.
+     * @param symbole le code du symbole
+     * @return la longueur de la production du symbole, ou 1 si le symbole est conservé tel quel
+     */
+    public int longueurProduction(int symbole) {
+        return longueursProductions[symbole];
+    }
+
+    /**
+     * Retourne le nombre de productions définies pour un symbole.
+     * @param symbole le code du symbole
+     * @return le nombre de productions du symbole
+     */
+    public int nbAlternatives(int symbole) {
+        byte[][] alternatives = productions[symbole];
+        return alternatives == null ? 0 : alternatives.length;
+    }
+
+    /**
+     * Retourne la production d'un symbole choisie par un tirage uniforme, chaque production ayant une probabilité
+     * proportionnelle à son poids.
+     * @param symbole le code du symbole
+     * @param tirage un nombre entre 0 inclus et 1 exclu
+     * @return l'indice de la production choisie
+     * @exception IllegalArgumentException si le symbole n'a pas de règle
+     */
+    public int alternative(int symbole, double tirage) {
+        double[] cumuls = cumulsPoids[symbole];
+        if (cumuls == null)
+            throw new IllegalArgumentException("Le symbole '" + (char) symbole + "' n'a pas de règle.");
+        // Les symboles ont peu de productions : une recherche linéaire suffit.
+        int alternative = 0;
+        while (alternative < cumuls.length - 1 && tirage >= cumuls[alternative])
+            alternative++;
+        return alternative;
+    }
+
+    /**
+     * Retourne la longueur de la plus longue production, qui borne le facteur d'expansion d'une itération.
+     * @return la longueur de la plus longue production
+     */
+    public int getLongueurMaxProduction() {
+        return this.longueurMaxProduction;
+    }
+}
@@ -0,0 +1,312 @@
+package systeme.lindenmeyer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Les règles d'un système de Lindenmeyer contextuel, de la forme "G&lt;S&gt;D", compilées une seule fois.
+ * Une règle ne s'applique au symbole S que s'il est précédé du contexte gauche G et suivi du contexte droit D ;
+ * chaque contexte peut être omis ("G&lt;S", "S&gt;D", "S") ou remplacé par "*", qui accepte n'importe quel contexte.
+ * Les symboles de l'ensemble ignoré (les rotations par exemple) ne comptent pas dans la recherche des contextes.
+ * Les contextes respectent les branches : le contexte gauche d'un symbole est le symbole qui le précède dans sa branche
+ * ou, en début de branche, celui qui précède l'ouverture de la branche ; le contexte droit est le symbole qui le suit
+ * dans la même branche, les branches ouvertes entre les deux étant sautées, et rien en fin de branche.
+ * Lorsque plusieurs règles d'un symbole s'accordent avec ses contextes, la dernière définie est appliquée,
+ * comme dans une {@link GrammaireCompilee} ; un symbole sans règle applicable est recopié.
+ * Les voisins de chaque symbole sont calculés une fois par génération, en deux passes linéaires munies d'une pile
+ * de branches, si bien que chaque itération reste linéaire en la longueur de la chaîne, quelle que soit
+ * la profondeur des branches. Une grammaire peut être partagée entre plusieurs threads, ses dérivations étant alors
+ * faites l'une après l'autre.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class GrammaireContextuelle {
+    /** Le contexte qui accepte n'importe quel voisinage. */
+    public static final String CONTEXTE_QUELCONQUE = "*";
+
+    /**
+     * Une règle compilée : ses contextes et sa production.
+     */
+    private static class Regle {
+        /**
+         * Les symboles du contexte gauche, dans l'ordre de la chaîne (vide si la règle n'a pas de contexte gauche).
+         * Les symboles du contexte droit, dans l'ordre de la chaîne (vide si la règle n'a pas de contexte droit).
+         * La production de la règle.
+         */
+        private final byte[] gauche, droite;
+        private final byte[] production;
+
+        /**
+         * Construit une règle compilée.
+         * @param gauche les symboles du contexte gauche
+         * @param droite les symboles du contexte droit
+         * @param production la production de la règle
+         */
+        private Regle(byte[] gauche, byte[] droite, byte[] production) {
+            this.gauche = gauche;
+            this.droite = droite;
+            this.production = production;
+        }
+    }
+
+    /**
+     * Les règles de chaque symbole, dans l'ordre de définition (null si le symbole n'a pas de règle).
+     * Indique pour chaque symbole s'il est ignoré dans la recherche des contextes.
+     * La longueur du plus long contexte gauche et celle du plus long contexte droit.
+     */
+    private final Regle[][] regles;
+    private final boolean[] ignores;
+    private final int longueurMaxGauche, longueurMaxDroite;
+    /**
+     * Pour chaque position de la dernière chaîne réécrite, la position du symbole précédent et celle du symbole suivant
+     * au sens des contextes (-1 s'il n'y en a pas). Les tableaux sont réutilisés d'une itération à l'autre.
+     * La pile des branches ouvertes pendant le calcul des voisins.
+     */
+    private int[] precedents, suivants;
+    private int[] pile;
+
+    /**
+     * Compile les règles données sous la forme de couples {prédécesseur, production}, où le prédécesseur est de la forme
+     * "G&lt;S&gt;D", "G&lt;S", "S&gt;D" ou "S".
+     * @param regles le tableau des règles à compiler
+     * @param ignores les symboles ignorés dans la recherche des contextes
+     * @exception IllegalArgumentException si une règle ne porte pas sur un unique symbole, si un contexte contient
+     * une branche ou si un symbole n'est pas supporté
+     */
+    public GrammaireContextuelle(String[][] regles, String ignores) {
+        this.regles = new Regle[GrammaireCompilee.TAILLE_ALPHABET][];
+        this.ignores = new boolean[GrammaireCompilee.TAILLE_ALPHABET];
+        for (byte symbole : encode(ignores))
+            this.ignores[symbole & 0xFF] = true;
+        int maxGauche = 0, maxDroite = 0;
+        for (String[] regle : regles) {
+            String predecesseur = regle[0].trim();
+            int finGauche = predecesseur.indexOf('<'), debutDroite = predecesseur.indexOf('>');
+            String symbole = predecesseur.substring(finGauche + 1, debutDroite < 0 ? predecesseur.length() : debutDroite);
+            if (symbole.length() != 1 || (debutDroite >= 0 && debutDroite < finGauche))
+                throw new IllegalArgumentException("La règle \"" + regle[0] + "=" + regle[1] + "\" doit porter sur un unique symbole.");
+            byte[] gauche = contexte(finGauche < 0 ? "" : predecesseur.substring(0, finGauche), regle);
+            byte[] droite = contexte(debutDroite < 0 ? "" : predecesseur.substring(debutDroite + 1), regle);
+            Regle compilee = new Regle(gauche, droite, encode(regle[1]));
+            int code = encode(symbole)[0] & 0xFF;
+            Regle[] alternatives = this.regles[code];
+            if (alternatives == null)
+                alternatives = new Regle[] {compilee};
+            else {
+                alternatives = Arrays.copyOf(alternatives, alternatives.length + 1);
+                alternatives[alternatives.length - 1] = compilee;
+            }
+            this.regles[code] = alternatives;
+            maxGauche = Math.max(maxGauche, gauche.length);
+            maxDroite = Math.max(maxDroite, droite.length);
+        }
+        this.longueurMaxGauche = maxGauche;
+        this.longueurMaxDroite = maxDroite;
+        this.precedents = new int[0];
+        this.suivants = new int[0];
+        this.pile = new int[16];
+    }
+
+    /**
+     * Compile le contexte d'une règle.
+     * @param contexte le contexte, vide ou "*" pour n'importe quel contexte
+     * @param regle la règle, pour le message d'erreur
+     * @return les symboles du contexte
+     * @exception IllegalArgumentException si le contexte contient une branche ou un symbole non supporté
+     */
+    private static byte[] contexte(String contexte, String[] regle) {
+        if (contexte.equals(CONTEXTE_QUELCONQUE))
+            return new byte[0];
+        if (contexte.indexOf('[') >= 0 || contexte.indexOf(']') >= 0)
+            throw new IllegalArgumentException("Le contexte de la règle \"" + regle[0] + "=" + regle[1] + "\" ne peut pas contenir de branche.");
+        return encode(contexte);
+    }
+
+    /**
+     * Encode une chaîne de symboles en tableau d'octets.
+     * @param chaine la chaîne à encoder
+     * @return les symboles de la chaîne
+     * @exception IllegalArgumentException si un symbole ne tient pas sur un octet
+     */
+    private static byte[] encode(String chaine) {
+        for (int position = 0; position < chaine.length(); position++)
+            if (chaine.charAt(position) >= GrammaireCompilee.TAILLE_ALPHABET)
+                throw new IllegalArgumentException("Symbole non supporté : '" + chaine.charAt(position) + "'.");
+        return chaine.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Indique si au moins une règle dépend d'un contexte.
+     * Une grammaire sans contexte se comporte comme la {@link GrammaireCompilee} de ses règles {@link #reglesHorsContexte()}.
+     * @return true si au moins une règle a un contexte gauche ou droit
+     */
+    public boolean aDesContextes() {
+        return longueurMaxGauche > 0 || longueurMaxDroite > 0;
+    }
+
+    /**
+     * Retourne, pour chaque symbole qui a des règles, sa dernière règle sous la forme d'un couple {symbole, production},
+     * sans ses contextes : c'est la règle toujours appliquée par une grammaire sans contexte.
+     * @return le tableau des couples {symbole, production}
+     */
+    public String[][] reglesHorsContexte() {
+        ArrayList<String[]> couples = new ArrayList<>();
+        for (int symbole = 0; symbole < regles.length; symbole++)
+            if (regles[symbole] != null)
+                couples.add(new String[] {String.valueOf((char) symbole), new String(regles[symbole][regles[symbole].length - 1].production, StandardCharsets.ISO_8859_1)});
+        return couples.toArray(new String[0][]);
+    }
+
+    /**
+     * Dérive la chaîne obtenue après le nombre d'itérations donné à partir d'un axiome, sans suivre la dérivation.
+     * @param axiome la chaîne de départ
+     * @param nbIterations le nombre d'itérations
+     * @return la chaîne obtenue après les itérations
+     * @exception IllegalStateException si une génération dépasse la taille maximale d'un tampon
+     */
+    public TamponSymboles derive(CharSequence axiome, int nbIterations) {
+        return derive(axiome, nbIterations, null);
+    }
+
+    /**
+     * Dérive la chaîne obtenue après le nombre d'itérations donné à partir d'un axiome.
+     * Deux tampons sont alternés d'une itération à l'autre pour éviter de réallouer la mémoire.
+     * @param axiome la chaîne de départ
+     * @param nbIterations le nombre d'itérations
+     * @param suivi le suivi de la dérivation, ou null pour ne pas la suivre
+     * @return la chaîne obtenue après les itérations
+     * @exception IllegalStateException si une génération dépasse la taille maximale d'un tampon
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation
+     */
+    public synchronized TamponSymboles derive(CharSequence axiome, int nbIterations, SuiviDerivation suivi) {
+        TamponSymboles courant = new TamponSymboles(axiome);
+        TamponSymboles suivant = new TamponSymboles(courant.length());
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.REECRITURE, iteration + 1);
+            suivant.vide();
+            reecrit(courant, suivant, iteration, suivi);
+            mesure.termine(courant.length(), suivant.length(), 0, 0);
+            if (suivi != null)
+                suivi.reecriture(iteration + 1, suivant.length());
+            TamponSymboles echange = courant;
+            courant = suivant;
+            suivant = echange;
+        }
+        return courant;
+    }
+
+    /**
+     * Applique une itération de réécriture à une chaîne, toutes les règles voyant la chaîne avant réécriture.
+     * @param chaine la chaîne à réécrire
+     * @param resultat le tampon dans lequel écrire la chaîne réécrite
+     * @param iteration le numéro de l'itération, à partir de 0
+     * @param suivi le suivi de la dérivation, ou null
+     */
+    private void reecrit(TamponSymboles chaine, TamponSymboles resultat, int iteration, SuiviDerivation suivi) {
+        byte[] symboles = chaine.tableau();
+        int longueur = chaine.length();
+        if (precedents.length < longueur) {
+            precedents = new int[longueur];
+            suivants = new int[longueur];
+        }
+        if (longueurMaxDroite > 0)
+            calculeSuivants(symboles, longueur);
+        // Les précédents sont calculés au fil de la réécriture : chaque symbole ne dépend que de ceux déjà lus.
+        int hauteur = 0;
+        int precedent = -1;
+        for (int position = 0; position < longueur; position++) {
+            if (suivi != null && (position & SuiviDerivation.MASQUE_SIGNALEMENT) == 0)
+                suivi.reecriture(iteration + 1, resultat.length());
+            int symbole = symboles[position] & 0xFF;
+            precedents[position] = precedent;
+            if (symbole == '[') {
+                if (hauteur == pile.length)
+                    pile = Arrays.copyOf(pile, 2 * pile.length);
+                pile[hauteur++] = precedent;
+            } else if (symbole == ']') {
+                // Une branche fermée sans avoir été ouverte n'a pas de précédent à restaurer.
+                precedent = hauteur > 0 ? pile[--hauteur] : -1;
+            } else if (!ignores[symbole])
+                precedent = position;
+            Regle regle = regles[symbole] == null ? null : choisitRegle(regles[symbole], symboles, position);
+            if (regle == null)
+                resultat.ajoute(symboles[position]);
+            else
+                resultat.ajoute(regle.production);
+        }
+    }
+
+    /**
+     * Calcule pour chaque position le symbole suivant au sens des contextes, en parcourant la chaîne à rebours :
+     * une branche rencontrée est sautée en restaurant, à son ouverture, le suivant mémorisé à sa fermeture.
+     * @param symboles les symboles de la chaîne
+     * @param longueur le nombre de symboles de la chaîne
+     */
+    private void calculeSuivants(byte[] symboles, int longueur) {
+        int hauteur = 0;
+        int suivant = -1;
+        for (int position = longueur - 1; position >= 0; position--) {
+            int symbole = symboles[position] & 0xFF;
+            suivants[position] = suivant;
+            if (symbole == ']') {
+                if (hauteur == pile.length)
+                    pile = Arrays.copyOf(pile, 2 * pile.length);
+                pile[hauteur++] = suivant;
+                suivant = -1;
+            } else if (symbole == '[') {
+                // Une branche ouverte sans être fermée s'étend jusqu'à la fin de la chaîne, qui n'a pas de suivant.
+                suivant = hauteur > 0 ? pile[--hauteur] : -1;
+            } else if (!ignores[symbole])
+                suivant = position;
+        }
+    }
+
+    /**
+     * Retourne la dernière règle définie d'un symbole dont les contextes s'accordent avec ses voisins.
+     * @param alternatives les règles du symbole
+     * @param symboles les symboles de la chaîne
+     * @param position la position du symbole
+     * @return la règle à appliquer, ou null si aucune ne s'applique
+     */
+    private Regle choisitRegle(Regle[] alternatives, byte[] symboles, int position) {
+        for (int indice = alternatives.length - 1; indice >= 0; indice--)
+            if (accordeGauche(alternatives[indice].gauche, symboles, position) && accordeDroite(alternatives[indice].droite, symboles, position))
+                return alternatives[indice];
+        return null;
+    }
+
+    /**
+     * Vérifie le contexte gauche d'une règle, en remontant les précédents depuis la fin du contexte.
+     * @param contexte les symboles du contexte gauche
+     * @param symboles les symboles de la chaîne
+     * @param position la position du symbole à réécrire
+     * @return true si le contexte précède le symbole
+     */
+    private boolean accordeGauche(byte[] contexte, byte[] symboles, int position) {
+        int voisin = precedents[position];
+        for (int indice = contexte.length - 1; indice >= 0; indice--) {
+            if (voisin < 0 || symboles[voisin] != contexte[indice])
+                return false;
+            voisin = precedents[voisin];
+        }
+        return true;
+    }
+
+    /**
+     * Vérifie le contexte droit d'une règle, en suivant les suivants depuis le début du contexte.
+     * @param contexte les symboles du contexte droit
+     * @param symboles les symboles de la chaîne
+     * @param position la position du symbole à réécrire
+     * @return true si le contexte suit le symbole
+     */
+    private boolean accordeDroite(byte[] contexte, byte[] symboles, int position) {
+        int voisin = suivants[position];
+        for (int indice = 0; indice < contexte.length; indice++) {
+            if (voisin < 0 || symboles[voisin] != contexte[indice])
+                return false;
+            voisin = suivants[voisin];
+        }
+        return true;
+    }
+}
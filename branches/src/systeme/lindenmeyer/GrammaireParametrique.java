@@ -0,0 +1,315 @@
+package systeme.lindenmeyer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Les règles d'un système de Lindenmeyer paramétré, compilées une seule fois.
+ * Une règle s'écrit "A(x,y):condition=production" : elle réécrit les modules de symbole A qui ont autant de paramètres
+ * qu'elle a de paramètres formels, lorsque la condition (facultative) est vraie pour leurs valeurs ; la production
+ * est une suite de modules dont les paramètres sont des expressions des paramètres formels, comme "F(x)[+(45)A(x*0.5,y)]".
+ * Pour chaque module, les règles sont essayées dans leur ordre de définition et la première qui s'applique est utilisée ;
+ * un module sans règle applicable est recopié avec ses paramètres.
+ * Les conditions et les paramètres des productions sont compilés en {@link ExpressionCompilee} et évalués directement
+ * sur les valeurs de la génération, une seule pile d'évaluation étant réutilisée pour tous les modules :
+ * la réécriture ne crée aucun objet. Une grammaire peut être partagée entre plusieurs threads,
+ * ses dérivations étant alors faites l'une après l'autre.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class GrammaireParametrique {
+    /**
+     * Un module d'une production : son symbole et les expressions de ses paramètres.
+     */
+    private static class Module {
+        /**
+         * Le code du symbole du module.
+         * Les expressions des paramètres du module.
+         */
+        private final byte symbole;
+        private final ExpressionCompilee[] parametres;
+
+        /**
+         * Construit un module de production.
+         * @param symbole le code du symbole
+         * @param parametres les expressions des paramètres
+         */
+        private Module(byte symbole, ExpressionCompilee[] parametres) {
+            this.symbole = symbole;
+            this.parametres = parametres;
+        }
+    }
+
+    /**
+     * Une règle compilée : le nombre de paramètres des modules qu'elle réécrit, sa condition et sa production.
+     */
+    private static class Regle {
+        /**
+         * Le nombre de paramètres formels de la règle.
+         * La condition de la règle (null si la règle s'applique toujours).
+         * La production de la règle.
+         */
+        private final int arite;
+        private final ExpressionCompilee condition;
+        private final Module[] production;
+
+        /**
+         * Construit une règle compilée.
+         * @param arite le nombre de paramètres formels
+         * @param condition la condition, ou null
+         * @param production la production
+         */
+        private Regle(int arite, ExpressionCompilee condition, Module[] production) {
+            this.arite = arite;
+            this.condition = condition;
+            this.production = production;
+        }
+    }
+
+    /**
+     * Les règles de chaque symbole, dans l'ordre de définition (null si le symbole n'a pas de règle).
+     * La pile d'évaluation des expressions, assez haute pour toutes les expressions de la grammaire.
+     */
+    private final Regle[][] regles;
+    private final double[] pile;
+
+    /**
+     * Compile les règles données sous la forme de triplets {prédécesseur, condition, production}, où le prédécesseur
+     * est de la forme "A(x,y)" ou "A" et la condition est vide si la règle s'applique toujours.
+     * @param regles le tableau des règles à compiler
+     * @exception IllegalArgumentException si une règle ne porte pas sur un unique symbole, a deux paramètres formels
+     * de même nom, contient une expression invalide ou un symbole non supporté
+     */
+    public GrammaireParametrique(String[][] regles) {
+        this.regles = new Regle[GrammaireCompilee.TAILLE_ALPHABET][];
+        int hauteurPile = 1;
+        for (String[] regle : regles) {
+            String predecesseur = regle[0].trim();
+            List<Module> modules = analyseModules(predecesseur, Collections.emptyList(), true);
+            if (modules.size() != 1)
+                throw new IllegalArgumentException("La règle \"" + predecesseur + "=" + regle[2] + "\" doit porter sur un unique symbole.");
+            List<String> formels = parametresFormels(predecesseur);
+            ExpressionCompilee condition = regle[1].trim().isEmpty() ? null : new ExpressionCompilee(regle[1].trim(), formels);
+            Module[] production = analyseModules(regle[2].trim(), formels, false).toArray(new Module[0]);
+            if (condition != null)
+                hauteurPile = Math.max(hauteurPile, condition.getHauteurPile());
+            for (Module module : production)
+                for (ExpressionCompilee parametre : module.parametres)
+                    hauteurPile = Math.max(hauteurPile, parametre.getHauteurPile());
+            int code = modules.get(0).symbole & 0xFF;
+            Regle compilee = new Regle(formels.size(), condition, production);
+            Regle[] alternatives = this.regles[code];
+            if (alternatives == null)
+                alternatives = new Regle[] {compilee};
+            else {
+                alternatives = Arrays.copyOf(alternatives, alternatives.length + 1);
+                alternatives[alternatives.length - 1] = compilee;
+            }
+            this.regles[code] = alternatives;
+        }
+        this.pile = new double[hauteurPile];
+    }
+
+    /**
+     * Retourne les noms des paramètres formels d'un prédécesseur de la forme "A(x,y)".
+     * @param predecesseur le prédécesseur
+     * @return les noms des paramètres formels, dans l'ordre
+     * @exception IllegalArgumentException si un nom est invalide ou utilisé deux fois
+     */
+    private static List<String> parametresFormels(String predecesseur) {
+        List<String> formels = new ArrayList<>();
+        int ouverture = predecesseur.indexOf('(');
+        if (ouverture < 0)
+            return formels;
+        for (String nom : separeParametres(predecesseur.substring(ouverture + 1, predecesseur.length() - 1), predecesseur)) {
+            nom = nom.trim();
+            if (!nom.matches("[A-Za-z_][A-Za-z0-9_]*") || formels.contains(nom))
+                throw new IllegalArgumentException("Paramètre formel \"" + nom + "\" invalide dans \"" + predecesseur + "\".");
+            formels.add(nom);
+        }
+        return formels;
+    }
+
+    /**
+     * Analyse une suite de modules de la forme "F(x)[+(45)A(x*0.5,y)]".
+     * @param chaine la suite de modules
+     * @param formels les noms des paramètres formels utilisables dans les expressions
+     * @param formelsSeuls true pour ne pas compiler les paramètres, qui sont alors des noms de paramètres formels
+     * @return les modules analysés
+     * @exception IllegalArgumentException si une parenthèse n'est pas fermée, si une expression est invalide
+     * ou si un symbole n'est pas supporté
+     */
+    private static List<Module> analyseModules(String chaine, List<String> formels, boolean formelsSeuls) {
+        List<Module> modules = new ArrayList<>();
+        int position = 0;
+        while (position < chaine.length()) {
+            char symbole = chaine.charAt(position++);
+            if (Character.isWhitespace(symbole))
+                continue;
+            if (symbole >= GrammaireCompilee.TAILLE_ALPHABET || symbole == '(' || symbole == ')' || symbole == ',')
+                throw new IllegalArgumentException("Symbole non supporté : '" + symbole + "' dans \"" + chaine + "\".");
+            ExpressionCompilee[] parametres = new ExpressionCompilee[0];
+            if (position < chaine.length() && chaine.charAt(position) == '(') {
+                int fermeture = fermeture(chaine, position);
+                List<String> textes = separeParametres(chaine.substring(position + 1, fermeture), chaine);
+                if (!formelsSeuls) {
+                    parametres = new ExpressionCompilee[textes.size()];
+                    for (int rang = 0; rang < parametres.length; rang++)
+                        parametres[rang] = new ExpressionCompilee(textes.get(rang), formels);
+                }
+                position = fermeture + 1;
+            }
+            modules.add(new Module((byte) symbole, parametres));
+        }
+        return modules;
+    }
+
+    /**
+     * Retourne la position de la parenthèse qui ferme celle ouverte à la position donnée.
+     * @param chaine la chaîne analysée
+     * @param ouverture la position de la parenthèse ouvrante
+     * @return la position de la parenthèse fermante
+     * @exception IllegalArgumentException si la parenthèse n'est pas fermée
+     */
+    private static int fermeture(String chaine, int ouverture) {
+        int profondeur = 0;
+        for (int position = ouverture; position < chaine.length(); position++) {
+            if (chaine.charAt(position) == '(')
+                profondeur++;
+            else if (chaine.charAt(position) == ')' && --profondeur == 0)
+                return position;
+        }
+        throw new IllegalArgumentException("Parenthèse non fermée dans \"" + chaine + "\".");
+    }
+
+    /**
+     * Sépare les paramètres d'un module aux virgules qui ne sont pas entre parenthèses.
+     * @param parametres le texte des paramètres, sans les parenthèses du module
+     * @param chaine la chaîne analysée, pour le message d'erreur
+     * @return le texte de chaque paramètre
+     * @exception IllegalArgumentException si un paramètre est vide
+     */
+    private static List<String> separeParametres(String parametres, String chaine) {
+        List<String> textes = new ArrayList<>();
+        int profondeur = 0, debut = 0;
+        for (int position = 0; position <= parametres.length(); position++) {
+            char caractere = position < parametres.length() ? parametres.charAt(position) : ',';
+            if (caractere == '(')
+                profondeur++;
+            else if (caractere == ')')
+                profondeur--;
+            else if (caractere == ',' && profondeur == 0) {
+                if (parametres.substring(debut, position).trim().isEmpty())
+                    throw new IllegalArgumentException("Paramètre vide dans \"" + chaine + "\".");
+                textes.add(parametres.substring(debut, position));
+                debut = position + 1;
+            }
+        }
+        return textes;
+    }
+
+    /**
+     * Analyse une chaîne de modules dont les paramètres sont des expressions sans paramètre formel, comme un axiome.
+     * @param chaine la chaîne de modules, par exemple "A(1,10)B"
+     * @return la génération formée de ces modules
+     * @exception IllegalArgumentException si la chaîne est invalide
+     */
+    public static ChaineParametree analyseChaine(String chaine) {
+        List<Module> modules = analyseModules(chaine, Collections.emptyList(), false);
+        ChaineParametree resultat = new ChaineParametree(modules.size());
+        for (Module module : modules) {
+            resultat.ajoute(module.symbole);
+            for (ExpressionCompilee parametre : module.parametres)
+                resultat.ajouteParametre(parametre.evalue());
+        }
+        return resultat;
+    }
+
+    /**
+     * Dérive la chaîne obtenue après le nombre d'itérations donné à partir d'un axiome, sans suivre la dérivation.
+     * @param axiome la génération de départ, qui n'est pas modifiée
+     * @param nbIterations le nombre d'itérations
+     * @return la chaîne obtenue après les itérations
+     * @exception IllegalStateException si une génération dépasse la taille maximale d'un tableau
+     */
+    public ChaineParametree derive(ChaineParametree axiome, int nbIterations) {
+        return derive(axiome, nbIterations, null);
+    }
+
+    /**
+     * Dérive la chaîne obtenue après le nombre d'itérations donné à partir d'un axiome.
+     * Deux générations sont alternées d'une itération à l'autre pour éviter de réallouer la mémoire.
+     * @param axiome la génération de départ, qui n'est pas modifiée
+     * @param nbIterations le nombre d'itérations
+     * @param suivi le suivi de la dérivation, ou null pour ne pas la suivre
+     * @return la chaîne obtenue après les itérations
+     * @exception IllegalStateException si une génération dépasse la taille maximale d'un tableau
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation
+     */
+    public synchronized ChaineParametree derive(ChaineParametree axiome, int nbIterations, SuiviDerivation suivi) {
+        ChaineParametree courant = (ChaineParametree) axiome.tranche(0, axiome.taille());
+        ChaineParametree suivant = new ChaineParametree((int) courant.taille());
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.REECRITURE, iteration + 1);
+            suivant.vide();
+            reecrit(courant, suivant, iteration, suivi);
+            mesure.termine(courant.taille(), suivant.taille(), 0, 0);
+            if (suivi != null)
+                suivi.reecriture(iteration + 1, suivant.taille());
+            ChaineParametree echange = courant;
+            courant = suivant;
+            suivant = echange;
+        }
+        return courant;
+    }
+
+    /**
+     * Applique une itération de réécriture à une génération.
+     * @param chaine la génération à réécrire
+     * @param resultat la génération dans laquelle écrire la génération réécrite
+     * @param iteration le numéro de l'itération, à partir de 0
+     * @param suivi le suivi de la dérivation, ou null
+     */
+    private void reecrit(ChaineParametree chaine, ChaineParametree resultat, int iteration, SuiviDerivation suivi) {
+        byte[] symboles = chaine.getSymboles().tableau();
+        int[] debuts = chaine.debuts();
+        double[] valeurs = chaine.valeurs();
+        int taille = (int) chaine.taille();
+        for (int module = 0; module < taille; module++) {
+            if (suivi != null && (module & SuiviDerivation.MASQUE_SIGNALEMENT) == 0)
+                suivi.reecriture(iteration + 1, resultat.taille());
+            int debut = debuts[module];
+            int nbParametres = (module + 1 < taille ? debuts[module + 1] : chaine.getNbValeurs()) - debut;
+            Regle[] alternatives = regles[symboles[module] & 0xFF];
+            Regle regle = alternatives == null ? null : choisitRegle(alternatives, valeurs, debut, nbParametres);
+            if (regle == null) {
+                resultat.ajoute(symboles[module]);
+                for (int valeur = debut; valeur < debut + nbParametres; valeur++)
+                    resultat.ajouteParametre(valeurs[valeur]);
+                continue;
+            }
+            for (Module successeur : regle.production) {
+                resultat.ajoute(successeur.symbole);
+                for (ExpressionCompilee parametre : successeur.parametres)
+                    resultat.ajouteParametre(parametre.evalue(valeurs, debut, pile));
+            }
+        }
+    }
+
+    /**
+     * Retourne la première règle d'un module dont le nombre de paramètres correspond et dont la condition est vraie.
+     * @param alternatives les règles du symbole du module
+     * @param valeurs le tableau des valeurs des paramètres de la génération
+     * @param debut la position du premier paramètre du module
+     * @param nbParametres le nombre de paramètres du module
+     * @return la règle à appliquer, ou null si aucune ne s'applique
+     */
+    private Regle choisitRegle(Regle[] alternatives, double[] valeurs, int debut, int nbParametres) {
+        for (Regle regle : alternatives)
+            if (regle.arite == nbParametres && (regle.condition == null || regle.condition.evalue(valeurs, debut, pile) != 0))
+                return regle;
+        return null;
+    }
+}
@@ -0,0 +1,232 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+
+/**
+ * Les traits d'un dessin conservés une fois pour toutes et indexés par une grille uniforme,
+ * pour pouvoir redessiner rapidement n'importe quelle partie du dessin sans refaire la génération.
+ * Les extrémités des traits sont rangées dans un unique tableau de flottants, quatre par trait, dans l'ordre du dessin ;
+ * la grille associe à chacune de ses cellules les numéros des traits qui la traversent, rangés à la suite dans un tableau d'entiers.
+ * Les traits sont d'abord enregistrés en tant qu'écouteur de la tortue, puis la grille est construite par {@link #indexe()}.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class GrilleSegments implements EcouteurTortue {
+    /**
+     * Le nombre maximal de traits conservés.
+     * Le nombre moyen de traits visé par cellule de la grille.
+     */
+    public static final int NB_TRAITS_MAX = 1 << 23;
+    private static final int NB_TRAITS_PAR_CELLULE = 4;
+    /** Le nombre maximal de pixels d'une vue dont les pixels couverts sont retenus lors d'un parcours. */
+    private static final long NB_PIXELS_MAX = 1L << 24;
+
+    /**
+     * Les extrémités des traits, quatre valeurs par trait (x1, y1, x2, y2).
+     * Le nombre de traits enregistrés.
+     * Les bornes des traits enregistrés.
+     */
+    private float[] coordonnees;
+    private int nbTraits;
+    private double xMin, yMin, xMax, yMax;
+    /**
+     * Le nombre de colonnes et de lignes de la grille (0 tant qu'elle n'est pas construite).
+     * La taille d'une cellule de la grille.
+     * La position, dans le tableau des traits de la grille, des traits de chaque cellule (une valeur de plus que de cellules).
+     * Les numéros des traits de chaque cellule, cellule après cellule.
+     */
+    private int nbColonnes, nbLignes;
+    private double tailleCellule;
+    private int[] debutsCellules;
+    private int[] traitsCellules;
+
+    /**
+     * Construit une grille vide, prête à enregistrer des traits.
+     */
+    public GrilleSegments() {
+        this.coordonnees = new float[4 * 1024];
+        this.xMin = Double.POSITIVE_INFINITY;
+        this.yMin = Double.POSITIVE_INFINITY;
+        this.xMax = Double.NEGATIVE_INFINITY;
+        this.yMax = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Retourne le nombre de traits enregistrés.
+     * @return le nombre de traits enregistrés
+     */
+    public int getNbTraits() {
+        return this.nbTraits;
+    }
+    /**
+     * Retourne la boîte englobant les traits enregistrés.
+     * @return la boîte englobant les traits enregistrés
+     */
+    public BoiteEnglobante getBoite() {
+        return new BoiteEnglobante(xMin, yMin, xMax, yMax);
+    }
+    /**
+     * Indique si la grille a été construite.
+     * @return true si les traits peuvent être recherchés
+     */
+    public boolean estIndexee() {
+        return this.debutsCellules != null;
+    }
+
+    /**
+     * Enregistre un trait.
+     * @exception IllegalStateException si la grille a déjà été construite ou si le nombre maximal de traits est dépassé
+     */
+    @Override
+    public void trait(double x1, double y1, double x2, double y2) {
+        if (estIndexee())
+            throw new IllegalStateException("La grille est déjà construite, aucun trait ne peut plus être ajouté.");
+        if (nbTraits == NB_TRAITS_MAX)
+            throw new IllegalStateException("Le dessin contient plus de " + NB_TRAITS_MAX + " traits, ce qui est trop pour être conservé.");
+        if (4 * nbTraits == coordonnees.length)
+            coordonnees = Arrays.copyOf(coordonnees, Math.min(2 * coordonnees.length, 4 * NB_TRAITS_MAX));
+        int position = 4 * nbTraits++;
+        coordonnees[position] = (float) x1;
+        coordonnees[position + 1] = (float) y1;
+        coordonnees[position + 2] = (float) x2;
+        coordonnees[position + 3] = (float) y2;
+        xMin = Math.min(xMin, Math.min(x1, x2));
+        yMin = Math.min(yMin, Math.min(y1, y2));
+        xMax = Math.max(xMax, Math.max(x1, x2));
+        yMax = Math.max(yMax, Math.max(y1, y2));
+    }
+
+    /**
+     * Construit la grille une fois tous les traits enregistrés.
+     * La taille des cellules est choisie pour qu'elles contiennent en moyenne quelques traits.
+     * @exception IllegalStateException si la grille a déjà été construite
+     */
+    public void indexe() {
+        if (estIndexee())
+            throw new IllegalStateException("La grille est déjà construite.");
+        coordonnees = Arrays.copyOf(coordonnees, 4 * nbTraits);
+        double largeur = Math.max(xMax - xMin, 0), hauteur = Math.max(yMax - yMin, 0);
+        double nbCellulesVise = Math.max(1, nbTraits / NB_TRAITS_PAR_CELLULE);
+        tailleCellule = Math.sqrt(largeur * hauteur / nbCellulesVise);
+        if (!(tailleCellule > 0))
+            tailleCellule = Math.max(Math.max(largeur, hauteur) / nbCellulesVise, 1);
+        nbColonnes = (int) Math.min(Math.floor(largeur / tailleCellule) + 1, 1 << 15);
+        nbLignes = (int) Math.min(Math.floor(hauteur / tailleCellule) + 1, 1 << 15);
+        tailleCellule = Math.max(tailleCellule, Math.max(largeur / nbColonnes, hauteur / nbLignes) * (1 + 1e-9));
+
+        // Premier passage : le nombre de traits de chaque cellule, puis la position de chaque cellule.
+        int[] debuts = new int[nbColonnes * nbLignes + 1];
+        long nbEntrees = 0;
+        for (int numero = 0; numero < nbTraits; numero++) {
+            int colonneMin = colonne(Math.min(coordonnees[4 * numero], coordonnees[4 * numero + 2]));
+            int colonneMax = colonne(Math.max(coordonnees[4 * numero], coordonnees[4 * numero + 2]));
+            int ligneMin = ligne(Math.min(coordonnees[4 * numero + 1], coordonnees[4 * numero + 3]));
+            int ligneMax = ligne(Math.max(coordonnees[4 * numero + 1], coordonnees[4 * numero + 3]));
+            for (int ligne = ligneMin; ligne <= ligneMax; ligne++)
+                for (int colonne = colonneMin; colonne <= colonneMax; colonne++)
+                    debuts[ligne * nbColonnes + colonne + 1]++;
+            nbEntrees += (long) (ligneMax - ligneMin + 1) * (colonneMax - colonneMin + 1);
+        }
+        if (nbEntrees > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Les traits du dessin sont trop longs pour être indexés.");
+        for (int cellule = 0; cellule < nbColonnes * nbLignes; cellule++)
+            debuts[cellule + 1] += debuts[cellule];
+
+        // Second passage : les numéros des traits, rangés cellule après cellule dans l'ordre du dessin.
+        int[] traits = new int[(int) nbEntrees];
+        int[] remplissage = Arrays.copyOf(debuts, debuts.length - 1);
+        for (int numero = 0; numero < nbTraits; numero++) {
+            int colonneMin = colonne(Math.min(coordonnees[4 * numero], coordonnees[4 * numero + 2]));
+            int colonneMax = colonne(Math.max(coordonnees[4 * numero], coordonnees[4 * numero + 2]));
+            int ligneMin = ligne(Math.min(coordonnees[4 * numero + 1], coordonnees[4 * numero + 3]));
+            int ligneMax = ligne(Math.max(coordonnees[4 * numero + 1], coordonnees[4 * numero + 3]));
+            for (int ligne = ligneMin; ligne <= ligneMax; ligne++)
+                for (int colonne = colonneMin; colonne <= colonneMax; colonne++)
+                    traits[remplissage[ligne * nbColonnes + colonne]++] = numero;
+        }
+        this.debutsCellules = debuts;
+        this.traitsCellules = traits;
+    }
+
+    /**
+     * Retourne la colonne de la grille contenant une abscisse, ramenée dans la grille.
+     * @param x l'abscisse
+     * @return la colonne de l'abscisse
+     */
+    private int colonne(double x) {
+        return (int) Math.max(0, Math.min(nbColonnes - 1, Math.floor((x - xMin) / tailleCellule)));
+    }
+
+    /**
+     * Retourne la ligne de la grille contenant une ordonnée, ramenée dans la grille.
+     * @param y l'ordonnée
+     * @return la ligne de l'ordonnée
+     */
+    private int ligne(double y) {
+        return (int) Math.max(0, Math.min(nbLignes - 1, Math.floor((y - yMin) / tailleCellule)));
+    }
+
+    /**
+     * Transmet à un écouteur les traits qui traversent une partie du dessin, chacun une seule fois.
+     * Parmi les traits plus petits qu'un pixel, un seul est transmis par pixel : le nombre de traits transmis
+     * reste ainsi borné par le nombre de pixels de la vue, quel que soit le nombre de traits enregistrés.
+     * Une vue de plus de {@value #NB_PIXELS_MAX} pixels ne retient pas ses pixels couverts et transmet tous ses traits.
+     * @param vue la partie du dessin à parcourir
+     * @param taillePixel la taille d'un pixel dans les coordonnées du dessin
+     * @param ecouteur l'écouteur qui reçoit les traits, précédés d'un saut lorsqu'ils ne prolongent pas le trait précédent
+     * @return le nombre de traits transmis
+     * @exception IllegalStateException si la grille n'a pas encore été construite
+     */
+    public long parcoursVisibles(BoiteEnglobante vue, double taillePixel, EcouteurTortue ecouteur) {
+        if (!estIndexee())
+            throw new IllegalStateException("La grille doit être construite avant d'y rechercher des traits.");
+        if (nbTraits == 0 || vue.estVide() || vue.getXMax() < xMin || vue.getXMin() > xMax || vue.getYMax() < yMin || vue.getYMin() > yMax)
+            return 0;
+        int colonneMin = colonne(vue.getXMin()), colonneMax = colonne(vue.getXMax());
+        int ligneMin = ligne(vue.getYMin()), ligneMax = ligne(vue.getYMax());
+        // Les pixels de la vue déjà couverts par un trait plus petit qu'un pixel, un bit par pixel (null si la vue est trop grande).
+        double largeurVue = Math.ceil(vue.getLargeur() / taillePixel) + 1, hauteurVue = Math.ceil(vue.getHauteur() / taillePixel) + 1;
+        int largeurPixels = 0, hauteurPixels = 0;
+        long[] pixelsCouverts = null;
+        if (largeurVue * hauteurVue <= NB_PIXELS_MAX) {
+            largeurPixels = (int) largeurVue;
+            hauteurPixels = (int) hauteurVue;
+            pixelsCouverts = new long[(int) (((long) largeurPixels * hauteurPixels + 63) >>> 6)];
+        }
+
+        long nbTransmis = 0;
+        double xPlume = Double.NaN, yPlume = Double.NaN;
+        for (int ligne = ligneMin; ligne <= ligneMax; ligne++) {
+            for (int colonne = colonneMin; colonne <= colonneMax; colonne++) {
+                int cellule = ligne * nbColonnes + colonne;
+                for (int entree = debutsCellules[cellule]; entree < debutsCellules[cellule + 1]; entree++) {
+                    int position = 4 * traitsCellules[entree];
+                    double x1 = coordonnees[position], y1 = coordonnees[position + 1];
+                    double x2 = coordonnees[position + 2], y2 = coordonnees[position + 3];
+                    double xMinTrait = Math.min(x1, x2), xMaxTrait = Math.max(x1, x2);
+                    double yMinTrait = Math.min(y1, y2), yMaxTrait = Math.max(y1, y2);
+                    // Un trait qui traverse plusieurs cellules n'est transmis que depuis la première cellule parcourue.
+                    if (Math.max(colonne(xMinTrait), colonneMin) != colonne || Math.max(ligne(yMinTrait), ligneMin) != ligne)
+                        continue;
+                    if (xMaxTrait < vue.getXMin() || xMinTrait > vue.getXMax() || yMaxTrait < vue.getYMin() || yMinTrait > vue.getYMax())
+                        continue;
+                    if (pixelsCouverts != null && xMaxTrait - xMinTrait < taillePixel && yMaxTrait - yMinTrait < taillePixel) {
+                        int px = (int) Math.max(0, Math.min(largeurPixels - 1, (xMinTrait - vue.getXMin()) / taillePixel));
+                        int py = (int) Math.max(0, Math.min(hauteurPixels - 1, (yMinTrait - vue.getYMin()) / taillePixel));
+                        int pixel = py * largeurPixels + px;
+                        if ((pixelsCouverts[pixel >>> 6] & (1L << pixel)) != 0)
+                            continue;
+                        pixelsCouverts[pixel >>> 6] |= 1L << pixel;
+                    }
+                    if (x1 != xPlume || y1 != yPlume)
+                        ecouteur.saut(xPlume, yPlume, x1, y1);
+                    ecouteur.trait(x1, y1, x2, y2);
+                    xPlume = x2;
+                    yPlume = y2;
+                    nbTransmis++;
+                }
+            }
+        }
+        return nbTransmis;
+    }
+}
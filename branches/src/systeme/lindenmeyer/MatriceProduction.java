@@ -0,0 +1,217 @@
+package systeme.lindenmeyer;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * La matrice de production d'un système de Lindenmeyer déterministe, qui permet de connaître la composition
+ * exacte d'une génération sans la dériver.
+ * Le coefficient (i, j) de la matrice est le nombre de symboles j dans la production du symbole i :
+ * le nombre de chaque symbole après n itérations est donc le vecteur de l'axiome multiplié par la matrice
+ * à la puissance n, calculée par exponentiation rapide. Les calculs sont faits sur des entiers longs
+ * et repris avec des {@link BigInteger} lorsqu'ils dépassent leur capacité.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class MatriceProduction {
+    /**
+     * Les symboles pouvant apparaître dans une génération, dans l'ordre de leur première apparition.
+     * Le nombre de chaque symbole dans l'axiome.
+     * La matrice de production.
+     */
+    private final char[] alphabet;
+    private final long[] depart;
+    private final long[][] matrice;
+
+    /**
+     * Construit la matrice de production d'un système déterministe.
+     * @param grammaire la grammaire compilée du système
+     * @param axiome l'axiome du système
+     */
+    public MatriceProduction(GrammaireCompilee grammaire, CharSequence axiome) {
+        int[] indices = new int[GrammaireCompilee.TAILLE_ALPHABET];
+        Arrays.fill(indices, -1);
+        StringBuilder symboles = new StringBuilder();
+        for (int position = 0; position < axiome.length(); position++)
+            ajouteSymbole(axiome.charAt(position), indices, symboles);
+        // Les symboles produits par les règles sont ajoutés au fur et à mesure qu'ils sont découverts.
+        for (int numero = 0; numero < symboles.length(); numero++) {
+            byte[] production = grammaire.production(symboles.charAt(numero));
+            if (production != null)
+                for (byte symbole : production)
+                    ajouteSymbole((char) (symbole & 0xFF), indices, symboles);
+        }
+        this.alphabet = symboles.toString().toCharArray();
+        this.depart = new long[alphabet.length];
+        for (int position = 0; position < axiome.length(); position++)
+            depart[indices[axiome.charAt(position)]]++;
+        this.matrice = new long[alphabet.length][alphabet.length];
+        for (int ligne = 0; ligne < alphabet.length; ligne++) {
+            byte[] production = grammaire.production(alphabet[ligne]);
+            if (production == null)
+                matrice[ligne][ligne] = 1;
+            else
+                for (byte symbole : production)
+                    matrice[ligne][indices[symbole & 0xFF]]++;
+        }
+    }
+
+    /**
+     * Ajoute un symbole à l'alphabet s'il n'y figure pas encore.
+     * @param symbole le symbole à ajouter
+     * @param indices l'indice de chaque symbole dans l'alphabet (-1 s'il n'y figure pas)
+     * @param symboles les symboles de l'alphabet
+     * @exception IllegalArgumentException si le symbole ne tient pas sur un octet
+     */
+    private static void ajouteSymbole(char symbole, int[] indices, StringBuilder symboles) {
+        if (symbole >= GrammaireCompilee.TAILLE_ALPHABET)
+            throw new IllegalArgumentException("Symbole non supporté : '" + symbole + "'.");
+        if (indices[symbole] < 0) {
+            indices[symbole] = symboles.length();
+            symboles.append(symbole);
+        }
+    }
+
+    /**
+     * Retourne les symboles pouvant apparaître dans une génération.
+     * @return l'alphabet du système, dans l'ordre utilisé par {@link #compte(int)}
+     */
+    public char[] getAlphabet() {
+        return alphabet.clone();
+    }
+
+    /**
+     * Retourne le nombre de chaque symbole de l'alphabet dans la génération demandée.
+     * @param nbIterations le nombre d'itérations
+     * @return le nombre de chaque symbole, dans l'ordre de l'alphabet
+     */
+    public BigInteger[] compte(int nbIterations) {
+        if (nbIterations < 0)
+            throw new IllegalArgumentException("Le nombre d'itérations doit être positif.");
+        BigInteger[] compte = new BigInteger[alphabet.length];
+        if (alphabet.length == 0)
+            return compte;
+        try {
+            long[] compteExact = compteLong(nbIterations);
+            for (int indice = 0; indice < compte.length; indice++)
+                compte[indice] = BigInteger.valueOf(compteExact[indice]);
+        } catch (ArithmeticException depassement) {
+            compte = compteBigInteger(nbIterations);
+        }
+        return compte;
+    }
+
+    /**
+     * Retourne le nombre d'occurrences de chaque symbole dans la génération demandée.
+     * @param nbIterations le nombre d'itérations
+     * @return un LinkedHashMap associant chaque symbole de l'alphabet à son nombre d'occurrences
+     */
+    public LinkedHashMap<Character, BigInteger> compteSymboles(int nbIterations) {
+        BigInteger[] compte = compte(nbIterations);
+        LinkedHashMap<Character, BigInteger> compteSymboles = new LinkedHashMap<>();
+        for (int indice = 0; indice < alphabet.length; indice++)
+            compteSymboles.put(alphabet[indice], compte[indice]);
+        return compteSymboles;
+    }
+
+    /**
+     * Retourne la longueur exacte de la génération demandée.
+     * @param nbIterations le nombre d'itérations
+     * @return la longueur de la génération
+     */
+    public BigInteger longueur(int nbIterations) {
+        BigInteger longueur = BigInteger.ZERO;
+        for (BigInteger nombre : compte(nbIterations))
+            longueur = longueur.add(nombre);
+        return longueur;
+    }
+
+    /**
+     * Calcule le vecteur de l'axiome multiplié par la matrice à la puissance n avec des entiers longs.
+     * @param nbIterations le nombre d'itérations
+     * @return le nombre de chaque symbole
+     * @exception ArithmeticException si un calcul dépasse la capacité d'un entier long
+     */
+    private long[] compteLong(int nbIterations) {
+        long[] vecteur = depart.clone();
+        long[][] puissance = matrice;
+        for (int reste = nbIterations; reste > 0; reste >>>= 1) {
+            if ((reste & 1) != 0)
+                vecteur = produitLong(new long[][] {vecteur}, puissance)[0];
+            if (reste > 1)
+                puissance = produitLong(puissance, puissance);
+        }
+        return vecteur;
+    }
+
+    /**
+     * Multiplie deux matrices d'entiers longs en vérifiant les dépassements de capacité.
+     * @param gauche la matrice de gauche
+     * @param droite la matrice de droite
+     * @return le produit des deux matrices
+     * @exception ArithmeticException si un coefficient dépasse la capacité d'un entier long
+     */
+    private static long[][] produitLong(long[][] gauche, long[][] droite) {
+        long[][] produit = new long[gauche.length][droite[0].length];
+        for (int ligne = 0; ligne < gauche.length; ligne++)
+            for (int milieu = 0; milieu < droite.length; milieu++) {
+                long coefficient = gauche[ligne][milieu];
+                if (coefficient != 0)
+                    for (int colonne = 0; colonne < droite[0].length; colonne++)
+                        produit[ligne][colonne] = Math.addExact(produit[ligne][colonne], Math.multiplyExact(coefficient, droite[milieu][colonne]));
+            }
+        return produit;
+    }
+
+    /**
+     * Calcule le vecteur de l'axiome multiplié par la matrice à la puissance n avec des entiers de taille arbitraire.
+     * @param nbIterations le nombre d'itérations
+     * @return le nombre de chaque symbole
+     */
+    private BigInteger[] compteBigInteger(int nbIterations) {
+        BigInteger[][] vecteur = {versBigInteger(depart)};
+        BigInteger[][] puissance = new BigInteger[matrice.length][];
+        for (int ligne = 0; ligne < matrice.length; ligne++)
+            puissance[ligne] = versBigInteger(matrice[ligne]);
+        for (int reste = nbIterations; reste > 0; reste >>>= 1) {
+            if ((reste & 1) != 0)
+                vecteur = produitBigInteger(vecteur, puissance);
+            if (reste > 1)
+                puissance = produitBigInteger(puissance, puissance);
+        }
+        return vecteur[0];
+    }
+
+    /**
+     * Convertit un vecteur d'entiers longs en vecteur de {@link BigInteger}.
+     * @param valeurs les valeurs à convertir
+     * @return les valeurs converties
+     */
+    private static BigInteger[] versBigInteger(long[] valeurs) {
+        BigInteger[] resultat = new BigInteger[valeurs.length];
+        for (int indice = 0; indice < valeurs.length; indice++)
+            resultat[indice] = BigInteger.valueOf(valeurs[indice]);
+        return resultat;
+    }
+
+    /**
+     * Multiplie deux matrices d'entiers de taille arbitraire.
+     * @param gauche la matrice de gauche
+     * @param droite la matrice de droite
+     * @return le produit des deux matrices
+     */
+    private static BigInteger[][] produitBigInteger(BigInteger[][] gauche, BigInteger[][] droite) {
+        BigInteger[][] produit = new BigInteger[gauche.length][droite[0].length];
+        for (BigInteger[] ligne : produit)
+            Arrays.fill(ligne, BigInteger.ZERO);
+        for (int ligne = 0; ligne < gauche.length; ligne++)
+            for (int milieu = 0; milieu < droite.length; milieu++) {
+                BigInteger coefficient = gauche[ligne][milieu];
+                if (coefficient.signum() != 0)
+                    for (int colonne = 0; colonne < droite[0].length; colonne++)
+                        produit[ligne][colonne] = produit[ligne][colonne].add(coefficient.multiply(droite[milieu][colonne]));
+            }
+        return produit;
+    }
+}
@@ -0,0 +1,140 @@
+package systeme.lindenmeyer;
+
+/**
+ * La mesure d'une phase de la génération ou du dessin d'un système, obtenue par {@link Mesures#debut}.
+ * Une mesure ne doit être utilisée que par le thread qui l'a commencée.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public final class MesurePhase {
+    /** La mesure rendue lorsque les mesures et l'événement JFR sont désactivés : elle ne fait rien. */
+    static final MesurePhase INACTIVE = new MesurePhase(null, 0, null);
+
+    /**
+     * La phase mesurée.
+     * Le numéro de l'itération concernée (0 si la phase ne concerne pas une itération).
+     * L'événement JFR de la phase.
+     */
+    private final Mesures.Phase phase;
+    private final int iteration;
+    private final EvenementPhase evenement;
+    /**
+     * L'instant de début de la phase (en nanosecondes).
+     * Le nombre d'octets alloués par le thread au début de la phase.
+     */
+    private final long debut, octetsDebut;
+    /**
+     * La durée de la phase (en nanosecondes).
+     * Le nombre d'octets alloués par le thread pendant la phase (-1 si la JVM ne le mesure pas).
+     * Le nombre de symboles lus et produits.
+     * Le nombre de traits émis par la tortue et de commandes de tracé envoyées au canvas.
+     */
+    private long duree, octetsAlloues;
+    private long symbolesEntree, symbolesSortie;
+    private long nbTraits, nbCommandes;
+
+    /**
+     * Commence la mesure d'une phase.
+     * @param phase la phase mesurée
+     * @param iteration le numéro de l'itération concernée
+     * @param evenement l'événement JFR de la phase, ou null pour une mesure inactive
+     */
+    MesurePhase(Mesures.Phase phase, int iteration, EvenementPhase evenement) {
+        this.phase = phase;
+        this.iteration = iteration;
+        this.evenement = evenement;
+        this.octetsDebut = evenement == null ? 0 : Mesures.octetsAlloues();
+        this.debut = System.nanoTime();
+        if (evenement != null)
+            evenement.begin();
+    }
+
+    /**
+     * Termine la mesure, émet l'événement JFR et conserve la mesure si les mesures sont activées.
+     * @param symbolesEntree le nombre de symboles lus
+     * @param symbolesSortie le nombre de symboles produits
+     * @param nbTraits le nombre de traits émis par la tortue
+     * @param nbCommandes le nombre de commandes envoyées au canvas
+     */
+    public void termine(long symbolesEntree, long symbolesSortie, long nbTraits, long nbCommandes) {
+        if (evenement == null)
+            return;
+        evenement.end();
+        this.duree = System.nanoTime() - debut;
+        long octetsFin = Mesures.octetsAlloues();
+        this.octetsAlloues = octetsFin < 0 ? -1 : octetsFin - octetsDebut;
+        this.symbolesEntree = symbolesEntree;
+        this.symbolesSortie = symbolesSortie;
+        this.nbTraits = nbTraits;
+        this.nbCommandes = nbCommandes;
+        if (evenement.shouldCommit()) {
+            evenement.phase = phase.name();
+            evenement.iteration = iteration;
+            evenement.symbolesEntree = symbolesEntree;
+            evenement.symbolesSortie = symbolesSortie;
+            evenement.octetsAlloues = octetsAlloues;
+            evenement.nbTraits = nbTraits;
+            evenement.nbCommandes = nbCommandes;
+            evenement.commit();
+        }
+        if (Mesures.estActif())
+            Mesures.ajoute(this);
+    }
+
+    /**
+     * Retourne la phase mesurée.
+     * @return la phase mesurée
+     */
+    public Mesures.Phase getPhase() {
+        return this.phase;
+    }
+    /**
+     * Retourne le numéro de l'itération concernée.
+     * @return le numéro de l'itération, 0 si la phase ne concerne pas une itération
+     */
+    public int getIteration() {
+        return this.iteration;
+    }
+    /**
+     * Retourne la durée de la phase.
+     * @return la durée de la phase, en nanosecondes
+     */
+    public long getDuree() {
+        return this.duree;
+    }
+    /**
+     * Retourne le nombre d'octets alloués par le thread pendant la phase.
+     * @return le nombre d'octets alloués, ou -1 si la JVM ne le mesure pas
+     */
+    public long getOctetsAlloues() {
+        return this.octetsAlloues;
+    }
+    /**
+     * Retourne le nombre de symboles lus pendant la phase.
+     * @return le nombre de symboles lus
+     */
+    public long getSymbolesEntree() {
+        return this.symbolesEntree;
+    }
+    /**
+     * Retourne le nombre de symboles produits pendant la phase.
+     * @return le nombre de symboles produits
+     */
+    public long getSymbolesSortie() {
+        return this.symbolesSortie;
+    }
+    /**
+     * Retourne le nombre de traits émis par la tortue pendant la phase.
+     * @return le nombre de traits
+     */
+    public long getNbTraits() {
+        return this.nbTraits;
+    }
+    /**
+     * Retourne le nombre de commandes de tracé envoyées au canvas pendant la phase.
+     * @return le nombre de commandes
+     */
+    public long getNbCommandes() {
+        return this.nbCommandes;
+    }
+}
@@ -0,0 +1,219 @@
+package systeme.lindenmeyer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Les mesures des phases de la génération et du dessin des systèmes : analyse des règles, réécriture de chaque
+ * itération, interprétation par la tortue et tracé sur le canvas. Chaque phase mesure sa durée, les symboles lus
+ * et produits, les octets alloués par son thread, les traits émis et les commandes envoyées au canvas.
+ * Les mesures sont émises comme événements JFR ({@link EvenementPhase}) pendant un enregistrement, et conservées
+ * pour l'affichage lorsqu'elles sont activées par {@link #setActif(boolean)}.
+ * Les phases sont mesurées une fois par itération ou par lot de traits, jamais par symbole : lorsque les mesures
+ * sont désactivées et qu'aucun enregistrement JFR n'est en cours, leur coût est celui d'un test par phase.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public final class Mesures {
+    /**
+     * Les phases mesurées.
+     */
+    public enum Phase {
+        ANALYSE("Analyse des règles"),
+        REECRITURE("Réécriture"),
+        INTERPRETATION("Interprétation"),
+        TRACE("Tracé sur le canvas");
+
+        /** Le nom de la phase, tel qu'il est affiché. */
+        private final String libelle;
+
+        /**
+         * Construit une phase.
+         * @param libelle le nom affiché de la phase
+         */
+        Phase(String libelle) {
+            this.libelle = libelle;
+        }
+
+        /**
+         * Retourne le nom affiché de la phase.
+         * @return le nom de la phase
+         */
+        public String getLibelle() {
+            return this.libelle;
+        }
+    }
+
+    /**
+     * Le nombre maximal de mesures conservées, les plus anciennes étant oubliées.
+     * Le nombre maximal d'itérations détaillées par le résumé.
+     */
+    private static final int NB_MESURES_MAX = 1024;
+    private static final int NB_ITERATIONS_RESUMEES = 12;
+
+    /**
+     * Indique si les mesures sont conservées.
+     * Les dernières mesures conservées, de la plus ancienne à la plus récente.
+     */
+    private static volatile boolean actif;
+    private static final ArrayDeque<MesurePhase> mesures = new ArrayDeque<>();
+    /** Le compteur des allocations des threads (null si la JVM ne mesure pas les allocations). */
+    private static final com.sun.management.ThreadMXBean allocations = creeCompteurAllocations();
+
+    private Mesures() {
+    }
+
+    /**
+     * Retourne le compteur des allocations des threads, s'il est disponible.
+     * @return le compteur des allocations, ou null si la JVM ne mesure pas les allocations
+     */
+    private static com.sun.management.ThreadMXBean creeCompteurAllocations() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return null;
+        com.sun.management.ThreadMXBean compteur = (com.sun.management.ThreadMXBean) threads;
+        return compteur.isThreadAllocatedMemorySupported() && compteur.isThreadAllocatedMemoryEnabled() ? compteur : null;
+    }
+
+    /**
+     * Retourne le nombre d'octets alloués depuis son démarrage par le thread courant.
+     * @return le nombre d'octets alloués, ou -1 si la JVM ne le mesure pas
+     */
+    static long octetsAlloues() {
+        return allocations == null ? -1 : allocations.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Indique si les mesures sont conservées.
+     * @return true si les mesures sont conservées
+     */
+    public static boolean estActif() {
+        return actif;
+    }
+
+    /**
+     * Active ou désactive la conservation des mesures. Les événements JFR ne dépendent que de l'enregistrement JFR.
+     * @param actif true pour conserver les mesures
+     */
+    public static void setActif(boolean actif) {
+        Mesures.actif = actif;
+    }
+
+    /**
+     * Commence la mesure d'une phase, à terminer par {@link MesurePhase#termine}.
+     * @param phase la phase mesurée
+     * @param iteration le numéro de l'itération concernée, 0 si la phase ne concerne pas une itération
+     * @return la mesure de la phase, qui ne fait rien si les mesures et l'événement JFR sont désactivés
+     */
+    public static MesurePhase debut(Phase phase, int iteration) {
+        EvenementPhase evenement = new EvenementPhase();
+        if (!actif && !evenement.isEnabled())
+            return MesurePhase.INACTIVE;
+        return new MesurePhase(phase, iteration, evenement);
+    }
+
+    /**
+     * Conserve une mesure terminée.
+     * @param mesure la mesure terminée
+     */
+    static void ajoute(MesurePhase mesure) {
+        synchronized (mesures) {
+            if (mesures.size() == NB_MESURES_MAX)
+                mesures.removeFirst();
+            mesures.addLast(mesure);
+        }
+    }
+
+    /**
+     * Oublie toutes les mesures conservées, typiquement avant une nouvelle génération.
+     */
+    public static void efface() {
+        synchronized (mesures) {
+            mesures.clear();
+        }
+    }
+
+    /**
+     * Retourne les mesures conservées.
+     * @return les mesures conservées, de la plus ancienne à la plus récente
+     */
+    public static List<MesurePhase> dernieres() {
+        synchronized (mesures) {
+            return new ArrayList<>(mesures);
+        }
+    }
+
+    /**
+     * Résume les mesures conservées en quelques lignes : une ligne par itération réécrite (les dernières seulement),
+     * et une ligne par autre phase, ses mesures étant cumulées.
+     * @return le résumé des mesures
+     */
+    public static String resume() {
+        List<MesurePhase> liste = dernieres();
+        StringBuilder resume = new StringBuilder();
+        List<MesurePhase> reecritures = new ArrayList<>();
+        EnumMap<Phase, long[]> cumuls = new EnumMap<>(Phase.class);
+        for (MesurePhase mesure : liste) {
+            if (mesure.getPhase() == Phase.REECRITURE) {
+                reecritures.add(mesure);
+                continue;
+            }
+            // Nombre de mesures, durée, symboles lus, octets alloués, traits et commandes cumulés.
+            long[] cumul = cumuls.computeIfAbsent(mesure.getPhase(), phase -> new long[6]);
+            cumul[0]++;
+            cumul[1] += mesure.getDuree();
+            cumul[2] += mesure.getSymbolesEntree();
+            cumul[3] += Math.max(0, mesure.getOctetsAlloues());
+            cumul[4] += mesure.getNbTraits();
+            cumul[5] += mesure.getNbCommandes();
+        }
+        if (cumuls.containsKey(Phase.ANALYSE))
+            ligne(resume, Phase.ANALYSE.getLibelle(), cumuls.get(Phase.ANALYSE)[1], cumuls.get(Phase.ANALYSE)[3], "");
+        for (MesurePhase mesure : reecritures.subList(Math.max(0, reecritures.size() - NB_ITERATIONS_RESUMEES), reecritures.size()))
+            ligne(resume, Phase.REECRITURE.getLibelle() + " " + mesure.getIteration(), mesure.getDuree(), mesure.getOctetsAlloues(),
+                  String.format(Locale.FRANCE, "%,d → %,d symboles, %s", mesure.getSymbolesEntree(), mesure.getSymbolesSortie(),
+                                debit(mesure.getSymbolesSortie(), mesure.getDuree())));
+        if (cumuls.containsKey(Phase.INTERPRETATION)) {
+            long[] cumul = cumuls.get(Phase.INTERPRETATION);
+            ligne(resume, Phase.INTERPRETATION.getLibelle(), cumul[1], cumul[3],
+                  String.format(Locale.FRANCE, "%,d symboles, %,d traits, %s", cumul[2], cumul[4], debit(cumul[2], cumul[1])));
+        }
+        if (cumuls.containsKey(Phase.TRACE)) {
+            long[] cumul = cumuls.get(Phase.TRACE);
+            ligne(resume, Phase.TRACE.getLibelle(), cumul[1], cumul[3], String.format(Locale.FRANCE, "%,d lots, %,d commandes", cumul[0], cumul[5]));
+        }
+        return resume.length() == 0 ? "Aucune mesure." : resume.toString().trim();
+    }
+
+    /**
+     * Ajoute une ligne au résumé des mesures.
+     * @param resume le résumé
+     * @param titre le titre de la ligne
+     * @param duree la durée (en nanosecondes)
+     * @param octets le nombre d'octets alloués, négatif s'il n'est pas connu
+     * @param details les détails de la ligne, éventuellement vides
+     */
+    private static void ligne(StringBuilder resume, String titre, long duree, long octets, String details) {
+        resume.append(String.format(Locale.FRANCE, "%s : %.2f ms", titre, duree / 1e6));
+        if (octets >= 0)
+            resume.append(String.format(Locale.FRANCE, ", %,d Ko alloués", octets >> 10));
+        if (!details.isEmpty())
+            resume.append(", ").append(details);
+        resume.append('\n');
+    }
+
+    /**
+     * Formate un débit en symboles par seconde.
+     * @param nbSymboles le nombre de symboles
+     * @param duree la durée (en nanosecondes)
+     * @return le débit formaté
+     */
+    private static String debit(long nbSymboles, long duree) {
+        return duree <= 0 ? "-" : String.format(Locale.FRANCE, "%,.1f Msymboles/s", nbSymboles * 1e3 / duree);
+    }
+}
@@ -0,0 +1,425 @@
+package systeme.lindenmeyer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Le moteur de réécriture partagé par tous les systèmes de Lindenmeyer.
+ * Chaque génération est écrite dans un {@link TamponSymboles} dimensionné à l'avance à partir du facteur
+ * d'expansion du système, ce qui rend le coût d'une itération linéaire en la longueur de la chaîne produite.
+ * Les grandes générations sont découpées en blocs réécrits en parallèle ; dans un système stochastique,
+ * le choix de chaque production ne dépend que de l'itération et de la position du symbole, si bien que le découpage
+ * ne change pas le résultat.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class MoteurReecriture {
+    /**
+     * La longueur de chaîne à partir de laquelle une itération déterministe est réécrite en parallèle.
+     * Le nombre de symboles lus par chaque bloc d'une réécriture parallèle.
+     */
+    private static final int SEUIL_PARALLELE = 1 << 20;
+    private static final int TAILLE_BLOC = 1 << 16;
+
+    /**
+     * Choisit la production à appliquer à un symbole qui en possède plusieurs.
+     */
+    @FunctionalInterface
+    public interface ChoixAlternative {
+        /**
+         * Retourne l'indice de la production à appliquer.
+         * Pour que les réécritures parallèles et au fil de l'eau donnent la même génération, le choix ne doit dépendre
+         * que de ses paramètres.
+         * @param symbole le code du symbole à réécrire
+         * @param nbAlternatives le nombre de productions du symbole
+         * @param iteration l'itération qui réécrit le symbole, à partir de 0
+         * @param position la position du symbole dans la chaîne réécrite
+         * @return l'indice de la production choisie, entre 0 et nbAlternatives exclu
+         */
+        int choisit(int symbole, int nbAlternatives, int iteration, long position);
+    }
+
+    /**
+     * La grammaire compilée du système.
+     * Le choix des productions pour les symboles qui en ont plusieurs (null pour un système déterministe).
+     */
+    private final GrammaireCompilee grammaire;
+    private final ChoixAlternative choix;
+    /** Indique si les grandes générations sont réécrites en parallèle. */
+    private boolean parallele;
+    /** Le suivi de la dérivation (null si la dérivation n'est pas suivie). */
+    private SuiviDerivation suivi;
+
+    /**
+     * Construit un moteur de réécriture déterministe.
+     * @param grammaire la grammaire compilée du système
+     */
+    public MoteurReecriture(GrammaireCompilee grammaire) {
+        this(grammaire, null);
+    }
+
+    /**
+     * Construit un moteur de réécriture choisissant parmi les productions d'un même symbole.
+     * @param grammaire la grammaire compilée du système
+     * @param choix le choix des productions, ou null pour toujours appliquer la dernière règle définie
+     */
+    public MoteurReecriture(GrammaireCompilee grammaire, ChoixAlternative choix) {
+        this.grammaire = grammaire;
+        this.choix = choix;
+        this.parallele = true;
+    }
+
+    /**
+     * Active ou désactive la réécriture parallèle des grandes générations.
+     * @param parallele true pour réécrire en parallèle les grandes générations
+     */
+    public void setParallele(boolean parallele) {
+        this.parallele = parallele;
+    }
+
+    /**
+     * Fixe le suivi des dérivations, qui est informé de leur avancement et peut les abandonner.
+     * @param suivi le suivi des dérivations, ou null pour ne pas les suivre
+     */
+    public void setSuivi(SuiviDerivation suivi) {
+        this.suivi = suivi;
+    }
+
+    /**
+     * Signale au suivi l'avancement de la réécriture d'une itération.
+     * @param iteration le numéro de l'itération, à partir de 0
+     * @param nbSymboles le nombre de symboles produits jusque-là par l'itération
+     */
+    private void signale(int iteration, long nbSymboles) {
+        if (suivi != null)
+            suivi.reecriture(iteration + 1, nbSymboles);
+    }
+
+    /**
+     * Dérive la chaîne obtenue après le nombre d'itérations donné à partir d'un axiome.
+     * Deux tampons sont alternés d'une itération à l'autre pour éviter de réallouer la mémoire.
+     * @param axiome la chaîne de départ
+     * @param nbIterations le nombre d'itérations
+     * @return la chaîne obtenue après les itérations
+     */
+    public TamponSymboles derive(CharSequence axiome, int nbIterations) {
+        double facteurExpansionMax = grammaire.getLongueurMaxProduction();
+        TamponSymboles courant = new TamponSymboles(axiome);
+        TamponSymboles suivant = new TamponSymboles(capacite(courant.length(), facteurExpansionMax));
+        double facteurExpansion = facteurExpansionMax;
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            int longueurPrecedente = courant.length();
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.REECRITURE, iteration + 1);
+            suivant.vide();
+            if (parallele && longueurPrecedente >= SEUIL_PARALLELE)
+                reecritParallele(courant, suivant, iteration);
+            else {
+                // Sans choix aléatoire, la longueur exacte de la génération suivante se lit dans la table des productions.
+                suivant.reserve(choix == null ? longueurReecriture(courant) : (long) Math.ceil(longueurPrecedente * facteurExpansion));
+                reecrit(courant, suivant, iteration);
+            }
+            mesure.termine(longueurPrecedente, suivant.length(), 0, 0);
+            signale(iteration, suivant.length());
+            // Le rapport entre deux générations successives converge vers le facteur de croissance du système.
+            if (longueurPrecedente > 0)
+                facteurExpansion = Math.min(facteurExpansionMax, (double) suivant.length() / longueurPrecedente);
+            TamponSymboles echange = courant;
+            courant = suivant;
+            suivant = echange;
+        }
+        return courant;
+    }
+
+    /**
+     * Dérive la chaîne obtenue après le nombre d'itérations donné, en écrivant sur le disque les générations trop longues
+     * pour la mémoire. Les générations sont réécrites en mémoire tant que leur réécriture peut tenir dans le seuil donné ;
+     * au-delà, chaque génération est lue par projection de son fichier et la suivante écrite séquentiellement dans
+     * un nouveau fichier, le fichier lu étant supprimé à la fin de l'itération. Les choix d'un système stochastique,
+     * qui ne dépendent que de l'itération et de la position, sont les mêmes que ceux de {@link #derive(CharSequence, int)}.
+     * @param axiome la chaîne de départ
+     * @param nbIterations le nombre d'itérations
+     * @param repertoire le répertoire dans lequel écrire les fichiers des générations
+     * @param seuilMemoire le nombre de symboles au-delà duquel une génération est écrite sur le disque
+     * @return la chaîne obtenue après les itérations, en mémoire ou dans un fichier selon sa longueur
+     * @exception IOException si une génération ne peut pas être écrite ou projetée
+     */
+    public SequenceSymboles deriveHorsMemoire(CharSequence axiome, int nbIterations, Path repertoire, long seuilMemoire) throws IOException {
+        SequenceSymboles courant = new TamponSymboles(axiome);
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            long longueurPrecedente = courant.taille();
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.REECRITURE, iteration + 1);
+            SequenceSymboles suivant;
+            if (courant instanceof TamponSymboles && longueurPrecedente * (double) grammaire.getLongueurMaxProduction() <= seuilMemoire)
+                suivant = reecrit((TamponSymboles) courant, iteration);
+            else {
+                suivant = reecritFichier(courant, iteration, repertoire);
+                if (courant instanceof GenerationFichier)
+                    ((GenerationFichier) courant).close();
+            }
+            mesure.termine(longueurPrecedente, suivant.taille(), 0, 0);
+            signale(iteration, suivant.taille());
+            courant = suivant;
+        }
+        return courant;
+    }
+
+    /**
+     * Applique une itération de réécriture à une chaîne en écrivant la chaîne réécrite dans un nouveau fichier.
+     * La chaîne est lue par blocs, directement dans son tableau ou dans la projection de son fichier.
+     * @param chaine la chaîne à réécrire, en mémoire ou dans un fichier
+     * @param iteration le numéro de l'itération
+     * @param repertoire le répertoire dans lequel créer le fichier
+     * @return la chaîne réécrite
+     * @exception IOException si la chaîne réécrite ne peut pas être écrite ou projetée
+     */
+    private GenerationFichier reecritFichier(SequenceSymboles chaine, int iteration, Path repertoire) throws IOException {
+        try (GenerationFichier.Ecriture ecriture = new GenerationFichier.Ecriture(repertoire, "generation-" + (iteration + 1) + "-")) {
+            long longueur = chaine.taille();
+            byte[] bloc = new byte[TAILLE_BLOC];
+            for (long debut = 0; debut < longueur; debut += TAILLE_BLOC) {
+                int nbSymboles = (int) Math.min(TAILLE_BLOC, longueur - debut);
+                signale(iteration, ecriture.getTaille());
+                if (chaine instanceof GenerationFichier)
+                    ((GenerationFichier) chaine).lit(debut, bloc, nbSymboles);
+                else
+                    System.arraycopy(((TamponSymboles) chaine).tableau(), (int) debut, bloc, 0, nbSymboles);
+                for (int indice = 0; indice < nbSymboles; indice++) {
+                    int symbole = bloc[indice] & 0xFF;
+                    byte[] production = production(symbole, iteration, debut + indice);
+                    if (production == null)
+                        ecriture.ajoute((byte) symbole);
+                    else
+                        ecriture.ajoute(production);
+                }
+            }
+            return ecriture.termine();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Applique une itération de réécriture à une chaîne.
+     * @param chaine la chaîne à réécrire
+     * @param iteration le numéro de l'itération, à partir de 0, qui détermine les choix d'un système stochastique
+     * @return la chaîne réécrite
+     */
+    public TamponSymboles reecrit(CharSequence chaine, int iteration) {
+        TamponSymboles source = chaine instanceof TamponSymboles ? (TamponSymboles) chaine : new TamponSymboles(chaine);
+        TamponSymboles resultat = new TamponSymboles(capacite(source.length(), grammaire.getLongueurMaxProduction()));
+        reecrit(source, resultat, iteration);
+        return resultat;
+    }
+
+    /**
+     * Applique une itération de réécriture à une chaîne en marquant les symboles apparus lors de cette itération.
+     * Dans la production d'un symbole, la première occurrence de ce même symbole le prolonge et n'est pas marquée,
+     * pas plus qu'un symbole sans règle recopié tel quel ; tous les autres symboles produits sont nouveaux.
+     * @param chaine la chaîne à réécrire
+     * @param resultat le tampon, vide, dans lequel écrire la chaîne réécrite
+     * @param iteration le numéro de l'itération, à partir de 0, qui détermine les choix d'un système stochastique
+     * @return les marques des symboles nouveaux de la chaîne réécrite, un bit par symbole
+     */
+    long[] reecritCroissance(TamponSymboles chaine, TamponSymboles resultat, int iteration) {
+        byte[] symboles = chaine.tableau();
+        int longueur = chaine.length();
+        long[] nouveaux = new long[(capacite(longueur, Math.max(1, grammaire.getLongueurMaxProduction())) >>> 6) + 1];
+        for (int position = 0; position < longueur; position++) {
+            int symbole = symboles[position] & 0xFF;
+            byte[] production = production(symbole, iteration, position);
+            if (production == null) {
+                resultat.ajoute((byte) symbole);
+                continue;
+            }
+            int ecriture = resultat.length();
+            resultat.ajoute(production);
+            boolean prolonge = false;
+            for (int indice = 0; indice < production.length; indice++) {
+                if (!prolonge && (production[indice] & 0xFF) == symbole) {
+                    prolonge = true;
+                    continue;
+                }
+                nouveaux[(ecriture + indice) >>> 6] |= 1L << (ecriture + indice);
+            }
+        }
+        return nouveaux;
+    }
+
+    /**
+     * Retourne la capacité à réserver pour une chaîne dont on connaît une estimation de la longueur.
+     * @param longueur la longueur de la chaîne à réécrire
+     * @param facteurExpansion le facteur d'expansion estimé
+     * @return la capacité à réserver, bornée par la taille maximale d'un tableau
+     */
+    private static int capacite(int longueur, double facteurExpansion) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(longueur * facteurExpansion));
+    }
+
+    /**
+     * Retourne la longueur de la réécriture déterministe d'une chaîne.
+     * @param chaine la chaîne à réécrire
+     * @return la longueur de la chaîne réécrite
+     */
+    private long longueurReecriture(TamponSymboles chaine) {
+        byte[] symboles = chaine.tableau();
+        int longueur = chaine.length();
+        long longueurReecriture = 0;
+        for (int position = 0; position < longueur; position++)
+            longueurReecriture += grammaire.longueurProduction(symboles[position] & 0xFF);
+        return longueurReecriture;
+    }
+
+    /**
+     * Retourne la production appliquée à un symbole.
+     * @param symbole le code du symbole
+     * @param iteration le numéro de l'itération
+     * @param position la position du symbole dans la chaîne réécrite
+     * @return la production du symbole, ou null si le symbole est conservé tel quel
+     */
+    private byte[] production(int symbole, int iteration, long position) {
+        byte[][] alternatives = grammaire.alternatives(symbole);
+        if (alternatives == null)
+            return null;
+        if (alternatives.length == 1 || choix == null)
+            return alternatives[alternatives.length - 1];
+        return alternatives[choix.choisit(symbole, alternatives.length, iteration, position)];
+    }
+
+    /**
+     * Écrit à la fin du tampon la réécriture de chaque symbole de la chaîne.
+     * @param chaine la chaîne à réécrire
+     * @param resultat le tampon dans lequel écrire la chaîne réécrite
+     * @param iteration le numéro de l'itération
+     */
+    private void reecrit(TamponSymboles chaine, TamponSymboles resultat, int iteration) {
+        byte[] symboles = chaine.tableau();
+        int longueur = chaine.length();
+        byte[] destination = resultat.tableau();
+        int ecriture = resultat.length();
+        for (int position = 0; position < longueur; position++) {
+            if ((position & SuiviDerivation.MASQUE_SIGNALEMENT) == 0)
+                signale(iteration, ecriture);
+            int symbole = symboles[position] & 0xFF;
+            byte[] production = production(symbole, iteration, position);
+            int longueurProduction = production == null ? 1 : production.length;
+            if (ecriture + longueurProduction > destination.length) {
+                // L'estimation du facteur d'expansion était trop faible : le tampon est agrandi.
+                resultat.fixeLongueur(ecriture);
+                resultat.reserve((long) ecriture + longueurProduction);
+                destination = resultat.tableau();
+            }
+            if (production == null)
+                destination[ecriture++] = (byte) symbole;
+            else {
+                System.arraycopy(production, 0, destination, ecriture, longueurProduction);
+                ecriture += longueurProduction;
+            }
+        }
+        resultat.fixeLongueur(ecriture);
+    }
+
+    /**
+     * Réécrit une chaîne en parallèle dans le pool commun de fork-join.
+     * Une première passe calcule la longueur produite par chaque bloc, une somme préfixe en déduit la position
+     * d'écriture de chaque bloc, puis une seconde passe écrit tous les blocs dans un unique tampon de la taille exacte.
+     * Les choix d'un système stochastique sont refaits à l'identique lors de la seconde passe.
+     * @param chaine la chaîne à réécrire
+     * @param resultat le tampon vide dans lequel écrire la chaîne réécrite
+     * @param iteration le numéro de l'itération
+     */
+    private void reecritParallele(TamponSymboles chaine, TamponSymboles resultat, int iteration) {
+        int nbBlocs = (chaine.length() + TAILLE_BLOC - 1) / TAILLE_BLOC;
+        long[] debuts = new long[nbBlocs];
+        ForkJoinPool.commonPool().invoke(new ReecritureBlocs(chaine, iteration, debuts, null, 0, nbBlocs));
+        // Les blocs sont réécrits sur les threads du pool : le suivi n'est informé qu'entre les deux passes.
+        signale(iteration, 0);
+        long longueurTotale = 0;
+        for (int bloc = 0; bloc < nbBlocs; bloc++) {
+            long longueurBloc = debuts[bloc];
+            debuts[bloc] = longueurTotale;
+            longueurTotale += longueurBloc;
+        }
+        resultat.reserve(longueurTotale);
+        ForkJoinPool.commonPool().invoke(new ReecritureBlocs(chaine, iteration, debuts, resultat.tableau(), 0, nbBlocs));
+        resultat.fixeLongueur((int) longueurTotale);
+    }
+
+    /**
+     * La réécriture d'un intervalle de blocs, découpé récursivement jusqu'à ne traiter qu'un seul bloc.
+     * Sans tableau de destination, la tâche calcule la longueur produite par chaque bloc ;
+     * sinon elle écrit chaque bloc à la position calculée par la somme préfixe.
+     */
+    // Les tâches de fork-join héritent de Serializable, mais une réécriture n'est jamais sérialisée.
+    @SuppressWarnings("serial")
+    private class ReecritureBlocs extends RecursiveAction {
+        /**
+         * La chaîne à réécrire.
+         * Le numéro de l'itération.
+         * Les longueurs produites par chaque bloc, puis leurs positions de départ dans la destination.
+         * Le tableau dans lequel écrire la chaîne réécrite (null lors du calcul des longueurs).
+         * L'intervalle des blocs à traiter.
+         */
+        private final TamponSymboles chaine;
+        private final int iteration;
+        private final long[] debuts;
+        private final byte[] destination;
+        private final int premierBloc, finBlocs;
+
+        /**
+         * Construit la réécriture d'un intervalle de blocs.
+         * @param chaine la chaîne à réécrire
+         * @param iteration le numéro de l'itération
+         * @param debuts les longueurs ou les positions de départ de chaque bloc
+         * @param destination le tableau dans lequel écrire, ou null pour calculer les longueurs
+         * @param premierBloc le premier bloc à traiter
+         * @param finBlocs le bloc suivant le dernier bloc à traiter
+         */
+        private ReecritureBlocs(TamponSymboles chaine, int iteration, long[] debuts, byte[] destination, int premierBloc, int finBlocs) {
+            this.chaine = chaine;
+            this.iteration = iteration;
+            this.debuts = debuts;
+            this.destination = destination;
+            this.premierBloc = premierBloc;
+            this.finBlocs = finBlocs;
+        }
+
+        @Override
+        protected void compute() {
+            if (finBlocs - premierBloc > 1) {
+                int milieu = (premierBloc + finBlocs) >>> 1;
+                invokeAll(new ReecritureBlocs(chaine, iteration, debuts, destination, premierBloc, milieu),
+                          new ReecritureBlocs(chaine, iteration, debuts, destination, milieu, finBlocs));
+                return;
+            }
+            byte[] symboles = chaine.tableau();
+            int debut = premierBloc * TAILLE_BLOC;
+            int fin = Math.min(debut + TAILLE_BLOC, chaine.length());
+            if (destination == null) {
+                long longueur = 0;
+                for (int position = debut; position < fin; position++) {
+                    if (choix == null)
+                        longueur += grammaire.longueurProduction(symboles[position] & 0xFF);
+                    else {
+                        byte[] production = production(symboles[position] & 0xFF, iteration, position);
+                        longueur += production == null ? 1 : production.length;
+                    }
+                }
+                debuts[premierBloc] = longueur;
+                return;
+            }
+            int ecriture = (int) debuts[premierBloc];
+            for (int position = debut; position < fin; position++) {
+                byte[] production = production(symboles[position] & 0xFF, iteration, position);
+                if (production == null)
+                    destination[ecriture++] = symboles[position];
+                else {
+                    System.arraycopy(production, 0, destination, ecriture, production.length);
+                    ecriture += production.length;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+
+/**
+ * L'interprétation d'une génération déterministe limitée à ce qui est visible à l'écran.
+ * La génération est développée symbole par symbole, comme un arbre, et chaque sous-arbre est d'abord résumé par le
+ * {@link CacheDerivation} : un sous-arbre dont la boîte englobante sort de la vue n'est pas développé, la tortue est
+ * seulement déplacée de son effet net ; un sous-arbre dont la boîte tient dans un pixel est remplacé par un unique trait
+ * couvrant cette boîte. Le nombre de traits transmis à l'écouteur dépend ainsi du nombre de pixels de la vue
+ * et non de la longueur de la génération.
+ * Les branches ouvertes par les productions étant refermées dans ces mêmes productions, chaque branche est un sous-arbre
+ * et profite de ces simplifications. Les mouvements de la tortue sont transmis comme par une {@link Tortue}.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ParcoursVisible {
+    /**
+     * Le cache des développements du système.
+     * La grammaire compilée du système.
+     * L'écouteur des mouvements de la tortue.
+     */
+    private final CacheDerivation cache;
+    private final GrammaireCompilee grammaire;
+    private final EcouteurTortue ecouteur;
+    /**
+     * La longueur d'un pas de la tortue.
+     * L'angle d'un pas de rotation (en radians).
+     * Le nombre de pas de rotation formant un tour complet (0 si l'angle ne divise aucun nombre entier de tours).
+     * Les cosinus et sinus de chaque orientation, lorsque le nombre de pas formant un tour est connu.
+     */
+    private final double longueur;
+    private final double delta;
+    private final int periode;
+    private final double[] cosinus, sinus;
+    /**
+     * Les bornes de la vue, élargies d'un pixel pour ne pas couper les traits du bord.
+     * La taille d'un pixel de la vue.
+     */
+    private final double xMinVue, yMinVue, xMaxVue, yMaxVue;
+    private final double taillePixel;
+    /**
+     * La position de la tortue.
+     * L'orientation de la tortue, en nombre de pas de rotation depuis la verticale.
+     */
+    private double x, y;
+    private int orientation;
+    /**
+     * Les états sauvegardés à l'ouverture des branches, trois valeurs par branche (abscisse, ordonnée, orientation).
+     * Le nombre de valeurs occupées dans la pile.
+     */
+    private double[] pile;
+    private int hauteur;
+    /**
+     * Le nombre de symboles de la génération parcourus, développés ou non.
+     * Le nombre de sous-arbres ignorés car hors de la vue.
+     * Le nombre de sous-arbres remplacés par un trait car plus petits qu'un pixel.
+     */
+    private long nbSymboles, nbIgnores, nbSimplifies;
+
+    /**
+     * Construit le parcours de la partie visible d'une génération, la tortue partant de l'origine vers le haut.
+     * @param cache le cache des développements du système
+     * @param grammaire la grammaire compilée du système
+     * @param angle l'angle (en degrés) d'une rotation
+     * @param longueur la longueur d'un pas de la tortue
+     * @param vue la partie visible du dessin, dans les coordonnées de la tortue
+     * @param taillePixel la taille d'un pixel, dans les coordonnées de la tortue
+     * @param ecouteur l'écouteur des mouvements de la tortue
+     * @exception IllegalArgumentException si la taille d'un pixel n'est pas strictement positive
+     */
+    public ParcoursVisible(CacheDerivation cache, GrammaireCompilee grammaire, double angle, double longueur, BoiteEnglobante vue, double taillePixel, EcouteurTortue ecouteur) {
+        if (!(taillePixel > 0))
+            throw new IllegalArgumentException("La taille d'un pixel doit être strictement positive.");
+        this.cache = cache;
+        this.grammaire = grammaire;
+        this.ecouteur = ecouteur;
+        this.longueur = longueur;
+        this.delta = Math.toRadians(angle);
+        this.periode = Tortue.calculePeriode(angle);
+        this.cosinus = new double[periode];
+        this.sinus = new double[periode];
+        for (int pas = 0; pas < periode; pas++) {
+            cosinus[pas] = Math.cos(-Math.PI / 2 + pas * delta);
+            sinus[pas] = Math.sin(-Math.PI / 2 + pas * delta);
+        }
+        this.xMinVue = vue.getXMin() - taillePixel;
+        this.yMinVue = vue.getYMin() - taillePixel;
+        this.xMaxVue = vue.getXMax() + taillePixel;
+        this.yMaxVue = vue.getYMax() + taillePixel;
+        this.taillePixel = taillePixel;
+        this.pile = new double[48];
+    }
+
+    /**
+     * Retourne le nombre de symboles de la génération parcourus jusqu'ici, y compris ceux des sous-arbres non développés.
+     * @return le nombre de symboles parcourus
+     */
+    public long getNbSymboles() {
+        return this.nbSymboles;
+    }
+    /**
+     * Retourne le nombre de sous-arbres ignorés car hors de la vue.
+     * @return le nombre de sous-arbres ignorés
+     */
+    public long getNbIgnores() {
+        return this.nbIgnores;
+    }
+    /**
+     * Retourne le nombre de sous-arbres remplacés par un trait car plus petits qu'un pixel.
+     * @return le nombre de sous-arbres simplifiés
+     */
+    public long getNbSimplifies() {
+        return this.nbSimplifies;
+    }
+
+    /**
+     * Parcourt la partie visible d'une génération.
+     * @param axiome l'axiome de la génération
+     * @param profondeur le nombre d'itérations appliquées à l'axiome
+     * @exception IllegalStateException si l'axiome ferme une branche qui n'a pas été ouverte
+     */
+    public void parcours(CharSequence axiome, int profondeur) {
+        TamponSymboles symboles = new TamponSymboles(axiome);
+        developpe(symboles.tableau(), symboles.length(), profondeur);
+    }
+
+    /**
+     * Parcourt les symboles d'une chaîne, chacun devant encore être réécrit le nombre de fois donné.
+     * @param symboles les symboles de la chaîne
+     * @param nbSymbolesChaine le nombre de symboles de la chaîne
+     * @param profondeur le nombre d'itérations restant à appliquer à chaque symbole
+     */
+    private void developpe(byte[] symboles, int nbSymbolesChaine, int profondeur) {
+        for (int position = 0; position < nbSymbolesChaine; position++) {
+            char symbole = (char) (symboles[position] & 0xFF);
+            byte[] production = profondeur == 0 ? null : grammaire.production(symbole);
+            if (production == null)
+                interprete(symbole);
+            else
+                visite(symbole, production, profondeur);
+        }
+    }
+
+    /**
+     * Développe un symbole réécrit, sauf si son dessin est hors de la vue ou plus petit qu'un pixel.
+     * @param symbole le symbole à développer
+     * @param production la production du symbole
+     * @param profondeur le nombre d'itérations restant à appliquer au symbole
+     */
+    private void visite(char symbole, byte[] production, int profondeur) {
+        ResumeDerivation resume = cache.resume(symbole, profondeur, orientation);
+        double xMin = x + resume.getXMin() * longueur, xMax = x + resume.getXMax() * longueur;
+        double yMin = y + resume.getYMin() * longueur, yMax = y + resume.getYMax() * longueur;
+        boolean horsVue = resume.estVide() || xMax < xMinVue || xMin > xMaxVue || yMax < yMinVue || yMin > yMaxVue;
+        if (!horsVue && (xMax - xMin > taillePixel || yMax - yMin > taillePixel)) {
+            developpe(production, production.length, profondeur - 1);
+            return;
+        }
+        double xArrivee = x + resume.getDeplacementX() * longueur;
+        double yArrivee = y + resume.getDeplacementY() * longueur;
+        if (horsVue) {
+            ecouteur.saut(x, y, xArrivee, yArrivee);
+            nbIgnores++;
+        } else {
+            ecouteur.saut(x, y, xMin, yMin);
+            ecouteur.trait(xMin, yMin, xMax, yMax);
+            ecouteur.saut(xMax, yMax, xArrivee, yArrivee);
+            nbSimplifies++;
+        }
+        x = xArrivee;
+        y = yArrivee;
+        oriente(orientation + resume.getRotation());
+        nbSymboles += resume.getLongueur();
+    }
+
+    /**
+     * Oriente la tortue.
+     * @param nouvelleOrientation la nouvelle orientation, en nombre de pas de rotation depuis la verticale
+     */
+    private void oriente(int nouvelleOrientation) {
+        orientation = periode > 0 ? Math.floorMod(nouvelleOrientation, periode) : nouvelleOrientation;
+    }
+
+    /**
+     * Interprète un symbole qui n'est plus réécrit, comme le ferait une {@link Tortue}.
+     * @param symbole le symbole à interpréter
+     * @exception IllegalStateException si le symbole ferme une branche qui n'a pas été ouverte
+     */
+    private void interprete(char symbole) {
+        nbSymboles++;
+        switch (symbole) {
+            case 'F':
+            case 'f': {
+                double cos = periode > 0 ? cosinus[orientation] : Math.cos(-Math.PI / 2 + orientation * delta);
+                double sin = periode > 0 ? sinus[orientation] : Math.sin(-Math.PI / 2 + orientation * delta);
+                double xArrivee = x + cos * longueur;
+                double yArrivee = y + sin * longueur;
+                if (symbole == 'F')
+                    ecouteur.trait(x, y, xArrivee, yArrivee);
+                else
+                    ecouteur.saut(x, y, xArrivee, yArrivee);
+                x = xArrivee;
+                y = yArrivee;
+                break;
+            }
+            case '+':
+                oriente(orientation - 1);
+                break;
+            case '-':
+                oriente(orientation + 1);
+                break;
+            case '[':
+                if (hauteur == pile.length)
+                    pile = Arrays.copyOf(pile, 2 * pile.length);
+                pile[hauteur++] = x;
+                pile[hauteur++] = y;
+                pile[hauteur++] = orientation;
+                ecouteur.empile(x, y);
+                break;
+            case ']':
+                if (hauteur == 0)
+                    throw new IllegalStateException("Le symbole ']' ferme une branche qui n'a pas été ouverte.");
+                orientation = (int) pile[--hauteur];
+                y = pile[--hauteur];
+                x = pile[--hauteur];
+                ecouteur.depile(x, y);
+                break;
+            default:
+                break;
+        }
+    }
+}
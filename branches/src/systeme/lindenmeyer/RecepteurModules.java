@@ -0,0 +1,19 @@
+package systeme.lindenmeyer;
+
+/**
+ * Reçoit un à un les modules d'une génération paramétrée, c'est-à-dire chaque symbole accompagné de ses paramètres.
+ * Les paramètres sont lus directement dans le tableau de la génération, sans être recopiés.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@FunctionalInterface
+public interface RecepteurModules {
+    /**
+     * Traite le module suivant de la génération.
+     * @param symbole le symbole du module
+     * @param parametres le tableau contenant les paramètres du module
+     * @param debut la position du premier paramètre du module dans le tableau
+     * @param nbParametres le nombre de paramètres du module
+     */
+    public void recoit(char symbole, double[] parametres, int debut, int nbParametres);
+}
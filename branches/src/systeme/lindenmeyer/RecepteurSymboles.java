@@ -0,0 +1,16 @@
+package systeme.lindenmeyer;
+
+/**
+ * Reçoit un à un les symboles d'une génération, dans l'ordre de la chaîne.
+ * Permet de consommer une génération (pour la dessiner par exemple) sans jamais la construire entièrement en mémoire.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+@FunctionalInterface
+public interface RecepteurSymboles {
+    /**
+     * Traite le symbole suivant de la génération.
+     * @param symbole le symbole reçu
+     */
+    public void recoit(char symbole);
+}
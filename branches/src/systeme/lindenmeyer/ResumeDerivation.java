@@ -0,0 +1,109 @@
+package systeme.lindenmeyer;
+
+/**
+ * Le résumé du développement d'un symbole jusqu'à une certaine profondeur : sa longueur, l'effet net
+ * de ses commandes sur la tortue et la boîte englobant les traits qu'il dessine.
+ * Les distances sont exprimées en longueurs de trait et relatives à la position de la tortue avant le développement ;
+ * les rotations sont comptées en nombre de pas de l'angle du système.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class ResumeDerivation {
+    /**
+     * Le nombre de symboles du développement (Long.MAX_VALUE s'il dépasse la capacité d'un entier long).
+     * Le nombre net de pas de rotation (un '-' ajoute un pas, un '+' en retire un).
+     * Le déplacement net de la tortue.
+     * La boîte englobant les traits dessinés (vide si aucun trait n'est dessiné).
+     */
+    private final long longueur;
+    private final int rotation;
+    private final double deplacementX, deplacementY;
+    private final double xMin, yMin, xMax, yMax;
+
+    /**
+     * Construit un résumé de développement.
+     * @param longueur le nombre de symboles du développement
+     * @param rotation le nombre net de pas de rotation
+     * @param deplacementX le déplacement net horizontal
+     * @param deplacementY le déplacement net vertical
+     * @param xMin l'abscisse minimale des traits
+     * @param yMin l'ordonnée minimale des traits
+     * @param xMax l'abscisse maximale des traits
+     * @param yMax l'ordonnée maximale des traits
+     */
+    public ResumeDerivation(long longueur, int rotation, double deplacementX, double deplacementY, double xMin, double yMin, double xMax, double yMax) {
+        this.longueur = longueur;
+        this.rotation = rotation;
+        this.deplacementX = deplacementX;
+        this.deplacementY = deplacementY;
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.xMax = xMax;
+        this.yMax = yMax;
+    }
+
+    /**
+     * Retourne le nombre de symboles du développement.
+     * @return le nombre de symboles du développement
+     */
+    public long getLongueur() {
+        return this.longueur;
+    }
+    /**
+     * Retourne le nombre net de pas de rotation du développement.
+     * @return le nombre net de pas de rotation du développement
+     */
+    public int getRotation() {
+        return this.rotation;
+    }
+    /**
+     * Retourne le déplacement horizontal net de la tortue.
+     * @return le déplacement horizontal net de la tortue
+     */
+    public double getDeplacementX() {
+        return this.deplacementX;
+    }
+    /**
+     * Retourne le déplacement vertical net de la tortue.
+     * @return le déplacement vertical net de la tortue
+     */
+    public double getDeplacementY() {
+        return this.deplacementY;
+    }
+    /**
+     * Retourne l'abscisse minimale des traits dessinés.
+     * @return l'abscisse minimale des traits dessinés
+     */
+    public double getXMin() {
+        return this.xMin;
+    }
+    /**
+     * Retourne l'ordonnée minimale des traits dessinés.
+     * @return l'ordonnée minimale des traits dessinés
+     */
+    public double getYMin() {
+        return this.yMin;
+    }
+    /**
+     * Retourne l'abscisse maximale des traits dessinés.
+     * @return l'abscisse maximale des traits dessinés
+     */
+    public double getXMax() {
+        return this.xMax;
+    }
+    /**
+     * Retourne l'ordonnée maximale des traits dessinés.
+     * @return l'ordonnée maximale des traits dessinés
+     */
+    public double getYMax() {
+        return this.yMax;
+    }
+
+    /**
+     * Indique si le développement ne dessine aucun trait.
+     * @return true si la boîte englobante est vide
+     */
+    public boolean estVide() {
+        return xMin > xMax;
+    }
+}
@@ -0,0 +1,37 @@
+package systeme.lindenmeyer;
+
+/**
+ * Une génération de L-système vue comme une suite de symboles indexée par des entiers longs,
+ * quelle que soit la façon dont elle est stockée (tampon en mémoire, structure partagée, ...).
+ * Les moteurs de rendu et les exports acceptent toute séquence de symboles.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public interface SequenceSymboles {
+    /**
+     * Retourne le nombre de symboles de la séquence.
+     * @return le nombre de symboles de la séquence
+     */
+    public long taille();
+
+    /**
+     * Retourne le symbole situé à la position donnée.
+     * @param index la position du symbole, entre 0 et taille() exclu
+     * @return le symbole situé à cette position
+     */
+    public char symbole(long index);
+
+    /**
+     * Transmet au récepteur, dans l'ordre, chaque symbole de la séquence.
+     * @param recepteur le récepteur des symboles
+     */
+    public void parcours(RecepteurSymboles recepteur);
+
+    /**
+     * Retourne la partie de la séquence comprise entre deux positions.
+     * @param debut la position du premier symbole de la tranche
+     * @param fin la position suivant le dernier symbole de la tranche
+     * @return la tranche de la séquence
+     */
+    public SequenceSymboles tranche(long debut, long fin);
+}
@@ -0,0 +1,30 @@
+package systeme.lindenmeyer;
+
+/**
+ * Suit l'avancement de la dérivation d'une génération puis de son parcours (pour mesurer son dessin ou l'exporter),
+ * et permet de les abandonner. La réécriture et le parcours signalent leur avancement après chaque itération et tous les
+ * {@value #MASQUE_SIGNALEMENT} + 1 symboles au cours d'une itération ou d'un parcours : un suivi qui lève
+ * une {@link java.util.concurrent.CancellationException} interrompt donc la dérivation quelques milliers
+ * de symboles au plus après avoir été annulé.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public interface SuiviDerivation {
+    /** Le nombre de symboles traités entre deux signalements, moins un. */
+    public static final int MASQUE_SIGNALEMENT = (1 << 14) - 1;
+
+    /**
+     * Signale l'avancement de la réécriture d'une itération.
+     * @param iteration le numéro de l'itération en cours, à partir de 1
+     * @param nbSymboles le nombre de symboles produits jusque-là par l'itération
+     * @exception java.util.concurrent.CancellationException si la dérivation doit être abandonnée
+     */
+    public void reecriture(int iteration, long nbSymboles);
+
+    /**
+     * Signale l'avancement du parcours d'une génération, qui mesure son dessin ou transmet ses traits à un export.
+     * @param nbSymboles le nombre de symboles parcourus jusque-là
+     * @exception java.util.concurrent.CancellationException si le parcours doit être abandonné
+     */
+    public void mesure(long nbSymboles);
+}
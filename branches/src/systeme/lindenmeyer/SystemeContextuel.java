@@ -1,21 +1,26 @@
 package systeme.lindenmeyer;
 
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-import java.util.LinkedHashMap;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Cette classe représente un système de Lindenmeyer contextuel.
- * Un système de Lindenmeyer contextuel utilise des règles qui prennent en compte le contexte (les axiomes précédents)
- * lors de la génération de la chaîne de caractères du système.
- * 
+ * Un système de Lindenmeyer contextuel utilise des règles de la forme "G&lt;S&gt;D" qui ne réécrivent le symbole S que
+ * s'il est précédé du contexte G et suivi du contexte D, les symboles ignorés et les branches étant pris en compte
+ * comme décrit dans {@link GrammaireContextuelle}.
+ * Les générations d'un système dont les règles ont des contextes sont construites en mémoire ; un système sans contexte
+ * se comporte comme un système déterministe et en garde toutes les optimisations.
+ *
  * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
  */
 public class SystemeContextuel extends SystemeLindenmeyer implements Generation {
-    /** Un tableau des règles contextuelles qui permettent de définir l'évolution de chaque axiome en fonction de son contexte. */
+    /**
+     * Un tableau des règles contextuelles qui permettent de définir l'évolution de chaque axiome en fonction de son contexte.
+     * Les symboles ignorés dans la recherche des contextes.
+     * La grammaire contextuelle compilée du système.
+     */
     private String[][] reglesContextuelles;
+    private String ignores;
+    private GrammaireContextuelle grammaireContextuelle;
 
     /**
      * Construit une nouvelle instance d'un système de Lindenmeyer contextuel.
@@ -24,65 +29,103 @@ public class SystemeContextuel extends SystemeLindenmeyer implements Generation
      * @param angle l'angle (en degrés) pour tourner lors de l'affichage
      * @param iteration le nombre d'itérations
      * @param longueur la longueur du dessin
-     * @param reglesContextuelles le tableau des règles contextuelles
+     * @param reglesContextuelles le tableau des règles contextuelles, sous la forme de couples {prédécesseur, production}
+     * @param ignores les symboles ignorés dans la recherche des contextes
      */
-    public SystemeContextuel(String axiome, String regles, double angle, int iteration, int longueur, String[][] reglesContextuelles) {
+    public SystemeContextuel(String axiome, String regles, double angle, int iteration, int longueur, String[][] reglesContextuelles, String ignores) {
         super(axiome, regles, angle, iteration, longueur);
         this.reglesContextuelles = reglesContextuelles;
+        this.ignores = ignores;
+    }
+    public SystemeContextuel(String axiome, String regles, double angle, int iteration, int longueur, String[][] reglesContextuelles) {
+        this(axiome, regles, angle, iteration, longueur, reglesContextuelles, "");
     }
     public SystemeContextuel() {
         this("F X", "", 25, 5, 7, new String[][] {{"X", "F-[[X]+X]+F[+FX]-X"}, {"F", "FF"}});
     }
 
     /**
-     * Initialise les règles contextuelles comme un LinkedHashMap avec
-     * le contexte comme clé et la règle correspondante comme valeur.
-     * @return un LinkedHashMap avec les règles contextuelles
+     * Retourne les symboles ignorés dans la recherche des contextes.
+     * @return les symboles ignorés
      */
-    private LinkedHashMap<String, String> initialiseReglesContextuelles() {
-        LinkedHashMap<String, String> associeContextesRegles = new LinkedHashMap<>();
-        for (String[] regle : reglesContextuelles)
-            associeContextesRegles.put(regle[0], regle[1]);
-        return associeContextesRegles;
+    public String getIgnores() {
+        return this.ignores;
     }
 
     /**
-     * Transforme une chaîne de caractères en une liste de caractères.
-     * @param chaine la chaîne à transformer
-     * @return une liste de caractères
+     * Retourne la grammaire contextuelle du système, les règles n'étant analysées qu'une seule fois.
+     * @return la grammaire contextuelle du système
      */
-    private ArrayList<Character> decomposeChaine(String chaine) {
-        ArrayList<Character> chaineDecomposee = new ArrayList<>(chaine.length());
-        for (char symbole : chaine.toCharArray())
-            chaineDecomposee.add(symbole);
-        return chaineDecomposee;
+    public GrammaireContextuelle getGrammaireContextuelle() {
+        if (grammaireContextuelle == null) {
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.ANALYSE, 0);
+            grammaireContextuelle = new GrammaireContextuelle(reglesContextuelles, ignores);
+            mesure.termine(reglesContextuelles.length, 0, 0, 0);
+        }
+        return grammaireContextuelle;
     }
 
     /**
-     * Applique des règles contextuelles à une chaîne de caractères donnée.
-     * @param chaine la chaîne de caractères à laquelle appliquer les règles.
-     * @param reglesContextuelles un LinkedHashMap contenant les règles contextuelles à appliquer.
-     * @return une chaîne de caractères après l'application des règles.
+     * Retourne la grammaire des règles sans leurs contextes, qui n'est celle du système que s'il n'a aucun contexte.
+     * @exception UnsupportedOperationException si une règle du système dépend d'un contexte
      */
-    private String appliquerReglesContextuelles(String chaine, LinkedHashMap<String, String> reglesContextuelles) {
-        String reglesAppliquees = "";
-        for (char symbole : decomposeChaine(chaine)) {
-            String regle = reglesContextuelles.get(String.valueOf(symbole));
-            if (regle != null)
-                reglesAppliquees += regle;
-            else
-                reglesAppliquees += symbole;
+    @Override
+    protected GrammaireCompilee compileGrammaire() {
+        if (getGrammaireContextuelle().aDesContextes())
+            throw new UnsupportedOperationException("Les règles d'un système contextuel ne se réduisent pas à une grammaire hors contexte.");
+        return new GrammaireCompilee(getGrammaireContextuelle().reglesHorsContexte());
+    }
+
+    @Override
+    protected String cleDerivation() {
+        return super.cleDerivation() + '\u0000' + Arrays.deepToString(reglesContextuelles) + '\u0000' + ignores;
+    }
+
+    @Override
+    protected SystemeLindenmeyer copie(double angle, int longueur) {
+        return new SystemeContextuel(getAxiomes(), getRegles(), angle, getIteration(), longueur, reglesContextuelles, ignores);
+    }
+
+    @Override
+    public TamponSymboles deriveChaine(int nbIterations) {
+        if (!getGrammaireContextuelle().aDesContextes())
+            return super.deriveChaine(nbIterations);
+        return getGrammaireContextuelle().derive(getAxiomes(), nbIterations);
+    }
+
+    /**
+     * Les générations d'un système à contextes n'ont pas de filiation : l'animation passe de l'une à l'autre.
+     */
+    @Override
+    public Croissance croissance(int nbIterations, long nbSymbolesMax) {
+        if (!getGrammaireContextuelle().aDesContextes())
+            return super.croissance(nbIterations, nbSymbolesMax);
+        SequenceSymboles[] generations = new SequenceSymboles[nbIterations + 1];
+        TamponSymboles courante = new TamponSymboles(getAxiomes());
+        generations[0] = courante;
+        long nbSymboles = courante.length();
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            courante = getGrammaireContextuelle().derive(courante, 1);
+            nbSymboles = verifieCroissance(nbSymboles + courante.length(), nbSymbolesMax);
+            generations[iteration + 1] = courante;
         }
-        return reglesAppliquees;
+        return new Croissance(generations, new long[nbIterations + 1][]);
+    }
+
+    @Override
+    protected SequenceSymboles calculeGeneration(int nbIterations, SuiviDerivation suivi) {
+        if (!getGrammaireContextuelle().aDesContextes())
+            return super.calculeGeneration(nbIterations, suivi);
+        return getGrammaireContextuelle().derive(getAxiomes(), nbIterations, suivi);
     }
 
     @Override
-    public void generationSysteme(int nbIterations, double angle, int longueur, Color couleur, Canvas canvas) {
-        String chaineAxiomes = getAxiomes();
-        LinkedHashMap<String, String> regles = initialiseReglesContextuelles();
-        for (int iteration=0; iteration < nbIterations; iteration++)
-            chaineAxiomes = appliquerReglesContextuelles(chaineAxiomes, regles);
-        GraphicsContext gc = initialiseContexteGraphique(canvas, couleur);
-        dessineSysteme(chaineAxiomes, longueur, couleur, canvas, gc);
+    public void parcoursGeneration(int nbIterations, RecepteurSymboles recepteur) {
+        if (!getGrammaireContextuelle().aDesContextes()) {
+            super.parcoursGeneration(nbIterations, recepteur);
+            return;
+        }
+        // Une règle contextuelle doit voir toute la génération précédente : la génération est construite en mémoire.
+        generation(nbIterations).parcours(recepteur);
     }
-}
\ No newline at end of file
+}
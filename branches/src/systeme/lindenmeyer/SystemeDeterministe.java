@@ -1,10 +1,5 @@
 package systeme.lindenmeyer;
 
-import java.util.HashMap;
-import java.util.ArrayList;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
 
 /**
  * Cette classe représente un système de Lindenmeyer déterministe.
@@ -30,47 +25,7 @@ public class SystemeDeterministe extends SystemeLindenmeyer implements Generatio
   }
 
   @Override
-  public void generationSysteme(int nbIterations, double angle, int longueur, Color couleur, Canvas canvas) {
-    HashMap<Character, String> axiomesReglesCorrrespondants = associeAxiomeRegle(getRegles());
-    String chaineFinale = getAxiomes();
-    GraphicsContext gc = initialiseContexteGraphique(canvas, couleur);
-    for (int iteration=0; iteration < nbIterations; iteration++)
-      chaineFinale = remplaceAxiomeParRegle(chaineFinale, axiomesReglesCorrrespondants);
-    dessineSysteme(chaineFinale, longueur, couleur, canvas, gc);
-  }
-
-  /**
-   * Associe les axiomes aux règles correspondantes.
-   * @param chaineRegles la chaine contenant toutes les règles
-   * @return un HashMap associant chaque axiome avec sa règle
-   */
-  private HashMap<Character, String> associeAxiomeRegle(String chaineRegles) {
-    ArrayList<String> listeRegles = transformeChaine(chaineRegles);
-    HashMap<Character, String> axiomeRegle = new HashMap<Character, String>();
-    for (String regle : listeRegles) {
-      char axiome = regle.charAt(0);
-      String regleCorrespondante = supprimeAxiomeDeRegle(regle);
-      axiomeRegle.put(axiome, regleCorrespondante);
-    }
-    return axiomeRegle;
-  }
-
-  /**
-   * Remplace les symboles par leurs règles correspondantes, tandis que les symboles sans règles sont conservés tels quels.
-   * @param chaine la chaine de symboles initiale à modifier.
-   * @param axiomesReglesCorrrespondants le HashMap des axiomes et leurs règles.
-   * @return La chaine modifiée résultante après la substitution.
-   */
-  private String remplaceAxiomeParRegle(String chaine, HashMap<Character, String> axiomesReglesCorrrespondants) {
-    String chaineModifiee = "";
-    for (int caractere = 0; caractere < chaine.length(); caractere++) {
-        char symbole = chaine.charAt(caractere);
-        String regle = axiomesReglesCorrrespondants.get(symbole);
-        if (regle != null)
-            chaineModifiee += regle;
-        else
-            chaineModifiee += symbole;
-    }
-    return chaineModifiee;
+  protected SystemeLindenmeyer copie(double angle, int longueur) {
+    return new SystemeDeterministe(getAxiomes(), getRegles(), angle, getIteration(), longueur);
   }
 }
@@ -1,8 +1,12 @@
 package systeme.lindenmeyer;
 
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
@@ -23,6 +27,20 @@ public abstract class SystemeLindenmeyer implements Generation {
     private int iteration, longueur;
     private double angle;
     private String axiomes, regles;
+    /** Les règles du système compilées lors de leur première utilisation. */
+    private GrammaireCompilee grammaire;
+    /** Le cache des développements du système, créé lors de sa première utilisation. */
+    private CacheDerivation cacheDerivation;
+    /** Le cache des générations partagé avec d'autres systèmes (null si les générations ne sont pas conservées). */
+    private CacheGenerations cacheGenerations;
+    /** Le répertoire dans lequel écrire les générations trop longues pour la mémoire (null pour les garder en mémoire). */
+    private Path repertoireGenerations;
+    /** Le nombre maximal de développements conservés dans le cache. */
+    private static final int TAILLE_CACHE_DERIVATION = 1 << 16;
+    /** Le nombre de symboles au-delà duquel une génération est écrite sur le disque, si un répertoire est donné. */
+    public static final long SEUIL_HORS_MEMOIRE = 1L << 26;
+    /** La marge (en pixels) laissée autour du dessin lorsqu'il est cadré dans le canvas. */
+    public static final double MARGE_DESSIN = 10;
 
     /**
      * Construit une nouvelle instance d'un système de Lindenmeyer.
@@ -67,6 +85,75 @@ public abstract class SystemeLindenmeyer implements Generation {
         return this.longueur;
     }
 
+    /**
+     * Retourne le cache des générations utilisé par le système.
+     * @return le cache des générations, ou null si les générations ne sont pas conservées
+     */
+    public CacheGenerations getCacheGenerations() {
+        return this.cacheGenerations;
+    }
+    /**
+     * Change le cache des générations utilisé par le système.
+     * @param cacheGenerations le cache des générations, ou null pour ne pas conserver les générations
+     */
+    public void setCacheGenerations(CacheGenerations cacheGenerations) {
+        this.cacheGenerations = cacheGenerations;
+    }
+    /**
+     * Retourne le répertoire dans lequel sont écrites les générations trop longues pour la mémoire.
+     * @return le répertoire des générations, ou null si les générations restent en mémoire
+     */
+    public Path getRepertoireGenerations() {
+        return this.repertoireGenerations;
+    }
+    /**
+     * Change le répertoire dans lequel sont écrites les générations trop longues pour la mémoire.
+     * @param repertoireGenerations le répertoire des générations, ou null pour garder les générations en mémoire
+     */
+    public void setRepertoireGenerations(Path repertoireGenerations) {
+        this.repertoireGenerations = repertoireGenerations;
+    }
+
+    /**
+     * Indique si le système choisit ses productions au hasard.
+     * @return true si deux dérivations du système peuvent différer
+     */
+    public boolean estStochastique() {
+        return getChoixAlternative() != null;
+    }
+
+    /**
+     * Retourne ce qui détermine les générations du système : son type, ses axiomes et ses règles.
+     * Deux systèmes de même clé produisent les mêmes générations, quels que soient leur angle et leur longueur.
+     * @return la clé de dérivation du système
+     */
+    protected String cleDerivation() {
+        return getClass().getName() + '\u0000' + getAxiomes() + '\u0000' + getRegles();
+    }
+
+    /**
+     * Retourne une copie du système dessinée avec un autre angle et une autre longueur.
+     * La copie partage le cache des générations du système, et donc ses générations déjà calculées,
+     * ainsi que son répertoire des générations.
+     * @param angle l'angle (en degrés) de la copie
+     * @param longueur la longueur du dessin de la copie
+     * @return la copie du système
+     */
+    public SystemeLindenmeyer copieDessin(double angle, int longueur) {
+        SystemeLindenmeyer copie = copie(angle, longueur);
+        copie.setCacheGenerations(cacheGenerations);
+        copie.setRepertoireGenerations(repertoireGenerations);
+        return copie;
+    }
+
+    /**
+     * Construit un système de même type, de mêmes axiomes et de mêmes règles, avec un autre angle et une autre longueur.
+     * @param angle l'angle (en degrés) du nouveau système
+     * @param longueur la longueur du dessin du nouveau système
+     * @return le nouveau système
+     */
+    protected abstract SystemeLindenmeyer copie(double angle, int longueur);
+
     /**
      * Supprime le premier axiome et  le signe '=' d'une règle.
      * @param chaine la chaîne de règle de production à modifier
@@ -85,6 +172,40 @@ public abstract class SystemeLindenmeyer implements Generation {
         return new ArrayList<String>(Arrays.asList(chaine.trim().split(" ")));
     }
 
+    /**
+     * Décompose une chaîne de règles de la forme "X=production Y=production" en couples {symbole, production}.
+     * @param chaineRegles la chaîne contenant toutes les règles
+     * @return le tableau des couples {symbole, production}
+     */
+    protected String[][] decomposeRegles(String chaineRegles) {
+        ArrayList<String[]> regles = new ArrayList<>();
+        for (String regle : transformeChaine(chaineRegles))
+            if (!regle.isEmpty())
+                regles.add(new String[] {regle.substring(0, 1), supprimeAxiomeDeRegle(regle)});
+        return regles.toArray(new String[0][]);
+    }
+
+    /**
+     * Compile les règles du système. Par défaut, les règles sont lues depuis la chaîne de règles du système.
+     * @return la grammaire compilée du système
+     */
+    protected GrammaireCompilee compileGrammaire() {
+        return new GrammaireCompilee(decomposeRegles(getRegles()));
+    }
+
+    /**
+     * Retourne la grammaire compilée du système, les règles n'étant analysées qu'une seule fois.
+     * @return la grammaire compilée du système
+     */
+    public GrammaireCompilee getGrammaire() {
+        if (grammaire == null) {
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.ANALYSE, 0);
+            grammaire = compileGrammaire();
+            mesure.termine(getRegles().length(), 0, 0, 0);
+        }
+        return grammaire;
+    }
+
     /**
      * Initialise le canvas en paramettant les paramètres spécifiés.
      * @param gc le contexte graphique pour dessiner le système
@@ -99,66 +220,511 @@ public abstract class SystemeLindenmeyer implements Generation {
      * Initialise le crayon du dessin.
      * @param gc le contexte graphique pour dessiner le système
      * @param couleur la couleur à utiliser pour le crayon
+     * @param echelle l'échelle du dessin, compensée pour que les traits gardent une épaisseur d'un pixel
      */
-    private void initialiseCrayon(GraphicsContext gc, Color couleur) {
+    private void initialiseCrayon(GraphicsContext gc, Color couleur, double echelle) {
         gc.setStroke(couleur);
-        gc.setLineWidth(1);
+        gc.setLineWidth(1 / echelle);
     }
 
     /**
-     * Initialise le contexte graphique du canvas avec les paramètres spécifiés.
+     * Initialise le contexte graphique du canvas pour que le dessin mesuré y soit entièrement visible et centré.
+     * Un dessin qui tient dans le canvas garde sa taille, un dessin plus grand est réduit.
      * @param canvas le canvas sur lequel on dessine
      * @param couleur la couleur du stylo à utiliser
+     * @param boite la boîte englobant le dessin, mesurée par {@link #mesureGeneration(SequenceSymboles, int)}
      * @return le contexte graphique initialisé
      */
-    protected GraphicsContext initialiseContexteGraphique(Canvas canvas, Color couleur) {
+    public GraphicsContext initialiseContexteGraphique(Canvas canvas, Color couleur, BoiteEnglobante boite) {
         GraphicsContext gc = canvas.getGraphicsContext2D();
         initialiseCanvas(gc, canvas);
-        gc.translate(500, 700);
-        initialiseCrayon(gc, couleur);
+        double echelle = boite.echelle(canvas.getWidth(), canvas.getHeight(), MARGE_DESSIN);
+        gc.setTransform(echelle, 0, 0, echelle, boite.decalageX(echelle, canvas.getWidth()), boite.decalageY(echelle, canvas.getHeight()));
+        initialiseCrayon(gc, couleur, echelle);
         return gc;
     }
 
+    /**
+     * Retourne le choix des productions pour les symboles qui en ont plusieurs.
+     * @return le choix des productions, ou null pour un système déterministe
+     */
+    protected MoteurReecriture.ChoixAlternative getChoixAlternative() {
+        return null;
+    }
+
+    /**
+     * Dérive entièrement en mémoire la chaîne obtenue après le nombre d'itérations donné.
+     * @param nbIterations le nombre d'itérations
+     * @return la chaîne de la génération demandée
+     */
+    public TamponSymboles deriveChaine(int nbIterations) {
+        if (getChoixAlternative() == null && longueurGeneration(nbIterations).compareTo(BigInteger.valueOf(TamponSymboles.CAPACITE_MAXIMALE)) > 0)
+            throw new IllegalStateException("La génération " + nbIterations + " est trop longue pour être construite en mémoire.");
+        MoteurReecriture moteur = new MoteurReecriture(getGrammaire(), getChoixAlternative());
+        return moteur.derive(getAxiomes(), nbIterations);
+    }
+
+    /**
+     * Dérive une fois toutes les générations du système, de l'axiome à l'itération demandée, pour animer sa croissance.
+     * Chaque génération est réécrite à partir de la précédente en marquant ses symboles nouveaux ; les choix
+     * d'un système stochastique sont ceux de {@link #deriveChaine(int)}, si bien que la dernière génération
+     * de la croissance est la génération dessinée.
+     * @param nbIterations le nombre d'itérations
+     * @param nbSymbolesMax le nombre total de symboles au-delà duquel la croissance est refusée
+     * @return la croissance du système
+     * @exception IllegalStateException si les générations dépassent ensemble le nombre de symboles permis
+     */
+    public Croissance croissance(int nbIterations, long nbSymbolesMax) {
+        MoteurReecriture moteur = new MoteurReecriture(getGrammaire(), getChoixAlternative());
+        SequenceSymboles[] generations = new SequenceSymboles[nbIterations + 1];
+        long[][] nouveaux = new long[nbIterations + 1][];
+        TamponSymboles courante = new TamponSymboles(getAxiomes());
+        generations[0] = courante;
+        long nbSymboles = courante.length();
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.REECRITURE, iteration + 1);
+            TamponSymboles suivante = new TamponSymboles(courante.length());
+            nouveaux[iteration + 1] = moteur.reecritCroissance(courante, suivante, iteration);
+            mesure.termine(courante.length(), suivante.length(), 0, 0);
+            nbSymboles = verifieCroissance(nbSymboles + suivante.length(), nbSymbolesMax);
+            generations[iteration + 1] = suivante;
+            courante = suivante;
+        }
+        return new Croissance(generations, nouveaux);
+    }
+
+    /**
+     * Vérifie que les générations d'une croissance ne dépassent pas ensemble le nombre de symboles permis.
+     * @param nbSymboles le nombre total de symboles des générations déjà dérivées
+     * @param nbSymbolesMax le nombre total de symboles permis
+     * @return le nombre total de symboles, s'il est permis
+     * @exception IllegalStateException si le nombre de symboles dépasse le nombre permis
+     */
+    protected static long verifieCroissance(long nbSymboles, long nbSymbolesMax) {
+        if (nbSymboles > nbSymbolesMax)
+            throw new IllegalStateException("Les générations à animer contiennent plus de " + nbSymbolesMax + " symboles.");
+        return nbSymboles;
+    }
+
+    /**
+     * Retourne la matrice de production du système, qui décrit sa croissance d'une génération à l'autre.
+     * @return la matrice de production du système
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     */
+    public MatriceProduction getMatriceProduction() {
+        if (getChoixAlternative() != null)
+            throw new UnsupportedOperationException("La composition d'une génération n'est connue à l'avance que pour un système déterministe.");
+        return new MatriceProduction(getGrammaire(), getAxiomes());
+    }
+
+    /**
+     * Calcule, à partir des seules règles, la longueur exacte de la génération demandée.
+     * @param nbIterations le nombre d'itérations
+     * @return la longueur de la génération
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     */
+    public BigInteger longueurGeneration(int nbIterations) {
+        return getMatriceProduction().longueur(nbIterations);
+    }
+
+    /**
+     * Calcule, à partir des seules règles, le nombre d'occurrences de chaque symbole dans la génération demandée.
+     * @param nbIterations le nombre d'itérations
+     * @return un LinkedHashMap associant chaque symbole à son nombre d'occurrences
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     */
+    public LinkedHashMap<Character, BigInteger> compteSymboles(int nbIterations) {
+        return getMatriceProduction().compteSymboles(nbIterations);
+    }
+
+    /**
+     * Retourne le cache des développements du système.
+     * @return le cache des développements du système
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     */
+    public CacheDerivation getCacheDerivation() {
+        if (getChoixAlternative() != null)
+            throw new UnsupportedOperationException("Les développements ne peuvent être mis en cache que pour un système déterministe.");
+        if (cacheDerivation == null)
+            cacheDerivation = new CacheDerivation(getGrammaire(), angle, TAILLE_CACHE_DERIVATION);
+        return cacheDerivation;
+    }
+
+    /**
+     * Résume la génération demandée (longueur, déplacement de la tortue et boîte englobante) sans la parcourir.
+     * @param nbIterations le nombre d'itérations
+     * @return le résumé de la génération, en longueurs de trait
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     */
+    public ResumeDerivation resumeGeneration(int nbIterations) {
+        return getCacheDerivation().resumeChaine(getAxiomes(), nbIterations);
+    }
+
+    /**
+     * Retourne la génération demandée sous une forme partagée, qui ne stocke que l'axiome, les règles
+     * et la longueur de chaque symbole à chaque profondeur.
+     * @param nbIterations le nombre d'itérations
+     * @return la génération demandée
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     */
+    public GenerationPartagee generationPartagee(int nbIterations) {
+        if (getChoixAlternative() != null)
+            throw new UnsupportedOperationException("Seule une génération déterministe peut partager ses développements.");
+        GrammaireCompilee grammaireCompilee = getGrammaire();
+        // Une génération partagée n'est pas réécrite : seules les longueurs de ses symboles sont calculées.
+        MesurePhase mesure = Mesures.debut(Mesures.Phase.REECRITURE, nbIterations);
+        GenerationPartagee generation = new GenerationPartagee(grammaireCompilee, getAxiomes(), nbIterations);
+        mesure.termine(getAxiomes().length(), generation.taille(), 0, 0);
+        return generation;
+    }
+
+    /**
+     * Retourne la génération demandée dans la représentation la plus économe disponible pour ce système :
+     * partagée pour un système déterministe, construite en mémoire sinon.
+     * Contrairement à {@link #parcoursGeneration(int, RecepteurSymboles)}, la génération obtenue peut être parcourue
+     * plusieurs fois à l'identique, par exemple pour la mesurer avant de la dessiner.
+     * Si le système utilise un cache des générations, celle-ci n'est calculée qu'une fois.
+     * @param nbIterations le nombre d'itérations
+     * @return la génération demandée
+     */
+    public SequenceSymboles generation(int nbIterations) {
+        return generation(nbIterations, null);
+    }
+
+    /**
+     * Retourne la génération demandée comme {@link #generation(int)}, en informant un suivi de l'avancement
+     * de la réécriture ; le suivi peut abandonner la réécriture, auquel cas la génération n'est pas conservée.
+     * @param nbIterations le nombre d'itérations
+     * @param suivi le suivi de la dérivation, ou null pour ne pas la suivre
+     * @return la génération demandée
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation
+     */
+    public SequenceSymboles generation(int nbIterations, SuiviDerivation suivi) {
+        return cacheGenerations == null ? calculeGeneration(nbIterations, suivi) : cacheGenerations.generation(this, nbIterations, suivi);
+    }
+
+    /**
+     * Calcule la génération demandée, sans passer par le cache des générations.
+     * @param nbIterations le nombre d'itérations
+     * @param suivi le suivi de la dérivation, ou null pour ne pas la suivre
+     * @return la génération demandée
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation
+     */
+    protected SequenceSymboles calculeGeneration(int nbIterations, SuiviDerivation suivi) {
+        if (getChoixAlternative() == null)
+            return generationPartagee(nbIterations);
+        if (repertoireGenerations != null)
+            return deriveHorsMemoire(nbIterations, suivi);
+        MoteurReecriture moteur = new MoteurReecriture(getGrammaire(), getChoixAlternative());
+        moteur.setSuivi(suivi);
+        return moteur.derive(getAxiomes(), nbIterations);
+    }
+
+    /**
+     * Dérive la génération demandée en écrivant dans le répertoire des générations celles qui dépassent
+     * {@link #SEUIL_HORS_MEMOIRE} symboles : la génération n'est plus limitée par la taille d'un tableau ni par le tas.
+     * @param nbIterations le nombre d'itérations
+     * @return la génération demandée, dans un {@link GenerationFichier} si elle est trop longue pour la mémoire
+     * @exception IllegalStateException si aucun répertoire n'est donné ou si une génération ne peut pas être écrite
+     */
+    public SequenceSymboles deriveHorsMemoire(int nbIterations) {
+        return deriveHorsMemoire(nbIterations, null);
+    }
+
+    /**
+     * Dérive la génération demandée comme {@link #deriveHorsMemoire(int)}, en informant un suivi de l'avancement
+     * de la réécriture. Le fichier d'une génération abandonnée est supprimé lorsqu'il n'est plus référencé.
+     * @param nbIterations le nombre d'itérations
+     * @param suivi le suivi de la dérivation, ou null pour ne pas la suivre
+     * @return la génération demandée, dans un {@link GenerationFichier} si elle est trop longue pour la mémoire
+     * @exception IllegalStateException si aucun répertoire n'est donné ou si une génération ne peut pas être écrite
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation
+     */
+    public SequenceSymboles deriveHorsMemoire(int nbIterations, SuiviDerivation suivi) {
+        if (repertoireGenerations == null)
+            throw new IllegalStateException("Aucun répertoire n'est donné pour écrire les générations sur le disque.");
+        MoteurReecriture moteur = new MoteurReecriture(getGrammaire(), getChoixAlternative());
+        moteur.setSuivi(suivi);
+        try {
+            return moteur.deriveHorsMemoire(getAxiomes(), nbIterations, repertoireGenerations, SEUIL_HORS_MEMOIRE);
+        } catch (IOException e) {
+            throw new IllegalStateException("La génération " + nbIterations + " n'a pas pu être écrite sur le disque : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mesure la boîte englobant le dessin d'une génération, sans rien dessiner.
+     * La boîte d'une génération déterministe complète est lue dans le cache des développements sans la parcourir ;
+     * les autres générations sont parcourues une fois par une tortue qui ne fait que mesurer.
+     * @param generation une génération de ce système, obtenue par exemple par {@link #generation(int)}
+     * @param longueur la longueur d'un trait
+     * @return la boîte englobant les traits de la génération, la tortue partant de l'origine
+     */
+    public BoiteEnglobante mesureGeneration(SequenceSymboles generation, int longueur) {
+        return mesureGeneration(generation, longueur, null);
+    }
+
+    /**
+     * Mesure la boîte englobant le dessin d'une génération comme {@link #mesureGeneration(SequenceSymboles, int)},
+     * en informant un suivi du nombre de symboles parcourus.
+     * @param generation une génération de ce système
+     * @param longueur la longueur d'un trait
+     * @param suivi le suivi de la mesure, ou null pour ne pas la suivre
+     * @return la boîte englobant les traits de la génération, la tortue partant de l'origine
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la mesure
+     */
+    public BoiteEnglobante mesureGeneration(SequenceSymboles generation, int longueur, SuiviDerivation suivi) {
+        if (generation instanceof GenerationPartagee && ((GenerationPartagee) generation).estComplete()) {
+            try {
+                ResumeDerivation resume = resumeGeneration(((GenerationPartagee) generation).getProfondeur());
+                if (resume.estVide())
+                    return new BoiteEnglobante();
+                return new BoiteEnglobante(resume.getXMin() * longueur, resume.getYMin() * longueur, resume.getXMax() * longueur, resume.getYMax() * longueur);
+            } catch (IllegalArgumentException e) {
+                // Les branches de la grammaire ne sont pas équilibrées : la génération est mesurée en la parcourant.
+            }
+        }
+        BoiteEnglobante boite = new BoiteEnglobante();
+        Tortue tortue = creeTortue(longueur, boite);
+        if (suivi == null) {
+            generation.parcours(tortue);
+            return boite;
+        }
+        Signalement signalement = new Signalement(tortue, suivi);
+        generation.parcours(signalement);
+        signalement.termine();
+        return boite;
+    }
+
+    /**
+     * Mesure une génération, cadre le canvas sur son dessin puis la dessine.
+     * @param generation la génération à dessiner
+     * @param longueur la longueur d'un trait
+     * @param couleur la couleur du dessin
+     * @param canvas le canvas sur lequel dessiner
+     */
+    protected void dessineGeneration(SequenceSymboles generation, int longueur, Color couleur, Canvas canvas) {
+        BoiteEnglobante boite = mesureGeneration(generation, longueur);
+        GraphicsContext gc = initialiseContexteGraphique(canvas, couleur, boite);
+        // Le dessin direct sur le canvas mesure ensemble l'interprétation et le tracé.
+        MesurePhase mesure = Mesures.debut(Mesures.Phase.INTERPRETATION, 0);
+        if (generation instanceof GenerationPartagee && ((GenerationPartagee) generation).estComplete()) {
+            try {
+                double echelle = boite.echelle(canvas.getWidth(), canvas.getHeight(), MARGE_DESSIN);
+                TraceurPolylignes traceur = new TraceurPolylignes(gc);
+                ParcoursVisible parcours = creeParcoursVisible(longueur, boite.zoneVisible(echelle, canvas.getWidth(), canvas.getHeight()), 1 / echelle, traceur);
+                parcours.parcours(getAxiomes(), ((GenerationPartagee) generation).getProfondeur());
+                traceur.termine();
+                mesure.termine(parcours.getNbSymboles(), 0, traceur.getNbTraits(), traceur.getNbCommandes());
+                return;
+            } catch (IllegalArgumentException e) {
+                // Les branches de la grammaire ne sont pas équilibrées : la génération est dessinée entièrement.
+            }
+        }
+        TraceurPolylignes traceur = dessine(generation::parcours, longueur, gc);
+        mesure.termine(generation.taille(), 0, traceur.getNbTraits(), traceur.getNbCommandes());
+    }
+
+    /**
+     * Crée le parcours d'une génération de ce système limité à la partie visible du dessin,
+     * la tortue partant de l'origine vers le haut.
+     * @param longueur la longueur d'un trait
+     * @param vue la partie visible du dessin
+     * @param taillePixel la taille d'un pixel dans les coordonnées du dessin
+     * @param ecouteur l'écouteur des mouvements de la tortue
+     * @return le parcours, à lancer avec l'axiome du système
+     * @exception UnsupportedOperationException si le système choisit ses règles au hasard
+     * @exception IllegalArgumentException si une production ouvre ou ferme une branche sans l'autre
+     */
+    public ParcoursVisible creeParcoursVisible(int longueur, BoiteEnglobante vue, double taillePixel, EcouteurTortue ecouteur) {
+        return new ParcoursVisible(getCacheDerivation(), getGrammaire(), angle, longueur, vue, taillePixel, ecouteur);
+    }
+
+    /**
+     * Transmet au récepteur chaque symbole de la génération demandée sans construire la chaîne en mémoire.
+     * @param nbIterations le nombre d'itérations
+     * @param recepteur le récepteur des symboles de la génération
+     */
+    public void parcoursGeneration(int nbIterations, RecepteurSymboles recepteur) {
+        parcoursGeneration(nbIterations, recepteur, null);
+    }
+
+    /**
+     * Transmet au récepteur chaque symbole de la génération demandée comme {@link #parcoursGeneration(int, RecepteurSymboles)},
+     * en informant un suivi de la dérivation puis du nombre de symboles parcourus.
+     * @param nbIterations le nombre d'itérations
+     * @param recepteur le récepteur des symboles de la génération
+     * @param suivi le suivi de la dérivation et du parcours, ou null pour ne pas les suivre
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation ou le parcours
+     */
+    public void parcoursGeneration(int nbIterations, RecepteurSymboles recepteur, SuiviDerivation suivi) {
+        Signalement signalement = suivi == null ? null : new Signalement(recepteur, suivi);
+        if (cacheGenerations != null) {
+            // La génération conservée est celle qui a été dessinée : on parcourt la même.
+            generation(nbIterations, suivi).parcours(signalement == null ? recepteur : signalement);
+        } else {
+            DerivationFlux derivation = new DerivationFlux(getGrammaire(), getChoixAlternative());
+            derivation.parcours(getAxiomes(), nbIterations, signalement == null ? recepteur : signalement);
+        }
+        if (signalement != null)
+            signalement.termine();
+    }
+
+    /**
+     * Transmet à l'écouteur chaque trait de la génération demandée, au fil de la dérivation.
+     * La tortue part de l'origine, orientée vers le haut.
+     * @param nbIterations le nombre d'itérations
+     * @param longueur la longueur d'un trait
+     * @param ecouteur l'écouteur des mouvements de la tortue (un export par exemple)
+     */
+    public void parcoursTraits(int nbIterations, int longueur, EcouteurTortue ecouteur) {
+        parcoursTraits(nbIterations, longueur, ecouteur, null);
+    }
+
+    /**
+     * Transmet à l'écouteur chaque trait de la génération demandée comme {@link #parcoursTraits(int, int, EcouteurTortue)},
+     * en informant un suivi de la dérivation puis du nombre de symboles interprétés.
+     * @param nbIterations le nombre d'itérations
+     * @param longueur la longueur d'un trait
+     * @param ecouteur l'écouteur des mouvements de la tortue (un export par exemple)
+     * @param suivi le suivi de la dérivation et du parcours, ou null pour ne pas les suivre
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation ou le parcours
+     */
+    public void parcoursTraits(int nbIterations, int longueur, EcouteurTortue ecouteur, SuiviDerivation suivi) {
+        parcoursGeneration(nbIterations, creeTortue(longueur, ecouteur), suivi);
+    }
+
+    /**
+     * Transmet à l'écouteur chaque branche de la génération demandée, interprétée dans l'espace par une {@link Tortue3D},
+     * au fil de la dérivation.
+     * @param nbIterations le nombre d'itérations
+     * @param longueur la longueur d'un trait
+     * @param ecouteur l'écouteur des branches de la tortue (un export de maillage par exemple)
+     */
+    public void parcoursTraits3D(int nbIterations, int longueur, EcouteurTortue3D ecouteur) {
+        parcoursTraits3D(nbIterations, longueur, ecouteur, null);
+    }
+
+    /**
+     * Transmet à l'écouteur chaque branche de la génération demandée comme {@link #parcoursTraits3D(int, int, EcouteurTortue3D)},
+     * en informant un suivi de la dérivation puis du nombre de symboles interprétés.
+     * @param nbIterations le nombre d'itérations
+     * @param longueur la longueur d'un trait
+     * @param ecouteur l'écouteur des branches de la tortue (un export de maillage par exemple)
+     * @param suivi le suivi de la dérivation et du parcours, ou null pour ne pas les suivre
+     * @exception java.util.concurrent.CancellationException si le suivi abandonne la dérivation ou le parcours
+     */
+    public void parcoursTraits3D(int nbIterations, int longueur, EcouteurTortue3D ecouteur, SuiviDerivation suivi) {
+        parcoursGeneration(nbIterations, creeTortue3D(longueur, ecouteur), suivi);
+    }
+
+    /**
+     * Dessine la génération obtenue par {@link #generation(int)}, dans sa représentation propre à chaque système :
+     * une génération déterministe est partagée et n'est développée que pendant son dessin, les autres sont
+     * construites en mémoire ou, si elles sont trop longues, écrites dans le répertoire des générations.
+     */
+    @Override
+    public void generationSysteme(int nbIterations, double angle, int longueur, Color couleur, Canvas canvas) {
+        dessineGeneration(generation(nbIterations), longueur, couleur, canvas);
+    }
+
     @Override
     public void dessineSysteme(String chaine, int d, Color couleur, Canvas canvas, GraphicsContext gc) {
-        double delta = Math.toRadians(angle);
-        double x = 500;
-        double y = 700;
-        double alpha = -Math.PI / 2;
-
-        ArrayDeque<Double> anglesSysteme = new ArrayDeque<>();
-        ArrayDeque<Double> abscisseSysteme = new ArrayDeque<>();
-        ArrayDeque<Double> ordonneeSysteme = new ArrayDeque<>();
-    
-        char[] axiomes = chaine.toCharArray();
-        for (char axiome : axiomes) {
-            switch (axiome) {
-                case 'F':
-                    gc.strokeLine(x, y, x+d*Math.cos(alpha), y+d*Math.sin(alpha));
-                    x += Math.cos(alpha) * d;
-                    y += Math.sin(alpha) * d;
-                    break;
-                case 'f':
-                    x += Math.cos(alpha) * d;
-                    y += Math.sin(alpha) * d;
-                    break;
-                case '+':
-                    alpha -= delta;
-                    break;
-                case '-':
-                    alpha += delta;
-                    break;
-                case '[':
-                    anglesSysteme.push(alpha);
-                    abscisseSysteme.push(x);
-                    ordonneeSysteme.push(y);
-                    break;
-                case ']':
-                    alpha = anglesSysteme.pop();
-                    x = abscisseSysteme.pop();
-                    y = ordonneeSysteme.pop();
-                    break;
-            }
+        dessine(tortue -> tortue.interprete(chaine), d, gc);
+    }
+
+    @Override
+    public void dessineSysteme(SequenceSymboles generation, int d, Color couleur, Canvas canvas, GraphicsContext gc) {
+        dessine(generation::parcours, d, gc);
+    }
+
+    /**
+     * Crée une tortue placée à l'origine du dessin et orientée vers le haut.
+     * @param d la longueur d'un trait
+     * @param ecouteur l'écouteur des mouvements de la tortue
+     * @return la tortue
+     */
+    public Tortue creeTortue(int d, EcouteurTortue ecouteur) {
+        return new Tortue(angle, d, 0, 0, ecouteur);
+    }
+
+    /**
+     * Crée une tortue qui interprète les générations dans l'espace, placée à l'origine et dirigée vers le haut.
+     * @param d la longueur d'un trait
+     * @param ecouteur l'écouteur des branches de la tortue
+     * @return la tortue
+     */
+    public Tortue3D creeTortue3D(int d, EcouteurTortue3D ecouteur) {
+        return new Tortue3D(angle, d, ecouteur);
+    }
+
+    /**
+     * Interprète une génération avec une tortue qui dessine sur le contexte graphique.
+     * @param generation la génération à dessiner, transmise symbole par symbole à la tortue
+     * @param d la longueur d'un trait
+     * @param gc le contexte graphique sur lequel dessiner
+     * @return le traceur qui a dessiné la génération
+     */
+    private TraceurPolylignes dessine(Consumer<Tortue> generation, int d, GraphicsContext gc) {
+        TraceurPolylignes traceur = new TraceurPolylignes(gc);
+        generation.accept(creeTortue(d, traceur));
+        traceur.termine();
+        return traceur;
+    }
+
+    /**
+     * Un récepteur qui transmet les symboles d'une génération à un autre récepteur en comptant les symboles
+     * parcourus, et signale leur nombre à un suivi tous les {@link SuiviDerivation#MASQUE_SIGNALEMENT} + 1 symboles.
+     * Les modules d'une génération paramétrée sont transmis avec leurs paramètres si le récepteur sait les lire.
+     */
+    private static class Signalement implements RecepteurSymboles, RecepteurModules {
+        /**
+         * Le récepteur des symboles parcourus.
+         * Le suivi du parcours.
+         * Le nombre de symboles parcourus.
+         */
+        private final RecepteurSymboles recepteur;
+        private final SuiviDerivation suivi;
+        private long nbSymboles;
+
+        /**
+         * Construit le signalement d'un parcours.
+         * @param recepteur le récepteur des symboles parcourus
+         * @param suivi le suivi du parcours
+         */
+        Signalement(RecepteurSymboles recepteur, SuiviDerivation suivi) {
+            this.recepteur = recepteur;
+            this.suivi = suivi;
+        }
+
+        @Override
+        public void recoit(char symbole) {
+            recepteur.recoit(symbole);
+            compte();
+        }
+
+        @Override
+        public void recoit(char symbole, double[] parametres, int debut, int nbParametres) {
+            if (recepteur instanceof RecepteurModules)
+                ((RecepteurModules) recepteur).recoit(symbole, parametres, debut, nbParametres);
+            else
+                recepteur.recoit(symbole);
+            compte();
+        }
+
+        /**
+         * Compte un symbole parcouru et signale l'avancement du parcours si nécessaire.
+         */
+        private void compte() {
+            if ((++nbSymboles & SuiviDerivation.MASQUE_SIGNALEMENT) == 0)
+                suivi.mesure(nbSymboles);
+        }
+
+        /**
+         * Signale la fin du parcours.
+         */
+        void termine() {
+            suivi.mesure(nbSymboles);
         }
     }
 }
@@ -0,0 +1,158 @@
+package systeme.lindenmeyer;
+
+import java.util.ArrayList;
+
+/**
+ * Cette classe représente un système de Lindenmeyer paramétré.
+ * Ses modules portent des paramètres réels, comme "A(1,10)", et ses règles, de la forme "A(x,y):condition=production",
+ * calculent les paramètres des modules produits à partir de ceux du module réécrit (voir {@link GrammaireParametrique}).
+ * Les règles sont séparées par des espaces, leurs expressions n'en contiennent donc pas.
+ * La tortue avance de F(l) d'une longueur l fois la longueur du dessin et tourne de +(a) d'un angle de a degrés ;
+ * les modules sans paramètre gardent l'angle et la longueur du système.
+ * Les générations sont construites en mémoire, les paramètres étant stockés dans des tableaux parallèles aux symboles.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class SystemeParametrique extends SystemeLindenmeyer implements Generation {
+    /** La grammaire paramétrée compilée du système. */
+    private GrammaireParametrique grammaireParametrique;
+
+    /**
+     * Construit une nouvelle instance d'un système de Lindenmeyer paramétré.
+     * @param axiomes les modules de départ du système, dont les paramètres sont des nombres
+     * @param regles les règles du système, séparées par des espaces
+     * @param angle l'angle (en degrés) des rotations sans paramètre
+     * @param iteration le nombre d'itérations
+     * @param longueur la longueur du dessin
+     */
+    public SystemeParametrique(String axiomes, String regles, double angle, int iteration, int longueur) {
+        super(axiomes, regles, angle, iteration, longueur);
+    }
+    public SystemeParametrique() {
+        this("A(80)", "A(l):l>=4=F(l)[+(30)A(l*0.7)][-(40)A(l*0.6)]F(l*0.3)A(l*0.5) A(l):l<4=F(l)", 30, 12, 2);
+    }
+
+    /**
+     * Décompose une chaîne de règles de la forme "A(x):condition=production B=production" en triplets
+     * {prédécesseur, condition, production}, la condition étant vide si la règle n'en a pas.
+     * @param chaineRegles la chaîne contenant toutes les règles
+     * @return le tableau des triplets {prédécesseur, condition, production}
+     * @exception IllegalArgumentException si une règle n'a pas de signe '='
+     */
+    @Override
+    protected String[][] decomposeRegles(String chaineRegles) {
+        ArrayList<String[]> regles = new ArrayList<>();
+        for (String regle : transformeChaine(chaineRegles)) {
+            if (regle.isEmpty())
+                continue;
+            int separation = separation(regle);
+            if (separation < 0)
+                throw new IllegalArgumentException("La règle \"" + regle + "\" doit être de la forme \"A(x):condition=production\".");
+            String gauche = regle.substring(0, separation);
+            int deuxPoints = gauche.indexOf(':');
+            String predecesseur = deuxPoints < 0 ? gauche : gauche.substring(0, deuxPoints);
+            String condition = deuxPoints < 0 ? "" : gauche.substring(deuxPoints + 1);
+            regles.add(new String[] {predecesseur, condition, regle.substring(separation + 1)});
+        }
+        return regles.toArray(new String[0][]);
+    }
+
+    /**
+     * Retourne la position du signe '=' qui sépare le prédécesseur et la condition d'une règle de sa production,
+     * en ignorant ceux des comparaisons "==", "&lt;=", "&gt;=" et "!=".
+     * @param regle la règle
+     * @return la position du signe '=', ou -1 s'il n'y en a pas
+     */
+    private static int separation(String regle) {
+        int profondeur = 0;
+        for (int position = 0; position < regle.length(); position++) {
+            char caractere = regle.charAt(position);
+            if (caractere == '(')
+                profondeur++;
+            else if (caractere == ')')
+                profondeur--;
+            else if (caractere == '=' && profondeur == 0) {
+                boolean comparaison = (position > 0 && "<>!=".indexOf(regle.charAt(position - 1)) >= 0)
+                                      || (position + 1 < regle.length() && regle.charAt(position + 1) == '=');
+                if (!comparaison)
+                    return position;
+                // Le second signe de "==" ne doit pas être pris pour la séparation.
+                if (position + 1 < regle.length() && regle.charAt(position + 1) == '=')
+                    position++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retourne la grammaire paramétrée du système, les règles n'étant analysées qu'une seule fois.
+     * @return la grammaire paramétrée du système
+     */
+    public GrammaireParametrique getGrammaireParametrique() {
+        if (grammaireParametrique == null) {
+            MesurePhase mesure = Mesures.debut(Mesures.Phase.ANALYSE, 0);
+            grammaireParametrique = new GrammaireParametrique(decomposeRegles(getRegles()));
+            mesure.termine(getRegles().length(), 0, 0, 0);
+        }
+        return grammaireParametrique;
+    }
+
+    /**
+     * Les règles paramétrées n'ont pas de forme compilée sans paramètres.
+     * @exception UnsupportedOperationException toujours
+     */
+    @Override
+    protected GrammaireCompilee compileGrammaire() {
+        throw new UnsupportedOperationException("Les règles d'un système paramétré ne se réduisent pas à une grammaire sans paramètres.");
+    }
+
+    @Override
+    protected SystemeLindenmeyer copie(double angle, int longueur) {
+        return new SystemeParametrique(getAxiomes(), getRegles(), angle, getIteration(), longueur);
+    }
+
+    /**
+     * Dérive en mémoire la génération obtenue après le nombre d'itérations donné, avec les paramètres de ses modules.
+     * @param nbIterations le nombre d'itérations
+     * @return la génération demandée
+     */
+    public ChaineParametree deriveChaineParametree(int nbIterations) {
+        return getGrammaireParametrique().derive(GrammaireParametrique.analyseChaine(getAxiomes()), nbIterations);
+    }
+
+    /**
+     * Dérive la génération demandée et n'en retourne que les symboles, sans les paramètres de ses modules.
+     */
+    @Override
+    public TamponSymboles deriveChaine(int nbIterations) {
+        return deriveChaineParametree(nbIterations).getSymboles();
+    }
+
+    /**
+     * Les modules d'un système paramétré n'ont pas de filiation : l'animation passe d'une génération à l'autre.
+     */
+    @Override
+    public Croissance croissance(int nbIterations, long nbSymbolesMax) {
+        SequenceSymboles[] generations = new SequenceSymboles[nbIterations + 1];
+        ChaineParametree courante = GrammaireParametrique.analyseChaine(getAxiomes());
+        generations[0] = courante;
+        long nbSymboles = courante.taille();
+        for (int iteration = 0; iteration < nbIterations; iteration++) {
+            courante = getGrammaireParametrique().derive(courante, 1);
+            nbSymboles = verifieCroissance(nbSymboles + courante.taille(), nbSymbolesMax);
+            generations[iteration + 1] = courante;
+        }
+        return new Croissance(generations, new long[nbIterations + 1][]);
+    }
+
+    @Override
+    protected SequenceSymboles calculeGeneration(int nbIterations, SuiviDerivation suivi) {
+        return getGrammaireParametrique().derive(GrammaireParametrique.analyseChaine(getAxiomes()), nbIterations, suivi);
+    }
+
+    @Override
+    public void parcoursGeneration(int nbIterations, RecepteurSymboles recepteur) {
+        // Les paramètres d'un module dépendent de toute son ascendance : la génération est construite en mémoire.
+        generation(nbIterations).parcours(recepteur);
+    }
+}
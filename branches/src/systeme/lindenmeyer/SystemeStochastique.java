@@ -1,24 +1,25 @@
 package systeme.lindenmeyer;
 
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Random;
 
 /**
  * Une classe représentant un système de Lindemayer stochastique.
  * Un système stochastique est similaire à un système déterministe sauf qu'il inclus la possibilité
  * de choisir au hasard une des règles durant le processus de réécriture.
+ * Une règle peut recevoir un poids, noté "F(0.33)=F[+F]F", qui rend son choix proportionnellement plus probable
+ * (1 par défaut). Les choix ne dépendent que de la graine du système, de l'itération et de la position de chaque symbole
+ * (voir {@link ChoixAleatoire}) : un système redonne toujours la même plante, quelle que soit la façon de la dériver.
  * 
  * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
  */
 public class SystemeStochastique extends SystemeLindenmeyer implements Generation {
-  /** Le générateur de nombre aléatoire utilisé pour générer des valeurs aléatoires pour choisir les règles. */
-  private Random rand;
+  /**
+   * La graine qui détermine les choix de règles du système.
+   * Le choix des productions du système, créé lors de sa première utilisation.
+   */
+  private final long graine;
+  private ChoixAleatoire choix;
 
   /**
    * Construit une instance d'un système de Lindemayer stochastique.
@@ -27,112 +28,70 @@ public class SystemeStochastique extends SystemeLindenmeyer implements Generatio
    * @param angle l'angle (en degrés) pour tourner lors de l'affichage
    * @param iteration le nombre d'itérations
    * @param longueur la longueur du dessin
+   * @param graine la graine qui détermine les choix de règles
    */
-	public SystemeStochastique(String axiomes, String regles, double angle, int iteration, int longueur) {
+	public SystemeStochastique(String axiomes, String regles, double angle, int iteration, int longueur, long graine) {
 		super(axiomes, regles, angle, iteration, longueur);
-    this.rand = new Random();
+    this.graine = graine;
 	}
-  public SystemeStochastique() {
-	  this("F", "F=F[+F]F[-F]F F=F[+F]F F=F[-F]F", 25.7, 20, 7);
-    this.rand = new Random();
-  }
-
-  @Override
-  public void generationSysteme(int nbIterations, double angle, int longueur, Color couleur, Canvas canvas) {
-    ArrayList<String> listeAxiomes = new ArrayList<>(Arrays.asList(supprimeEspaceDeChaine(getAxiomes()).split("")));
-    ArrayList<String> listeRegles = transformeChaine(getRegles());
-    HashMap<Character, Integer> ocurrencesDesAxiomes = associeAxiomeOccurences(listeRegles);
-
-    String chaineFinale = genereChaineSysteme(listeAxiomes, listeRegles, ocurrencesDesAxiomes, nbIterations);
-    GraphicsContext gc = initialiseContexteGraphique(canvas, couleur);
-    dessineSysteme(chaineFinale, longueur, couleur, canvas, gc);
-  }
-
   /**
-   * Supprimer les espaces en trop dans la chaîne.
-   * @param chaine la chaîne qui doit être analysée
-   * @return la chaîne sans espaces en trop
+   * Construit une instance d'un système de Lindemayer stochastique avec une graine tirée au hasard.
+   * @param axiomes le (ou les) axiome(s) du système
+   * @param regles la (ou les) règle(s) du système
+   * @param angle l'angle (en degrés) pour tourner lors de l'affichage
+   * @param iteration le nombre d'itérations
+   * @param longueur la longueur du dessin
    */
-  private String supprimeEspaceDeChaine(String chaine) {
-    return chaine.trim().replaceAll("\\s+", " ");
+  public SystemeStochastique(String axiomes, String regles, double angle, int iteration, int longueur) {
+    this(axiomes, regles, angle, iteration, longueur, new Random().nextLong());
+  }
+  public SystemeStochastique() {
+	  this("F", "F(0.33)=F[+F]F[-F]F F(0.33)=F[+F]F F(0.34)=F[-F]F", 25.7, 5, 7);
   }
 
   /**
-   * Vérifie si un axiome donné existe.
-   * @param axiome l'axiome pour lequel choisir une règle aléatoire
-   * @param occurrencesDesAxiomes une HashMap contenant le nombre d'occurrences pour chaque axiome
-   * @return true si l'axiome existe, sinon false.
+   * Retourne la graine qui détermine les choix de règles du système.
+   * @return la graine du système
    */
-  private boolean existeAxiome(char axiome, HashMap<Character, Integer> occurrencesDesAxiomes) {
-    Integer nbOccurences = occurrencesDesAxiomes.get(axiome);
-    return nbOccurences != null && nbOccurences > 0;
+  public long getGraine() {
+    return this.graine;
   }
 
   /**
-   * Retourne un HashMap contenant les occurences de chaque axiome de la liste des règles.
-   * @param regles la liste des règles du système
-   * @return un HashMap contenant les occurences de chaque axiome de la liste des règles
+   * Décompose une chaîne de règles de la forme "X=production X(poids)=production" en triplets {symbole, production, poids}.
+   * @param chaineRegles la chaîne contenant toutes les règles
+   * @return le tableau des triplets {symbole, production, poids}
    */
-  private HashMap<Character, Integer> associeAxiomeOccurences(ArrayList<String> regles) {
-    HashMap<Character, Integer> occurrencesAxiomes = new HashMap<>();
-    for (String regle : regles) {
-        char axiome = regle.charAt(0);
-        if (!occurrencesAxiomes.containsKey(axiome))
-            occurrencesAxiomes.put(axiome, 1);
-        else
-            occurrencesAxiomes.put(axiome, occurrencesAxiomes.get(axiome)+1);
+  @Override
+  protected String[][] decomposeRegles(String chaineRegles) {
+    ArrayList<String[]> regles = new ArrayList<>();
+    for (String regle : transformeChaine(chaineRegles)) {
+      if (regle.isEmpty())
+        continue;
+      int egal = regle.indexOf('=');
+      // Un poids s'écrit entre parenthèses juste après le symbole : "F(0.5)=FF".
+      if (egal > 2 && regle.charAt(1) == '(' && regle.charAt(egal - 1) == ')')
+        regles.add(new String[] {regle.substring(0, 1), regle.substring(egal + 1), regle.substring(2, egal - 1)});
+      else
+        regles.add(new String[] {regle.substring(0, 1), supprimeAxiomeDeRegle(regle), "1"});
     }
-    return occurrencesAxiomes;
+    return regles.toArray(new String[0][]);
   }
 
-  /**
-   * Choisit une règle aléatoirement dans une liste de règles.
-   * @param axiome l'axiome pour lequel choisir une règle aléatoire
-   * @param listeRegles la liste des règles du système
-   * @param occurrencesDesAxiomes un HashMap contenant le nombre d'occurrences pour chaque axiome
-   * @return Une règle aléatoire correspondant à l'axiome spécifié
-   */
-  private String choisitRegleAlea(char axiome, ArrayList<String> listeRegles, HashMap<Character, Integer> occurrencesDesAxiomes) {
-    if (!existeAxiome(axiome, occurrencesDesAxiomes))
-      return "";
-    int occurrences = occurrencesDesAxiomes.get(axiome);
-    String regle = listeRegles.get(rand.nextInt(occurrences));
-    return regle;
+  @Override
+  protected String cleDerivation() {
+    return super.cleDerivation() + '\u0000' + graine;
   }
 
-  /**
-   * Génère une chaîne de caractères aléatoire.
-   * @param listeAxiomes la liste des axiomes
-   * @param listeRegles la liste des règles
-   * @param occurrencesDesAxiomes un HashMap contenant le nombre d'occurrences pour chaque axiome
-   * @return Une chaîne de caractères aléatoire
-   */
-  private String genereChaineAlea(ArrayList<String> listeAxiomes, ArrayList<String> listeRegles, HashMap<Character, Integer> occurrencesDesAxiomes) {
-    String chaineAlea = "";
-    int nbAxiomes = listeAxiomes.size();
-    for (int posAxiome=0; posAxiome < nbAxiomes; posAxiome++) {
-      char axiome = listeAxiomes.get(posAxiome).charAt(0);
-      String regle = choisitRegleAlea(axiome, listeRegles, occurrencesDesAxiomes);
-      chaineAlea += supprimeAxiomeDeRegle(regle);
-    }
-    return chaineAlea;
+  @Override
+  protected SystemeLindenmeyer copie(double angle, int longueur) {
+    return new SystemeStochastique(getAxiomes(), getRegles(), angle, getIteration(), longueur, graine);
   }
 
-  /**
-   * Pour chaque itération génère une chaîne de caractères à partir des listes d'axiomes et de règles données.
-   * @param listeAxiomes la liste des axiomes
-   * @param listeRegles la liste des règles
-   * @param occurrencesDesAxiomes un HashMap contenant le nombre d'occurrences pour chaque axiome
-   * @param nbIterations le nombre d'itérations
-   * @return une chaîne de caractères générée à partir des listes d'axiomes et de règles données
-   */
-  private String genereChaineSysteme(ArrayList<String> listeAxiomes, ArrayList<String> listeRegles, HashMap<Character, Integer> occurrencesDesAxiomes, int nbIterations) {
-    String chaineSysteme = "";
-    for (int iteration=0; iteration < nbIterations; iteration++) {
-        String chaineIteration = genereChaineAlea(listeAxiomes, listeRegles, occurrencesDesAxiomes);
-        chaineSysteme += chaineIteration;
-    }
-    return chaineSysteme;
+  @Override
+  protected MoteurReecriture.ChoixAlternative getChoixAlternative() {
+    if (choix == null)
+      choix = new ChoixAleatoire(getGrammaire(), graine);
+    return choix;
   }
 }
-
@@ -0,0 +1,182 @@
+package systeme.lindenmeyer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Un tampon extensible de symboles utilisé pour construire les générations d'un L-système.
+ * Chaque symbole est stocké sur un octet (alphabet ISO-8859-1), ce qui divise par deux la mémoire
+ * utilisée par rapport à une chaîne de caractères, et les ajouts se font en temps constant amorti.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class TamponSymboles implements CharSequence, SequenceSymboles {
+    /** Le nombre maximal de symboles d'un tampon (la taille maximale d'un tableau Java). */
+    public static final int CAPACITE_MAXIMALE = Integer.MAX_VALUE - 8;
+
+    /**
+     * Les symboles contenus dans le tampon.
+     * Le nombre de symboles effectivement utilisés.
+     */
+    private byte[] symboles;
+    private int taille;
+
+    /**
+     * Construit un tampon vide pouvant contenir le nombre de symboles indiqué sans être agrandi.
+     * @param capacite la capacité initiale du tampon
+     */
+    public TamponSymboles(int capacite) {
+        this.symboles = new byte[Math.max(capacite, 16)];
+        this.taille = 0;
+    }
+
+    /**
+     * Construit un tampon contenant les symboles de la chaîne donnée.
+     * @param chaine la chaîne à copier
+     */
+    public TamponSymboles(CharSequence chaine) {
+        this(chaine.length());
+        ajoute(chaine);
+    }
+
+    /**
+     * Garantit que le tampon peut contenir au moins le nombre de symboles indiqué.
+     * @param capacite la capacité minimale voulue
+     * @exception IllegalStateException si la capacité dépasse la taille maximale d'un tableau
+     */
+    public void reserve(long capacite) {
+        if (capacite <= symboles.length)
+            return;
+        if (capacite > CAPACITE_MAXIMALE)
+            throw new IllegalStateException("La génération dépasse la taille maximale d'un tampon (" + capacite + " symboles).");
+        long nouvelleCapacite = Math.min(Math.max(capacite, 2L * symboles.length), CAPACITE_MAXIMALE);
+        // Un tampon vide n'a rien à recopier dans son nouveau tableau.
+        symboles = taille == 0 ? new byte[(int) nouvelleCapacite] : Arrays.copyOf(symboles, (int) nouvelleCapacite);
+    }
+
+    /**
+     * Ajoute un symbole à la fin du tampon.
+     * @param symbole le symbole à ajouter
+     * @exception IllegalArgumentException si le symbole ne tient pas sur un octet
+     */
+    public void ajoute(char symbole) {
+        if (symbole > 0xFF)
+            throw new IllegalArgumentException("Symbole non supporté : '" + symbole + "'.");
+        if (taille == symboles.length)
+            reserve(taille + 1L);
+        symboles[taille++] = (byte) symbole;
+    }
+
+    /**
+     * Ajoute tous les symboles d'une chaîne à la fin du tampon.
+     * @param chaine la chaîne à ajouter
+     */
+    public void ajoute(CharSequence chaine) {
+        int longueur = chaine.length();
+        reserve((long) taille + longueur);
+        if (chaine instanceof TamponSymboles) {
+            TamponSymboles autre = (TamponSymboles) chaine;
+            System.arraycopy(autre.symboles, 0, symboles, taille, longueur);
+            taille += longueur;
+            return;
+        }
+        for (int position = 0; position < longueur; position++)
+            ajoute(chaine.charAt(position));
+    }
+
+    /**
+     * Ajoute un symbole déjà encodé sur un octet à la fin du tampon.
+     * @param symbole le code du symbole à ajouter
+     */
+    void ajoute(byte symbole) {
+        if (taille == symboles.length)
+            reserve(taille + 1L);
+        symboles[taille++] = symbole;
+    }
+
+    /**
+     * Ajoute des symboles déjà encodés sur un octet à la fin du tampon.
+     * @param production les codes des symboles à ajouter
+     */
+    void ajoute(byte[] production) {
+        int longueur = production.length;
+        if (taille + longueur > symboles.length)
+            reserve((long) taille + longueur);
+        System.arraycopy(production, 0, symboles, taille, longueur);
+        taille += longueur;
+    }
+
+    /**
+     * Fixe le nombre de symboles du tampon après une écriture directe dans son tableau interne.
+     * @param taille le nouveau nombre de symboles, au plus égal à la capacité du tampon
+     */
+    void fixeLongueur(int taille) {
+        if (taille < 0 || taille > symboles.length)
+            throw new IndexOutOfBoundsException(taille);
+        this.taille = taille;
+    }
+
+    /**
+     * Vide le tampon sans libérer sa mémoire.
+     */
+    public void vide() {
+        this.taille = 0;
+    }
+
+    /**
+     * Retourne le tableau interne du tampon, dont seuls les {@link #length()} premiers octets sont significatifs.
+     * @return le tableau interne des symboles
+     */
+    byte[] tableau() {
+        return this.symboles;
+    }
+
+    @Override
+    public long taille() {
+        return this.taille;
+    }
+
+    @Override
+    public char symbole(long index) {
+        return charAt(Math.toIntExact(index));
+    }
+
+    @Override
+    public void parcours(RecepteurSymboles recepteur) {
+        for (int position = 0; position < taille; position++)
+            recepteur.recoit((char) (symboles[position] & 0xFF));
+    }
+
+    @Override
+    public SequenceSymboles tranche(long debut, long fin) {
+        Objects.checkFromToIndex(debut, fin, taille);
+        TamponSymboles tranche = new TamponSymboles((int) (fin - debut));
+        System.arraycopy(symboles, (int) debut, tranche.symboles, 0, (int) (fin - debut));
+        tranche.taille = (int) (fin - debut);
+        return tranche;
+    }
+
+    @Override
+    public int length() {
+        return this.taille;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= taille)
+            throw new IndexOutOfBoundsException(index);
+        return (char) (symboles[index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int debut, int fin) {
+        Objects.checkFromToIndex(debut, fin, taille);
+        return new String(symboles, debut, fin - debut, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return new String(symboles, 0, taille, StandardCharsets.ISO_8859_1);
+    }
+}
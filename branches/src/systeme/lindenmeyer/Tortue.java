@@ -0,0 +1,238 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+
+/**
+ * La tortue qui interprète les symboles d'une génération et transmet ses mouvements à un {@link EcouteurTortue}.
+ * L'orientation est conservée sous la forme d'un nombre entier de pas de rotation : lorsque l'angle du système
+ * divise un nombre entier de tours, les cosinus et sinus de toutes les orientations sont calculés une seule fois.
+ * L'état sauvegardé à chaque branche est empilé dans un unique tableau de doubles,
+ * si bien que l'interprétation d'une génération ne crée aucun objet.
+ * Les symboles interprétés sont 'F' (avancer en traçant), 'f' (avancer sans tracer), '+' et '-' (tourner)
+ * ainsi que '[' et ']' (ouvrir et fermer une branche) ; les autres symboles sont ignorés.
+ * Reçus avec un paramètre, comme dans les modules d'une {@link ChaineParametree}, 'F' et 'f' avancent du nombre de pas
+ * donné et '+' et '-' tournent de l'angle donné (en degrés) : ces rotations sont ajoutées à l'orientation
+ * sous la forme d'un écart, les cosinus et sinus étant alors calculés à chaque rotation.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class Tortue implements RecepteurSymboles, RecepteurModules {
+    /** Le plus grand nombre de pas de rotation formant un tour complet que l'on cherche pour réduire les orientations. */
+    private static final int PERIODE_MAX = 3600;
+    /**
+     * La longueur d'un pas de la tortue.
+     * L'angle d'un pas de rotation (en radians).
+     * Le nombre de pas de rotation formant un tour complet (0 si l'angle ne divise aucun nombre entier de tours).
+     * Les cosinus et sinus de chaque orientation, lorsque le nombre de pas formant un tour est connu.
+     * L'écouteur des mouvements de la tortue.
+     */
+    private final double longueur;
+    private final double delta;
+    private final int periode;
+    private final double[] cosinus, sinus;
+    private final EcouteurTortue ecouteur;
+    /**
+     * La position de la tortue.
+     * L'orientation de la tortue, en nombre de pas de rotation depuis la verticale.
+     * Les cosinus et sinus de l'orientation courante.
+     */
+    private double x, y;
+    private int orientation;
+    private double cosOrientation, sinOrientation;
+    /** L'écart de l'orientation (en radians) dû aux rotations d'un angle donné en paramètre. */
+    private double ecart;
+    /**
+     * Les états sauvegardés à l'ouverture des branches, quatre valeurs par branche (abscisse, ordonnée, orientation, écart).
+     * Le nombre de valeurs occupées dans la pile.
+     */
+    private double[] pile;
+    private int hauteur;
+
+    /**
+     * Construit une tortue orientée vers le haut.
+     * @param angle l'angle (en degrés) d'une rotation
+     * @param longueur la longueur d'un pas de la tortue
+     * @param x l'abscisse de départ
+     * @param y l'ordonnée de départ
+     * @param ecouteur l'écouteur des mouvements de la tortue
+     */
+    public Tortue(double angle, double longueur, double x, double y, EcouteurTortue ecouteur) {
+        this.longueur = longueur;
+        this.delta = Math.toRadians(angle);
+        this.periode = calculePeriode(angle);
+        this.cosinus = new double[periode];
+        this.sinus = new double[periode];
+        for (int pas = 0; pas < periode; pas++) {
+            cosinus[pas] = Math.cos(-Math.PI / 2 + pas * delta);
+            sinus[pas] = Math.sin(-Math.PI / 2 + pas * delta);
+        }
+        this.ecouteur = ecouteur;
+        this.x = x;
+        this.y = y;
+        this.pile = new double[48];
+        oriente(0);
+    }
+
+    /**
+     * Calcule le plus petit nombre de pas de rotation formant un nombre entier de tours.
+     * @param angle l'angle (en degrés) d'un pas de rotation
+     * @return le nombre de pas formant un tour, ou 0 s'il n'en existe pas de raisonnable
+     */
+    static int calculePeriode(double angle) {
+        for (int pas = 1; pas <= PERIODE_MAX; pas++) {
+            double tours = pas * angle / 360;
+            if (Math.abs(tours - Math.rint(tours)) < 1e-9)
+                return pas;
+        }
+        return 0;
+    }
+
+    /**
+     * Oriente la tortue et met à jour le cosinus et le sinus de son orientation.
+     * @param orientation la nouvelle orientation, en nombre de pas de rotation depuis la verticale
+     */
+    private void oriente(int orientation) {
+        if (periode > 0 && ecart == 0) {
+            this.orientation = Math.floorMod(orientation, periode);
+            this.cosOrientation = cosinus[this.orientation];
+            this.sinOrientation = sinus[this.orientation];
+        } else {
+            this.orientation = periode > 0 ? Math.floorMod(orientation, periode) : orientation;
+            this.cosOrientation = Math.cos(-Math.PI / 2 + this.orientation * delta + ecart);
+            this.sinOrientation = Math.sin(-Math.PI / 2 + this.orientation * delta + ecart);
+        }
+    }
+
+    /**
+     * Replace la tortue à une position donnée, orientée vers le haut et sans branche ouverte,
+     * pour interpréter une nouvelle génération sans construire une nouvelle tortue.
+     * @param x l'abscisse de départ
+     * @param y l'ordonnée de départ
+     */
+    public void reinitialise(double x, double y) {
+        this.x = x;
+        this.y = y;
+        this.ecart = 0;
+        this.hauteur = 0;
+        oriente(0);
+    }
+
+    /**
+     * Retourne l'abscisse de la tortue.
+     * @return l'abscisse de la tortue
+     */
+    public double getX() {
+        return this.x;
+    }
+    /**
+     * Retourne l'ordonnée de la tortue.
+     * @return l'ordonnée de la tortue
+     */
+    public double getY() {
+        return this.y;
+    }
+    /**
+     * Retourne l'orientation de la tortue.
+     * @return l'orientation de la tortue, en nombre de pas de rotation depuis la verticale
+     */
+    public int getOrientation() {
+        return this.orientation;
+    }
+    /**
+     * Retourne le nombre de branches ouvertes et non encore fermées.
+     * @return le nombre de branches ouvertes
+     */
+    public int getProfondeurBranche() {
+        return hauteur / 4;
+    }
+
+    /**
+     * Interprète une chaîne entière de symboles.
+     * @param chaine la chaîne à interpréter
+     */
+    public void interprete(CharSequence chaine) {
+        for (int position = 0; position < chaine.length(); position++)
+            recoit(chaine.charAt(position));
+    }
+
+    /**
+     * Fait avancer la tortue dans son orientation.
+     * @param distance la distance à parcourir
+     * @param trace true pour tracer un trait, false pour un simple déplacement
+     */
+    private void avance(double distance, boolean trace) {
+        double xArrivee = x + cosOrientation * distance;
+        double yArrivee = y + sinOrientation * distance;
+        if (trace)
+            ecouteur.trait(x, y, xArrivee, yArrivee);
+        else
+            ecouteur.saut(x, y, xArrivee, yArrivee);
+        x = xArrivee;
+        y = yArrivee;
+    }
+
+    @Override
+    public void recoit(char symbole, double[] parametres, int debut, int nbParametres) {
+        if (nbParametres == 0) {
+            recoit(symbole);
+            return;
+        }
+        switch (symbole) {
+            case 'F':
+                avance(parametres[debut] * longueur, true);
+                break;
+            case 'f':
+                avance(parametres[debut] * longueur, false);
+                break;
+            case '+':
+                ecart -= Math.toRadians(parametres[debut]);
+                oriente(orientation);
+                break;
+            case '-':
+                ecart += Math.toRadians(parametres[debut]);
+                oriente(orientation);
+                break;
+            default:
+                recoit(symbole);
+                break;
+        }
+    }
+
+    @Override
+    public void recoit(char symbole) {
+        switch (symbole) {
+            case 'F':
+                avance(longueur, true);
+                break;
+            case 'f':
+                avance(longueur, false);
+                break;
+            case '+':
+                oriente(orientation - 1);
+                break;
+            case '-':
+                oriente(orientation + 1);
+                break;
+            case '[':
+                if (hauteur == pile.length)
+                    pile = Arrays.copyOf(pile, 2 * pile.length);
+                pile[hauteur++] = x;
+                pile[hauteur++] = y;
+                pile[hauteur++] = orientation;
+                pile[hauteur++] = ecart;
+                ecouteur.empile(x, y);
+                break;
+            case ']':
+                if (hauteur == 0)
+                    throw new IllegalStateException("Le symbole ']' ferme une branche qui n'a pas été ouverte.");
+                ecart = pile[--hauteur];
+                oriente((int) pile[--hauteur]);
+                y = pile[--hauteur];
+                x = pile[--hauteur];
+                ecouteur.depile(x, y);
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package systeme.lindenmeyer;
+
+import java.util.Arrays;
+
+/**
+ * La tortue qui interprète les symboles d'une génération dans l'espace et transmet ses branches à un {@link EcouteurTortue3D}.
+ * Son orientation est le repère formé par sa direction H, sa gauche L et son dessus U ; les rotations sont celles
+ * de "The Algorithmic Beauty of Plants" : '+' et '-' tournent autour de U, '&amp;' et '^' autour de L, '\' et '/' autour de H,
+ * et '|' fait demi-tour. Les symboles 'F', 'f', '[' et ']' ont le même sens que pour la {@link Tortue} plane, et '!'
+ * reçu avec un paramètre fixe le diamètre des branches suivantes ; les autres symboles sont ignorés.
+ * Reçus avec un paramètre, comme dans les modules d'une {@link ChaineParametree}, 'F' et 'f' avancent du nombre de pas donné
+ * et les rotations tournent de l'angle donné (en degrés).
+ * La tortue part de l'origine, dirigée vers le haut (l'axe des ordonnées) avec sa gauche vers les abscisses positives :
+ * vue depuis les cotes positives, une génération plane est dessinée comme par la tortue plane.
+ * La position, le repère et le rayon sont conservés dans un tableau de doubles, recopié dans une pile unique de doubles
+ * à chaque branche : l'interprétation d'une génération ne crée aucun objet.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class Tortue3D implements RecepteurSymboles, RecepteurModules {
+    /**
+     * Les positions, dans l'état de la tortue, de sa position, de sa direction H, de sa gauche L, de son dessus U
+     * (trois coordonnées chacun) et du rayon des branches.
+     * Le nombre de valeurs de l'état.
+     */
+    private static final int POSITION = 0, DIRECTION = 3, GAUCHE = 6, DESSUS = 9, RAYON = 12;
+    private static final int TAILLE_ETAT = 13;
+    /** Le rapport entre le rayon initial des branches et la longueur d'un pas. */
+    private static final double RAYON_RELATIF = 0.1;
+
+    /**
+     * La longueur d'un pas de la tortue.
+     * Le cosinus et le sinus de l'angle d'une rotation sans paramètre.
+     * L'écouteur des branches tracées par la tortue.
+     */
+    private final double longueur;
+    private final double cosDelta, sinDelta;
+    private final EcouteurTortue3D ecouteur;
+    /**
+     * L'état de la tortue : sa position, son repère et le rayon des branches.
+     * Les états sauvegardés à l'ouverture des branches, mis bout à bout.
+     * Le nombre de valeurs occupées dans la pile.
+     */
+    private final double[] etat;
+    private double[] pile;
+    private int hauteur;
+
+    /**
+     * Construit une tortue placée à l'origine et dirigée vers le haut.
+     * @param angle l'angle (en degrés) d'une rotation sans paramètre
+     * @param longueur la longueur d'un pas de la tortue
+     * @param ecouteur l'écouteur des branches tracées par la tortue
+     */
+    public Tortue3D(double angle, double longueur, EcouteurTortue3D ecouteur) {
+        this.longueur = longueur;
+        this.cosDelta = Math.cos(Math.toRadians(angle));
+        this.sinDelta = Math.sin(Math.toRadians(angle));
+        this.ecouteur = ecouteur;
+        this.etat = new double[TAILLE_ETAT];
+        etat[DIRECTION + 1] = 1;
+        etat[GAUCHE] = 1;
+        etat[DESSUS + 2] = -1;
+        etat[RAYON] = RAYON_RELATIF * longueur;
+        this.pile = new double[16 * TAILLE_ETAT];
+    }
+
+    /**
+     * Retourne une coordonnée de la position de la tortue.
+     * @param axe 0 pour l'abscisse, 1 pour l'ordonnée, 2 pour la cote
+     * @return la coordonnée demandée
+     */
+    public double getPosition(int axe) {
+        return etat[POSITION + axe];
+    }
+    /**
+     * Retourne une coordonnée de la direction de la tortue.
+     * @param axe 0 pour l'abscisse, 1 pour l'ordonnée, 2 pour la cote
+     * @return la coordonnée demandée, la direction étant unitaire
+     */
+    public double getDirection(int axe) {
+        return etat[DIRECTION + axe];
+    }
+    /**
+     * Retourne le nombre de branches ouvertes et non encore fermées.
+     * @return le nombre de branches ouvertes
+     */
+    public int getProfondeurBranche() {
+        return hauteur / TAILLE_ETAT;
+    }
+
+    /**
+     * Fait avancer la tortue dans sa direction.
+     * @param distance la distance à parcourir
+     * @param trace true pour tracer une branche, false pour un simple déplacement
+     */
+    private void avance(double distance, boolean trace) {
+        double x = etat[POSITION], y = etat[POSITION + 1], z = etat[POSITION + 2];
+        etat[POSITION] += etat[DIRECTION] * distance;
+        etat[POSITION + 1] += etat[DIRECTION + 1] * distance;
+        etat[POSITION + 2] += etat[DIRECTION + 2] * distance;
+        if (trace)
+            ecouteur.trait(x, y, z, etat[POSITION], etat[POSITION + 1], etat[POSITION + 2], etat[RAYON]);
+    }
+
+    /**
+     * Fait tourner deux vecteurs du repère dans leur plan, le premier vers le second.
+     * @param premier la position du premier vecteur dans l'état
+     * @param second la position du second vecteur dans l'état
+     * @param cos le cosinus de l'angle de la rotation
+     * @param sin le sinus de l'angle de la rotation
+     */
+    private void tourne(int premier, int second, double cos, double sin) {
+        for (int axe = 0; axe < 3; axe++) {
+            double a = etat[premier + axe], b = etat[second + axe];
+            etat[premier + axe] = a * cos + b * sin;
+            etat[second + axe] = b * cos - a * sin;
+        }
+    }
+
+    /**
+     * Applique la rotation associée à un symbole.
+     * @param symbole le symbole de la rotation
+     * @param cos le cosinus de l'angle de la rotation
+     * @param sin le sinus de l'angle de la rotation
+     * @return true si le symbole est une rotation
+     */
+    private boolean oriente(char symbole, double cos, double sin) {
+        switch (symbole) {
+            case '+':
+                tourne(DIRECTION, GAUCHE, cos, -sin);
+                return true;
+            case '-':
+                tourne(DIRECTION, GAUCHE, cos, sin);
+                return true;
+            case '&':
+                tourne(DIRECTION, DESSUS, cos, sin);
+                return true;
+            case '^':
+                tourne(DIRECTION, DESSUS, cos, -sin);
+                return true;
+            case '\\':
+                tourne(GAUCHE, DESSUS, cos, sin);
+                return true;
+            case '/':
+                tourne(GAUCHE, DESSUS, cos, -sin);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void recoit(char symbole, double[] parametres, int debut, int nbParametres) {
+        if (nbParametres == 0) {
+            recoit(symbole);
+            return;
+        }
+        switch (symbole) {
+            case 'F':
+                avance(parametres[debut] * longueur, true);
+                break;
+            case 'f':
+                avance(parametres[debut] * longueur, false);
+                break;
+            case '!':
+                etat[RAYON] = parametres[debut] * longueur / 2;
+                break;
+            default:
+                double angle = Math.toRadians(parametres[debut]);
+                if (!oriente(symbole, Math.cos(angle), Math.sin(angle)))
+                    recoit(symbole);
+                break;
+        }
+    }
+
+    @Override
+    public void recoit(char symbole) {
+        switch (symbole) {
+            case 'F':
+                avance(longueur, true);
+                break;
+            case 'f':
+                avance(longueur, false);
+                break;
+            case '|':
+                tourne(DIRECTION, GAUCHE, -1, 0);
+                break;
+            case '[':
+                if (hauteur + TAILLE_ETAT > pile.length)
+                    pile = Arrays.copyOf(pile, 2 * pile.length);
+                System.arraycopy(etat, 0, pile, hauteur, TAILLE_ETAT);
+                hauteur += TAILLE_ETAT;
+                break;
+            case ']':
+                if (hauteur == 0)
+                    throw new IllegalStateException("Le symbole ']' ferme une branche qui n'a pas été ouverte.");
+                hauteur -= TAILLE_ETAT;
+                System.arraycopy(pile, hauteur, etat, 0, TAILLE_ETAT);
+                break;
+            default:
+                oriente(symbole, cosDelta, sinDelta);
+                break;
+        }
+    }
+}
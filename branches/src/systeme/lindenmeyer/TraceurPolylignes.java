@@ -0,0 +1,109 @@
+package systeme.lindenmeyer;
+
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * Un écouteur de tortue qui regroupe les traits consécutifs et reliés en polylignes,
+ * au lieu d'envoyer au canvas une commande strokeLine par trait.
+ * Une polyligne est interrompue lorsque la tortue se déplace sans tracer ('f') ou revient au début d'une branche (']') ;
+ * l'ouverture d'une branche ne déplaçant pas la tortue, le tracé se poursuit alors dans la branche.
+ * Les polylignes sont accumulées comme autant de sous-chemins d'un même chemin, construit localement par le contexte graphique
+ * et dessiné par un unique appel à stroke() tous les {@value #NB_POINTS_MAX} points.
+ *
+ * @author Ali Azou, Matisse Senechal, Rafik Halit, Université de Caen Normandie, France
+ */
+public class TraceurPolylignes implements EcouteurTortue {
+    /** Le nombre maximal de points d'un chemin, au-delà duquel il est dessiné et poursuivi par un nouveau chemin. */
+    public static final int NB_POINTS_MAX = 1 << 12;
+
+    /**
+     * Le contexte graphique sur lequel dessiner.
+     * Le nombre de points du chemin en cours.
+     * Indique si le prochain trait prolonge la polyligne en cours.
+     * Le nombre de polylignes tracées.
+     * Le nombre de chemins dessinés, c'est-à-dire de commandes stroke() envoyées au canvas.
+     * Le nombre de points des chemins dessinés.
+     */
+    private final GraphicsContext gc;
+    private int nbPoints;
+    private boolean continu;
+    private long nbPolylignes, nbChemins, nbPointsDessines;
+
+    /**
+     * Construit un traceur de polylignes.
+     * @param gc le contexte graphique sur lequel dessiner
+     */
+    public TraceurPolylignes(GraphicsContext gc) {
+        this.gc = gc;
+    }
+
+    /**
+     * Retourne le nombre de polylignes tracées.
+     * @return le nombre de polylignes tracées
+     */
+    public long getNbPolylignes() {
+        return this.nbPolylignes;
+    }
+    /**
+     * Retourne le nombre de chemins dessinés, c'est-à-dire le nombre de commandes de tracé envoyées au canvas.
+     * @return le nombre de chemins dessinés
+     */
+    public long getNbChemins() {
+        return this.nbChemins;
+    }
+    /**
+     * Retourne le nombre de traits des chemins dessinés.
+     * @return le nombre de traits dessinés, complet une fois le traceur terminé
+     */
+    public long getNbTraits() {
+        return this.nbPointsDessines - this.nbPolylignes;
+    }
+    /**
+     * Retourne le nombre de commandes de tracé envoyées au canvas, c'est-à-dire d'appels à stroke() :
+     * beginPath(), moveTo() et lineTo() ne font que construire le chemin localement dans le contexte graphique.
+     * @return le nombre de commandes de tracé envoyées, complet une fois le traceur terminé
+     */
+    public long getNbCommandes() {
+        return this.nbChemins;
+    }
+
+    @Override
+    public void trait(double x1, double y1, double x2, double y2) {
+        if (nbPoints >= NB_POINTS_MAX)
+            // Le chemin plein est dessiné et le tracé reprend depuis son dernier point.
+            termine();
+        if (!continu) {
+            if (nbPoints == 0)
+                gc.beginPath();
+            gc.moveTo(x1, y1);
+            nbPoints++;
+            nbPolylignes++;
+            continu = true;
+        }
+        gc.lineTo(x2, y2);
+        nbPoints++;
+    }
+
+    @Override
+    public void saut(double x1, double y1, double x2, double y2) {
+        continu = false;
+    }
+
+    @Override
+    public void depile(double x, double y) {
+        continu = false;
+    }
+
+    /**
+     * Dessine le chemin en cours. Doit être appelée une fois la génération entièrement interprétée.
+     */
+    public void termine() {
+        if (nbPoints > 0) {
+            gc.stroke();
+            nbChemins++;
+            nbPointsDessines += nbPoints;
+        }
+        nbPoints = 0;
+        continu = false;
+    }
+}